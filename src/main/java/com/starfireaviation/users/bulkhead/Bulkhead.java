@@ -0,0 +1,218 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.bulkhead;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded executor for one class of endpoints. Each request holds a permit from submission until it has finished
+ * running (or timed out before starting), so the pool's queue can never overflow and a full bulkhead is detected on
+ * the request thread, before asynchronous processing starts.
+ */
+public class Bulkhead {
+
+    /**
+     * Task state: queued.
+     */
+    private static final int QUEUED = 0;
+
+    /**
+     * Task state: running.
+     */
+    private static final int RUNNING = 1;
+
+    /**
+     * Task state: permit released.
+     */
+    private static final int RELEASED = 2;
+
+    /**
+     * EndpointClass.
+     */
+    private final EndpointClass endpointClass;
+
+    /**
+     * Executor.
+     */
+    private final ThreadPoolTaskExecutor executor;
+
+    /**
+     * Permits (threads plus queue capacity).
+     */
+    private final Semaphore permits;
+
+    /**
+     * Total permits.
+     */
+    private final int capacity;
+
+    /**
+     * Request timeout (ms).
+     */
+    private final long timeoutMs;
+
+    /**
+     * Rejected requests counter.
+     */
+    private Counter rejected;
+
+    /**
+     * Timed out requests counter.
+     */
+    private Counter timeouts;
+
+    /**
+     * Bulkhead.
+     *
+     * @param anEndpointClass EndpointClass
+     * @param props           BulkheadProperties
+     * @param decorator       TaskDecorator applied to every task
+     */
+    public Bulkhead(final EndpointClass anEndpointClass,
+                    final BulkheadProperties props,
+                    final TaskDecorator decorator) {
+        endpointClass = anEndpointClass;
+        timeoutMs = props.getTimeoutMs();
+        capacity = props.getThreads() + props.getQueueCapacity();
+        permits = new Semaphore(capacity);
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(props.getThreads());
+        executor.setMaxPoolSize(props.getThreads());
+        executor.setQueueCapacity(Math.max(1, props.getQueueCapacity()));
+        executor.setThreadNamePrefix("bulkhead-" + name() + "-");
+        executor.setTaskDecorator(decorator);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+    }
+
+    /**
+     * Submits a request handler to run on this bulkhead.
+     *
+     * @param handler request handler
+     * @param <T>     result type
+     * @return WebAsyncTask
+     * @throws BulkheadFullException when no thread or queue slot is free
+     */
+    public <T> WebAsyncTask<T> submit(final Callable<T> handler) {
+        return submit(timeoutMs, handler);
+    }
+
+    /**
+     * Submits a request handler to run on this bulkhead, with its own timeout rather than the bulkhead's.
+     *
+     * @param timeout time (ms) from submission after which the request is answered with 503
+     * @param handler request handler
+     * @param <T>     result type
+     * @return WebAsyncTask
+     * @throws BulkheadFullException when no thread or queue slot is free
+     */
+    public <T> WebAsyncTask<T> submit(final long timeout, final Callable<T> handler) {
+        if (!permits.tryAcquire()) {
+            if (rejected != null) {
+                rejected.increment();
+            }
+            throw new BulkheadFullException(endpointClass);
+        }
+        final AtomicInteger state = new AtomicInteger(QUEUED);
+        final WebAsyncTask<T> task = new WebAsyncTask<>(timeout, executor, () -> {
+            if (!state.compareAndSet(QUEUED, RUNNING)) {
+                // Timed out while queued; the response has already been sent
+                return null;
+            }
+            try {
+                return handler.call();
+            } finally {
+                state.set(RELEASED);
+                permits.release();
+            }
+        });
+        task.onTimeout(() -> {
+            if (timeouts != null) {
+                timeouts.increment();
+            }
+            return CallableProcessingInterceptor.RESULT_NONE;
+        });
+        task.onCompletion(() -> {
+            if (state.compareAndSet(QUEUED, RELEASED)) {
+                permits.release();
+            }
+        });
+        return task;
+    }
+
+    /**
+     * Registers this bulkhead's metrics: pool and queue metrics, saturation, rejections and timeouts.
+     *
+     * @param registry MeterRegistry
+     */
+    public void bindTo(final MeterRegistry registry) {
+        final Tags tags = Tags.of("bulkhead", name());
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "bulkhead." + name(), tags).bindTo(registry);
+        Gauge
+                .builder("users.bulkhead.saturation", this, Bulkhead::getSaturation)
+                .description("Share of the bulkhead's threads and queue slots in use")
+                .tags(tags)
+                .register(registry);
+        rejected = Counter
+                .builder("users.bulkhead.rejected")
+                .description("Requests rejected because the bulkhead was full")
+                .tags(tags)
+                .register(registry);
+        timeouts = Counter
+                .builder("users.bulkhead.timeouts")
+                .description("Requests which timed out on the bulkhead")
+                .tags(tags)
+                .register(registry);
+    }
+
+    /**
+     * Gets the share of threads and queue slots in use.
+     *
+     * @return saturation, 0 to 1
+     */
+    public double getSaturation() {
+        return (double) (capacity - permits.availablePermits()) / capacity;
+    }
+
+    /**
+     * Stops the executor, letting running requests finish.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Gets the metric and thread name of this bulkhead.
+     *
+     * @return name
+     */
+    private String name() {
+        return endpointClass.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.bulkhead;
+
+/**
+ * Thrown when a bulkhead has no free thread or queue slot. Raised on the request thread, before asynchronous
+ * processing starts, and carries no stack trace.
+ */
+public class BulkheadFullException extends RuntimeException {
+
+    /**
+     * Default SerialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * BulkheadFullException.
+     *
+     * @param endpointClass EndpointClass
+     */
+    public BulkheadFullException(final EndpointClass endpointClass) {
+        super(String.format("Bulkhead [%s] is full", endpointClass));
+    }
+
+    /**
+     * {@inheritDoc} Skips stack trace capture.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
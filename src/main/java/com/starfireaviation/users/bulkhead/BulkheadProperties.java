@@ -0,0 +1,57 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.bulkhead;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Sizing of a single bulkhead.
+ */
+@Getter
+@Setter
+public class BulkheadProperties {
+
+    /**
+     * Default number of threads.
+     */
+    private static final int DEFAULT_THREADS = 8;
+
+    /**
+     * Default number of queued requests.
+     */
+    private static final int DEFAULT_QUEUE_CAPACITY = 32;
+
+    /**
+     * Default request timeout (ms).
+     */
+    private static final long DEFAULT_TIMEOUT_MS = 10_000L;
+
+    /**
+     * Number of threads.
+     */
+    private int threads = DEFAULT_THREADS;
+
+    /**
+     * Number of requests which may wait for a thread. Requests beyond this are rejected with 503.
+     */
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+    /**
+     * Time (ms) from submission after which a request is answered with 503, whether or not it has started.
+     */
+    private long timeoutMs = DEFAULT_TIMEOUT_MS;
+}
@@ -0,0 +1,98 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.bulkhead;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * One Bulkhead per EndpointClass, so that a slow class (e.g. a large listing or a stalled Pwned Passwords call) can
+ * only exhaust its own threads, while Tomcat's request threads are returned to the pool as soon as a request has been
+ * handed off.
+ */
+public class Bulkheads implements MeterBinder, DisposableBean {
+
+    /**
+     * Bulkheads by EndpointClass.
+     */
+    private final Map<EndpointClass, Bulkhead> bulkheads = new EnumMap<>(EndpointClass.class);
+
+    /**
+     * Bulkheads.
+     *
+     * @param props     BulkheadProperties by EndpointClass; classes without an entry use the defaults
+     * @param decorator TaskDecorator applied to every task
+     */
+    public Bulkheads(final Map<EndpointClass, BulkheadProperties> props, final TaskDecorator decorator) {
+        for (final EndpointClass endpointClass : EndpointClass.values()) {
+            bulkheads.put(endpointClass, new Bulkhead(endpointClass,
+                    props.getOrDefault(endpointClass, new BulkheadProperties()), decorator));
+        }
+    }
+
+    /**
+     * Submits a request handler to run on the bulkhead for its class.
+     *
+     * @param endpointClass EndpointClass
+     * @param handler       request handler
+     * @param <T>           result type
+     * @return WebAsyncTask
+     * @throws BulkheadFullException when no thread or queue slot is free
+     */
+    public <T> WebAsyncTask<T> submit(final EndpointClass endpointClass, final Callable<T> handler) {
+        return bulkheads.get(endpointClass).submit(handler);
+    }
+
+    /**
+     * Submits a request handler to run on the bulkhead for its class, with its own timeout rather than the
+     * bulkhead's.
+     *
+     * @param endpointClass EndpointClass
+     * @param timeout       time (ms) from submission after which the request is answered with 503
+     * @param handler       request handler
+     * @param <T>           result type
+     * @return WebAsyncTask
+     * @throws BulkheadFullException when no thread or queue slot is free
+     */
+    public <T> WebAsyncTask<T> submit(final EndpointClass endpointClass,
+                                      final long timeout,
+                                      final Callable<T> handler) {
+        return bulkheads.get(endpointClass).submit(timeout, handler);
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        bulkheads.values().forEach(bulkhead -> bulkhead.bindTo(registry));
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public void destroy() {
+        bulkheads.values().forEach(Bulkhead::shutdown);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.bulkhead;
+
+/**
+ * Class of endpoints sharing a bulkhead.
+ */
+public enum EndpointClass {
+
+    /**
+     * Authentication-critical reads, e.g. user lookups.
+     */
+    AUTH_READ,
+
+    /**
+     * Writes, most of which hash a password.
+     */
+    WRITE,
+
+    /**
+     * Admin bulk reads, e.g. listing, search and address export.
+     */
+    BULK,
+
+    /**
+     * Lookups which call an external service (Pwned Passwords).
+     */
+    EXTERNAL
+}
@@ -0,0 +1,138 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Consecutive-failure circuit breaker. After the failure threshold is reached the circuit opens and calls are rejected
+ * until the open period elapses; a single trial call is then let through, which closes the circuit on success or
+ * re-opens it on failure.
+ */
+public class CircuitBreaker {
+
+    /**
+     * Circuit state.
+     */
+    public enum State {
+
+        /**
+         * Calls flow.
+         */
+        CLOSED,
+
+        /**
+         * Calls are rejected.
+         */
+        OPEN,
+
+        /**
+         * A single trial call is in flight.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Consecutive failures which open the circuit.
+     */
+    private final int failureThreshold;
+
+    /**
+     * Time (ns) the circuit stays open.
+     */
+    private final long openNanos;
+
+    /**
+     * State.
+     */
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+
+    /**
+     * Consecutive failures.
+     */
+    private final AtomicInteger failures = new AtomicInteger();
+
+    /**
+     * Time (System.nanoTime()) until which the circuit stays open.
+     */
+    private volatile long openUntil;
+
+    /**
+     * CircuitBreaker.
+     *
+     * @param threshold consecutive failures which open the circuit
+     * @param openFor   time (ns) the circuit stays open
+     */
+    public CircuitBreaker(final int threshold, final long openFor) {
+        failureThreshold = threshold;
+        openNanos = openFor;
+    }
+
+    /**
+     * Determines if a call may proceed. A caller which is allowed through must report onSuccess or onFailure.
+     *
+     * @return call permitted?
+     */
+    public boolean tryAcquire() {
+        final State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN && System.nanoTime() - openUntil >= 0) {
+            return state.compareAndSet(State.OPEN, State.HALF_OPEN);
+        }
+        return false;
+    }
+
+    /**
+     * Reports a successful call.
+     */
+    public void onSuccess() {
+        failures.set(0);
+        state.set(State.CLOSED);
+    }
+
+    /**
+     * Reports a failed call.
+     */
+    public void onFailure() {
+        if (state.get() == State.HALF_OPEN || failures.incrementAndGet() >= failureThreshold) {
+            openFor(openNanos);
+        }
+    }
+
+    /**
+     * Opens the circuit for a given time, e.g. as instructed by a Retry-After header.
+     *
+     * @param nanos open period
+     */
+    public void openFor(final long nanos) {
+        openUntil = System.nanoTime() + nanos;
+        failures.set(0);
+        state.set(State.OPEN);
+    }
+
+    /**
+     * Gets the state.
+     *
+     * @return State
+     */
+    public State getState() {
+        return state.get();
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.client;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Client for the Have I Been Pwned "Pwned Passwords" range API. Only the first five characters of the SHA-1 hash are
+ * sent. Calls are isolated by a bulkhead (a bound on concurrent checks) and a circuit breaker; when either rejects a
+ * call, or the upstream fails, the result is UNKNOWN rather than an error or a wait.
+ */
+@Slf4j
+public class PwnedPasswordsClient {
+
+    /**
+     * Result returned when the breach count could not be determined.
+     */
+    public static final int UNKNOWN = -1;
+
+    /**
+     * Length of the hash prefix sent upstream.
+     */
+    private static final int PREFIX_LENGTH = 5;
+
+    /**
+     * Open period used when a 429 response carries no usable Retry-After header.
+     */
+    private static final long DEFAULT_RETRY_AFTER_SECONDS = 1L;
+
+    /**
+     * RestTemplate.
+     */
+    private final RestTemplate restTemplate;
+
+    /**
+     * Range API URL template.
+     */
+    private final String rangeUrl;
+
+    /**
+     * Bulkhead bounding concurrent checks.
+     */
+    private final Semaphore bulkhead;
+
+    /**
+     * CircuitBreaker.
+     */
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * Successful checks.
+     */
+    private final LongAdder succeeded = new LongAdder();
+
+    /**
+     * Failed checks.
+     */
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * Checks rejected by the open circuit.
+     */
+    private final LongAdder rejectedOpen = new LongAdder();
+
+    /**
+     * Checks rejected by the full bulkhead.
+     */
+    private final LongAdder rejectedBulkhead = new LongAdder();
+
+    /**
+     * PwnedPasswordsClient.
+     *
+     * @param template      RestTemplate
+     * @param baseUrl       API base URL, e.g. https://api.pwnedpasswords.com
+     * @param maxConcurrent maximum concurrent checks
+     * @param breaker       CircuitBreaker
+     */
+    public PwnedPasswordsClient(final RestTemplate template,
+                                final String baseUrl,
+                                final int maxConcurrent,
+                                final CircuitBreaker breaker) {
+        restTemplate = template;
+        rangeUrl = baseUrl + "/range/{prefix}";
+        bulkhead = new Semaphore(maxConcurrent);
+        circuitBreaker = breaker;
+    }
+
+    /**
+     * Gets the number of times a password appears in the breach corpus.
+     *
+     * @param sha1Hash SHA-1 hash of the password (hex)
+     * @return breach count, or UNKNOWN when it could not be determined
+     */
+    public int count(final String sha1Hash) {
+        if (!StringUtils.hasLength(sha1Hash) || sha1Hash.length() <= PREFIX_LENGTH) {
+            return 0;
+        }
+        if (!bulkhead.tryAcquire()) {
+            rejectedBulkhead.increment();
+            return UNKNOWN;
+        }
+        try {
+            if (!circuitBreaker.tryAcquire()) {
+                rejectedOpen.increment();
+                return UNKNOWN;
+            }
+            return call(sha1Hash);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Calls the range API. Must report the outcome to the circuit breaker.
+     *
+     * @param sha1Hash SHA-1 hash of the password (hex)
+     * @return breach count, or UNKNOWN
+     */
+    private int call(final String sha1Hash) {
+        final String prefix = sha1Hash.substring(0, PREFIX_LENGTH).toUpperCase(Locale.ROOT);
+        final String body;
+        try {
+            body = restTemplate.getForObject(rangeUrl, String.class, prefix);
+        } catch (RestClientResponseException e) {
+            failed.increment();
+            if (e.getRawStatusCode() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+                circuitBreaker.openFor(TimeUnit.SECONDS.toNanos(retryAfterSeconds(e.getResponseHeaders())));
+            } else if (e.getRawStatusCode() >= HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            log.warn(String.format("Pwned Passwords check failed with status %s", e.getRawStatusCode()));
+            return UNKNOWN;
+        } catch (RestClientException e) {
+            failed.increment();
+            circuitBreaker.onFailure();
+            log.warn(String.format("Pwned Passwords check failed: %s", e.getMessage()));
+            return UNKNOWN;
+        } catch (RuntimeException e) {
+            failed.increment();
+            circuitBreaker.onFailure();
+            throw e;
+        }
+        succeeded.increment();
+        circuitBreaker.onSuccess();
+        return parse(body, sha1Hash.substring(PREFIX_LENGTH));
+    }
+
+    /**
+     * Registers the client's metrics. Not a MeterBinder, so that the client can be created lazily on first use.
+     *
+     * @param registry MeterRegistry
+     */
+    public void bindTo(final MeterRegistry registry) {
+        outcome(registry, "success", succeeded);
+        outcome(registry, "failure", failed);
+        outcome(registry, "circuit_open", rejectedOpen);
+        outcome(registry, "bulkhead_full", rejectedBulkhead);
+        Gauge
+                .builder("users.hibp.circuit.state", circuitBreaker, cb -> cb.getState().ordinal())
+                .description("Pwned Passwords circuit state (0 closed, 1 open, 2 half open)")
+                .register(registry);
+        Gauge
+                .builder("users.hibp.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .description("Pwned Passwords checks which may start without being rejected")
+                .register(registry);
+    }
+
+    /**
+     * Registers an outcome counter.
+     *
+     * @param registry MeterRegistry
+     * @param outcome  outcome tag
+     * @param adder    LongAdder
+     */
+    private static void outcome(final MeterRegistry registry, final String outcome, final LongAdder adder) {
+        FunctionCounter
+                .builder("users.hibp.checks", adder, LongAdder::sum)
+                .description("Pwned Passwords checks")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * Finds a hash suffix in a range response.
+     *
+     * @param body   range response ("SUFFIX:COUNT" lines)
+     * @param suffix hash suffix
+     * @return breach count, 0 when not found
+     */
+    static int parse(final String body, final String suffix) {
+        if (body == null) {
+            return 0;
+        }
+        int start = 0;
+        while (start < body.length()) {
+            int end = body.indexOf('\n', start);
+            if (end < 0) {
+                end = body.length();
+            }
+            final int colon = start + suffix.length();
+            if (colon < end
+                    && body.charAt(colon) == ':'
+                    && body.regionMatches(true, start, suffix, 0, suffix.length())) {
+                return Integer.parseInt(body.substring(colon + 1, end).trim());
+            }
+            start = end + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Reads the Retry-After header (seconds).
+     *
+     * @param headers response headers
+     * @return seconds
+     */
+    private static long retryAfterSeconds(final HttpHeaders headers) {
+        if (headers == null) {
+            return DEFAULT_RETRY_AFTER_SECONDS;
+        }
+        final String retryAfter = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        try {
+            if (retryAfter != null) {
+                return Math.max(DEFAULT_RETRY_AFTER_SECONDS, Long.parseLong(retryAfter.trim()));
+            }
+        } catch (NumberFormatException e) {
+            // Fall through to the default
+        }
+        return DEFAULT_RETRY_AFTER_SECONDS;
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.concurrency;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit which adapts to observed latency (the gradient algorithm). Request latency is averaged over short
+ * sampling windows and compared with a long-term average. While latency holds steady the limit grows by roughly its
+ * square root per window; once requests queue and latency rises, the limit shrinks in proportion, down to half per
+ * window. Requests beyond the limit are rejected immediately rather than queued.
+ *
+ * Each priority class may use a share of the limit; CRITICAL may always use all of it.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    /**
+     * Smallest factor by which one window may shrink the limit.
+     */
+    private static final double MIN_GRADIENT = 0.5;
+
+    /**
+     * Number of windows over which the long-term latency average is taken.
+     */
+    private static final int LONG_WINDOWS = 100;
+
+    /**
+     * Ratio of long-term to short-term latency beyond which the long-term average is decayed faster, so the limit can
+     * recover once a latency spike has passed.
+     */
+    private static final double RECOVERY_RATIO = 2.0;
+
+    /**
+     * Long-term latency decay applied while recovering.
+     */
+    private static final double RECOVERY_DECAY = 0.95;
+
+    /**
+     * Minimum limit.
+     */
+    private final int minLimit;
+
+    /**
+     * Maximum limit.
+     */
+    private final int maxLimit;
+
+    /**
+     * Tolerated ratio of short-term to long-term latency before the limit shrinks.
+     */
+    private final double tolerance;
+
+    /**
+     * Weight of each new estimate in the limit.
+     */
+    private final double smoothing;
+
+    /**
+     * Sampling window (ns).
+     */
+    private final long windowNanos;
+
+    /**
+     * Minimum samples before a window is evaluated.
+     */
+    private final int minWindowSamples;
+
+    /**
+     * Share of the limit each priority may use.
+     */
+    private final Map<RequestPriority, Double> shares = new EnumMap<>(RequestPriority.class);
+
+    /**
+     * Requests in flight.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * Latency total in the current window (ns).
+     */
+    private final LongAdder windowLatency = new LongAdder();
+
+    /**
+     * Samples in the current window.
+     */
+    private final LongAdder windowSamples = new LongAdder();
+
+    /**
+     * Requests rejected since creation.
+     */
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Guards window evaluation.
+     */
+    private final ReentrantLock updateLock = new ReentrantLock();
+
+    /**
+     * Most requests in flight during the current window.
+     */
+    private volatile int windowMaxInFlight;
+
+    /**
+     * Start of the current window (ns).
+     */
+    private volatile long windowStart = System.nanoTime();
+
+    /**
+     * Long-term latency average (ns).
+     */
+    private double longLatency;
+
+    /**
+     * Current limit.
+     */
+    private volatile double limit;
+
+    /**
+     * AdaptiveConcurrencyLimiter.
+     *
+     * @param initial         initial limit
+     * @param min             minimum limit
+     * @param max             maximum limit
+     * @param latencyTolerance tolerated ratio of short-term to long-term latency, e.g. 1.5
+     * @param smoothingFactor  weight of each new estimate, between 0 and 1
+     * @param windowMillis     sampling window (ms)
+     * @param minSamples       minimum samples per window
+     * @param normalShare      share of the limit NORMAL requests may use
+     * @param bulkShare        share of the limit BULK requests may use
+     */
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    public AdaptiveConcurrencyLimiter(final int initial,
+                                      final int min,
+                                      final int max,
+                                      final double latencyTolerance,
+                                      final double smoothingFactor,
+                                      final long windowMillis,
+                                      final int minSamples,
+                                      final double normalShare,
+                                      final double bulkShare) {
+        minLimit = min;
+        maxLimit = max;
+        tolerance = latencyTolerance;
+        smoothing = smoothingFactor;
+        windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        minWindowSamples = minSamples;
+        limit = Math.max(min, Math.min(max, initial));
+        shares.put(RequestPriority.CRITICAL, 1.0);
+        shares.put(RequestPriority.NORMAL, normalShare);
+        shares.put(RequestPriority.BULK, bulkShare);
+    }
+
+    /**
+     * Admits a request if the number in flight is below the priority's share of the limit. An admitted request must be
+     * released exactly once.
+     *
+     * @param priority RequestPriority
+     * @return admitted?
+     */
+    public boolean tryAcquire(final RequestPriority priority) {
+        final int allowed = Math.max(1, (int) (limit * shares.get(priority)));
+        while (true) {
+            final int current = inFlight.get();
+            if (current >= allowed) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                if (current + 1 > windowMaxInFlight) {
+                    windowMaxInFlight = current + 1;
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases an admitted request and records its latency.
+     *
+     * @param latencyNanos time from admission to completion
+     */
+    public void release(final long latencyNanos) {
+        inFlight.decrementAndGet();
+        windowLatency.add(latencyNanos);
+        windowSamples.increment();
+        final long now = System.nanoTime();
+        if (now - windowStart >= windowNanos && windowSamples.sum() >= minWindowSamples && updateLock.tryLock()) {
+            try {
+                if (now - windowStart >= windowNanos) {
+                    endWindow(now);
+                }
+            } finally {
+                updateLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Evaluates the window which just ended and adjusts the limit. Called with the update lock held.
+     *
+     * @param now current time (ns)
+     */
+    private void endWindow(final long now) {
+        final long samples = windowSamples.sumThenReset();
+        final long total = windowLatency.sumThenReset();
+        final int maxInFlight = windowMaxInFlight;
+        windowMaxInFlight = inFlight.get();
+        windowStart = now;
+        if (samples == 0) {
+            return;
+        }
+        final double shortLatency = (double) total / samples;
+        if (longLatency == 0) {
+            longLatency = shortLatency;
+        } else {
+            longLatency += (shortLatency - longLatency) / LONG_WINDOWS;
+            if (longLatency / shortLatency > RECOVERY_RATIO) {
+                longLatency *= RECOVERY_DECAY;
+            }
+        }
+        final double current = limit;
+        final double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * longLatency / shortLatency));
+        double estimate = current * gradient + Math.sqrt(current);
+        if (estimate > current && maxInFlight < current / 2) {
+            // Not enough demand to tell whether a higher limit would hold
+            estimate = current;
+        }
+        final double smoothed = current * (1 - smoothing) + estimate * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, smoothed));
+    }
+
+    /**
+     * Gets the current limit.
+     *
+     * @return limit
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Gets the number of requests in flight.
+     *
+     * @return requests in flight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Gets the number of requests rejected since creation.
+     *
+     * @return rejected requests
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.concurrency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marks the instance not ready (REFUSING_TRAFFIC) while it has been shedding load continuously, so the load balancer
+ * moves traffic to less loaded replicas instead of sending requests here only to have them rejected. The instance
+ * reports ready again once it has gone a while without shedding.
+ */
+@Slf4j
+public class LoadShedReadiness {
+
+    /**
+     * AdaptiveConcurrencyLimiter.
+     */
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    /**
+     * ApplicationEventPublisher.
+     */
+    private final ApplicationEventPublisher publisher;
+
+    /**
+     * Continuous shedding (ns) before refusing traffic.
+     */
+    private final long refuseAfterNanos;
+
+    /**
+     * Time (ns) without shedding before accepting traffic again.
+     */
+    private final long recoverAfterNanos;
+
+    /**
+     * Rejections seen at the previous check.
+     */
+    private long lastRejected;
+
+    /**
+     * Start of the current shedding period (ns), or 0 when not shedding.
+     */
+    private long sheddingSince;
+
+    /**
+     * Time (ns) of the last check which saw a rejection.
+     */
+    private long lastShed;
+
+    /**
+     * Set when this class changed the readiness state, so that it only ever reverts its own change.
+     */
+    private boolean refusing;
+
+    /**
+     * LoadShedReadiness.
+     *
+     * @param aLimiter       AdaptiveConcurrencyLimiter
+     * @param aPublisher     ApplicationEventPublisher
+     * @param refuseAfterMs  continuous shedding (ms) before refusing traffic
+     * @param recoverAfterMs time (ms) without shedding before accepting traffic again
+     */
+    public LoadShedReadiness(final AdaptiveConcurrencyLimiter aLimiter,
+                             final ApplicationEventPublisher aPublisher,
+                             final long refuseAfterMs,
+                             final long recoverAfterMs) {
+        limiter = aLimiter;
+        publisher = aPublisher;
+        refuseAfterNanos = TimeUnit.MILLISECONDS.toNanos(refuseAfterMs);
+        recoverAfterNanos = TimeUnit.MILLISECONDS.toNanos(recoverAfterMs);
+        lastRejected = aLimiter.getRejected();
+    }
+
+    /**
+     * Compares the rejection count with the previous check and updates the readiness state as needed.
+     */
+    @Scheduled(fixedDelayString = "${groundschool.concurrency-readiness-check-ms:1000}")
+    public synchronized void check() {
+        final long now = System.nanoTime();
+        final long rejected = limiter.getRejected();
+        final boolean shedding = rejected > lastRejected;
+        lastRejected = rejected;
+        if (shedding) {
+            lastShed = now;
+            if (sheddingSince == 0) {
+                sheddingSince = now;
+            }
+            if (!refusing && now - sheddingSince >= refuseAfterNanos) {
+                refusing = true;
+                log.warn(
+                        String.format(
+                                "Shedding load for %s ms at a concurrency limit of %s; refusing traffic",
+                                TimeUnit.NANOSECONDS.toMillis(now - sheddingSince),
+                                limiter.getLimit()));
+                AvailabilityChangeEvent.publish(publisher, this, ReadinessState.REFUSING_TRAFFIC);
+            }
+            return;
+        }
+        sheddingSince = 0;
+        if (refusing && now - lastShed >= recoverAfterNanos) {
+            refusing = false;
+            log.info("No longer shedding load; accepting traffic");
+            AvailabilityChangeEvent.publish(publisher, this, ReadinessState.ACCEPTING_TRAFFIC);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.concurrency;
+
+/**
+ * Request priority class. Lower classes may only use part of the concurrency limit, so they are shed first and the
+ * remaining headroom stays available to higher classes.
+ */
+public enum RequestPriority {
+
+    /**
+     * Authentication and single-user lookups, which every other service depends on.
+     */
+    CRITICAL,
+
+    /**
+     * Everything not otherwise classified.
+     */
+    NORMAL,
+
+    /**
+     * Bulk and admin listing.
+     */
+    BULK
+}
@@ -16,10 +16,17 @@
 
 package com.starfireaviation.users.config;
 
+import com.starfireaviation.users.bulkhead.BulkheadProperties;
+import com.starfireaviation.users.bulkhead.EndpointClass;
+import com.starfireaviation.users.session.SessionStore;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -30,6 +37,241 @@ import java.util.Map;
 @ConfigurationProperties("groundschool")
 public class ApplicationProperties {
 
+    /**
+     * Default SQL statement budget.
+     */
+    private static final int DEFAULT_SQL_STATEMENT_BUDGET = 10;
+
+    /**
+     * Default per-client rate limit burst size and tokens per minute.
+     */
+    private static final int DEFAULT_RATE_LIMIT_CLIENT_TOKENS = 10;
+
+    /**
+     * Default per-email rate limit burst size.
+     */
+    private static final int DEFAULT_RATE_LIMIT_EMAIL_CAPACITY = 3;
+
+    /**
+     * Default maximum number of rate limit keys tracked per node.
+     */
+    private static final int DEFAULT_RATE_LIMIT_MAX_KEYS = 100_000;
+
+    /**
+     * Default number of minutes after which an unused distributed rate limit bucket expires.
+     */
+    private static final int DEFAULT_RATE_LIMIT_MAX_IDLE_MINUTES = 60;
+
+    /**
+     * Default expected number of usernames.
+     */
+    private static final long DEFAULT_USERNAME_FILTER_EXPECTED_INSERTIONS = 1_000_000L;
+
+    /**
+     * Default username filter false positive rate.
+     */
+    private static final double DEFAULT_USERNAME_FILTER_FALSE_POSITIVE_RATE = 0.01;
+
+    /**
+     * Default maximum number of index postings scanned per search token.
+     */
+    private static final int DEFAULT_SEARCH_MAX_CANDIDATES = 50_000;
+
+    /**
+     * Default number of outbox rows relayed per batch.
+     */
+    private static final int DEFAULT_OUTBOX_RELAY_BATCH_SIZE = 500;
+
+    /**
+     * Default number of changes kept in memory by the change feed.
+     */
+    private static final int DEFAULT_CHANGE_FEED_BUFFER_SIZE = 10_000;
+
+    /**
+     * Default outbox gap timeout in milliseconds.
+     */
+    private static final long DEFAULT_OUTBOX_GAP_TIMEOUT_MS = 30_000L;
+
+    /**
+     * Default outbox retention in days.
+     */
+    private static final int DEFAULT_OUTBOX_RETENTION_DAYS = 7;
+
+    /**
+     * Default maximum change feed long-poll wait in milliseconds.
+     */
+    private static final long DEFAULT_CHANGE_FEED_MAX_WAIT_MS = 30_000L;
+
+    /**
+     * Default read-your-writes window in milliseconds.
+     */
+    private static final long DEFAULT_READ_YOUR_WRITES_WINDOW_MS = 5_000L;
+
+    /**
+     * Default maximum acceptable replica lag in seconds.
+     */
+    private static final long DEFAULT_REPLICA_MAX_LAG_SECONDS = 5L;
+
+    /**
+     * Default maximum number of entries per second-level cache region, per node.
+     */
+    private static final int DEFAULT_SECOND_LEVEL_CACHE_MAX_ENTRIES = 100_000;
+
+    /**
+     * Default number of connections warmed at startup.
+     */
+    private static final int DEFAULT_JDBC_WARMUP_CONNECTIONS = 10;
+
+    /**
+     * Default time (minutes) an idempotent response is kept.
+     */
+    private static final int DEFAULT_IDEMPOTENCY_TTL_MINUTES = 60;
+
+    /**
+     * Default time (seconds) after which an in-flight idempotency key is abandoned.
+     */
+    private static final int DEFAULT_IDEMPOTENCY_IN_FLIGHT_TTL_SECONDS = 60;
+
+    /**
+     * Default time (ms) a repeated request waits for the first one to finish.
+     */
+    private static final long DEFAULT_IDEMPOTENCY_WAIT_MS = 10_000L;
+
+    /**
+     * Default maximum number of idempotency keys held per node.
+     */
+    private static final int DEFAULT_IDEMPOTENCY_MAX_KEYS = 100_000;
+
+    /**
+     * Default outbound HTTP connect timeout in milliseconds.
+     */
+    private static final int DEFAULT_HTTP_CONNECT_TIMEOUT_MS = 1_000;
+
+    /**
+     * Default outbound HTTP read timeout in milliseconds.
+     */
+    private static final int DEFAULT_HTTP_READ_TIMEOUT_MS = 2_000;
+
+    /**
+     * Default time (ms) to wait for a pooled outbound HTTP connection.
+     */
+    private static final int DEFAULT_HTTP_CONNECTION_REQUEST_TIMEOUT_MS = 250;
+
+    /**
+     * Default maximum pooled outbound HTTP connections.
+     */
+    private static final int DEFAULT_HTTP_MAX_CONNECTIONS = 20;
+
+    /**
+     * Default outbound HTTP keep-alive in milliseconds.
+     */
+    private static final long DEFAULT_HTTP_KEEP_ALIVE_MS = 30_000L;
+
+    /**
+     * Default maximum concurrent Pwned Passwords checks.
+     */
+    private static final int DEFAULT_HIBP_MAX_CONCURRENT_CHECKS = 10;
+
+    /**
+     * Default consecutive Pwned Passwords failures which open the circuit.
+     */
+    private static final int DEFAULT_HIBP_CIRCUIT_FAILURE_THRESHOLD = 5;
+
+    /**
+     * Default time (ms) the Pwned Passwords circuit stays open.
+     */
+    private static final long DEFAULT_HIBP_CIRCUIT_OPEN_MS = 30_000L;
+
+    /**
+     * Default number of warm-up iterations.
+     */
+    private static final int DEFAULT_WARMUP_ITERATIONS = 200;
+
+    /**
+     * Default warm-up time budget (ms).
+     */
+    private static final long DEFAULT_WARMUP_MAX_MS = 30_000L;
+
+    /**
+     * Default initial concurrency limit.
+     */
+    private static final int DEFAULT_CONCURRENCY_INITIAL_LIMIT = 50;
+
+    /**
+     * Default minimum concurrency limit.
+     */
+    private static final int DEFAULT_CONCURRENCY_MIN_LIMIT = 10;
+
+    /**
+     * Default maximum concurrency limit.
+     */
+    private static final int DEFAULT_CONCURRENCY_MAX_LIMIT = 400;
+
+    /**
+     * Default tolerated ratio of short-term to long-term latency.
+     */
+    private static final double DEFAULT_CONCURRENCY_LATENCY_TOLERANCE = 1.5;
+
+    /**
+     * Default weight of each new concurrency limit estimate.
+     */
+    private static final double DEFAULT_CONCURRENCY_SMOOTHING = 0.2;
+
+    /**
+     * Default concurrency limit sampling window (ms).
+     */
+    private static final long DEFAULT_CONCURRENCY_WINDOW_MS = 1_000L;
+
+    /**
+     * Default minimum samples per concurrency limit window.
+     */
+    private static final int DEFAULT_CONCURRENCY_MIN_WINDOW_SAMPLES = 20;
+
+    /**
+     * Default share of the concurrency limit NORMAL requests may use.
+     */
+    private static final double DEFAULT_CONCURRENCY_NORMAL_SHARE = 0.8;
+
+    /**
+     * Default share of the concurrency limit BULK requests may use.
+     */
+    private static final double DEFAULT_CONCURRENCY_BULK_SHARE = 0.5;
+
+    /**
+     * Default continuous shedding (ms) before the instance refuses traffic.
+     */
+    private static final long DEFAULT_CONCURRENCY_REFUSE_AFTER_MS = 10_000L;
+
+    /**
+     * Default time (ms) without shedding before the instance accepts traffic again.
+     */
+    private static final long DEFAULT_CONCURRENCY_RECOVER_AFTER_MS = 5_000L;
+
+    /**
+     * Default maximum number of sessions held in each replica's near cache.
+     */
+    private static final int DEFAULT_SESSION_NEAR_CACHE_MAX_ENTRIES = 10_000;
+
+    /**
+     * Default maximum number of users written per flag write-behind flush.
+     */
+    private static final int DEFAULT_FLAG_WRITE_BEHIND_BATCH_SIZE = 50;
+
+    /**
+     * Default maximum number of users with queued flag updates.
+     */
+    private static final int DEFAULT_FLAG_WRITE_BEHIND_MAX_PENDING = 10_000;
+
+    /**
+     * Default maximum request body size (bytes) a filter buffers.
+     */
+    private static final int DEFAULT_MAX_BUFFERED_BODY_BYTES = 65_536;
+
+    /**
+     * Default time (ms) allowed for streaming notification addresses.
+     */
+    private static final long DEFAULT_ADDRESSES_TIMEOUT_MS = 300_000L;
+
     /**
      * GSDecryptor enabled flag.
      */
@@ -71,4 +313,383 @@ public class ApplicationProperties {
      * UI Host.
      */
     private String uiHost;
+
+    /**
+     * Adds per-request SQL statement count and JDBC time response headers. Intended for non-prod environments only.
+     */
+    private boolean sqlDiagnosticsHeaderEnabled;
+
+    /**
+     * Default maximum number of SQL statements a single request may issue before a warning is logged.
+     */
+    private int sqlStatementBudget = DEFAULT_SQL_STATEMENT_BUDGET;
+
+    /**
+     * Per-endpoint SQL statement budgets.
+     *
+     * Note: key = "METHOD /path/pattern" (e.g. "GET /api/users/{userId}"); value = maximum statements
+     */
+    private Map<String, Integer> sqlStatementBudgets = new HashMap<>();
+
+    /**
+     * Rate limiting enabled flag.
+     */
+    private boolean rateLimitEnabled = true;
+
+    /**
+     * Per-client rate limit burst size.
+     */
+    private int rateLimitClientCapacity = DEFAULT_RATE_LIMIT_CLIENT_TOKENS;
+
+    /**
+     * Per-client rate limit tokens added per minute.
+     */
+    private int rateLimitClientTokensPerMinute = DEFAULT_RATE_LIMIT_CLIENT_TOKENS;
+
+    /**
+     * Per-email rate limit burst size.
+     */
+    private int rateLimitEmailCapacity = DEFAULT_RATE_LIMIT_EMAIL_CAPACITY;
+
+    /**
+     * Per-email rate limit tokens added per minute.
+     */
+    private int rateLimitEmailTokensPerMinute = 1;
+
+    /**
+     * Maximum number of rate limit keys tracked per node. Least recently used keys are evicted first.
+     */
+    private int rateLimitMaxKeys = DEFAULT_RATE_LIMIT_MAX_KEYS;
+
+    /**
+     * Minutes after which an unused distributed rate limit bucket expires.
+     */
+    private int rateLimitMaxIdleMinutes = DEFAULT_RATE_LIMIT_MAX_IDLE_MINUTES;
+
+    /**
+     * Share rate limit state across replicas via Hazelcast (requires hazelcastEnabled).
+     */
+    private boolean rateLimitDistributed;
+
+    /**
+     * Hazelcast enabled flag.
+     */
+    private boolean hazelcastEnabled;
+
+    /**
+     * Hazelcast cluster name.
+     */
+    private String hazelcastClusterName = "users";
+
+    /**
+     * Hazelcast members (host[:port]) to join via TCP/IP. Hazelcast's default discovery is used when empty.
+     */
+    private List<String> hazelcastMembers = new ArrayList<>();
+
+    /**
+     * Expected number of usernames, used to size the username availability filter.
+     */
+    private long usernameFilterExpectedInsertions = DEFAULT_USERNAME_FILTER_EXPECTED_INSERTIONS;
+
+    /**
+     * Username availability filter false positive rate (fraction of available usernames checked against the database).
+     */
+    private double usernameFilterFalsePositiveRate = DEFAULT_USERNAME_FILTER_FALSE_POSITIVE_RATE;
+
+    /**
+     * Maximum number of index postings scanned per search token. Bounds the cost of very short search queries.
+     */
+    private int searchMaxCandidates = DEFAULT_SEARCH_MAX_CANDIDATES;
+
+    /**
+     * Maximum number of outbox rows relayed to the change feed per batch.
+     */
+    private int outboxRelayBatchSize = DEFAULT_OUTBOX_RELAY_BATCH_SIZE;
+
+    /**
+     * Time (ms) a missing outbox ID may hold the change feed back before its row is assumed rolled back. Must exceed
+     * the longest transaction which writes outbox rows.
+     */
+    private long outboxGapTimeoutMs = DEFAULT_OUTBOX_GAP_TIMEOUT_MS;
+
+    /**
+     * Number of days outbox rows are retained.
+     */
+    private int outboxRetentionDays = DEFAULT_OUTBOX_RETENTION_DAYS;
+
+    /**
+     * Number of recent changes the change feed keeps in memory.
+     */
+    private int changeFeedBufferSize = DEFAULT_CHANGE_FEED_BUFFER_SIZE;
+
+    /**
+     * Maximum time (ms) a change feed long-poll may wait.
+     */
+    private long changeFeedMaxWaitMs = DEFAULT_CHANGE_FEED_MAX_WAIT_MS;
+
+    /**
+     * Routes read-only transactions to the read replica configured under groundschool.replica-datasource.
+     */
+    private boolean readReplicaEnabled;
+
+    /**
+     * Time (ms) after a writer's own write during which its reads stay on the primary. Shared through Hazelcast when it
+     * is enabled.
+     */
+    private long readYourWritesWindowMs = DEFAULT_READ_YOUR_WRITES_WINDOW_MS;
+
+    /**
+     * Query reporting replica lag. Lag checking is disabled when empty.
+     */
+    private String replicaLagQuery = "SHOW REPLICA STATUS";
+
+    /**
+     * Column of the replica lag query holding the lag in seconds.
+     */
+    private String replicaLagColumn = "Seconds_Behind_Source";
+
+    /**
+     * Maximum replica lag (seconds) before reads fall back to the primary.
+     */
+    private long replicaMaxLagSeconds = DEFAULT_REPLICA_MAX_LAG_SECONDS;
+
+    /**
+     * Hibernate second-level, natural ID and query caching backed by Hazelcast JCache (requires hazelcastEnabled).
+     */
+    private boolean secondLevelCacheEnabled = true;
+
+    /**
+     * Maximum number of entries per second-level cache region, per node.
+     */
+    private int secondLevelCacheMaxEntries = DEFAULT_SECOND_LEVEL_CACHE_MAX_ENTRIES;
+
+    /**
+     * Opens pooled connections and prepares the hot user lookups on each of them at startup.
+     */
+    private boolean jdbcWarmupEnabled;
+
+    /**
+     * Number of connections warmed at startup. Should not exceed the connection pool size.
+     */
+    private int jdbcWarmupConnections = DEFAULT_JDBC_WARMUP_CONNECTIONS;
+
+    /**
+     * Idempotency-Key support for user creation and password changes.
+     */
+    private boolean idempotencyEnabled = true;
+
+    /**
+     * Time (minutes) a recorded response is replayed for repeats of its idempotency key.
+     */
+    private int idempotencyTtlMinutes = DEFAULT_IDEMPOTENCY_TTL_MINUTES;
+
+    /**
+     * Time (seconds) after which a key whose first request never finished may be claimed again.
+     */
+    private int idempotencyInFlightTtlSeconds = DEFAULT_IDEMPOTENCY_IN_FLIGHT_TTL_SECONDS;
+
+    /**
+     * Maximum time (ms) a repeated request waits for the first one to finish before receiving 409.
+     */
+    private long idempotencyWaitMs = DEFAULT_IDEMPOTENCY_WAIT_MS;
+
+    /**
+     * Maximum number of idempotency keys held per node.
+     */
+    private int idempotencyMaxKeys = DEFAULT_IDEMPOTENCY_MAX_KEYS;
+
+    /**
+     * Share idempotency keys across replicas via Hazelcast (requires hazelcastEnabled).
+     */
+    private boolean idempotencyDistributed;
+
+    /**
+     * Outbound HTTP connect timeout (ms).
+     */
+    private int httpConnectTimeoutMs = DEFAULT_HTTP_CONNECT_TIMEOUT_MS;
+
+    /**
+     * Outbound HTTP read (socket) timeout (ms).
+     */
+    private int httpReadTimeoutMs = DEFAULT_HTTP_READ_TIMEOUT_MS;
+
+    /**
+     * Time (ms) to wait for a pooled outbound HTTP connection.
+     */
+    private int httpConnectionRequestTimeoutMs = DEFAULT_HTTP_CONNECTION_REQUEST_TIMEOUT_MS;
+
+    /**
+     * Maximum pooled outbound HTTP connections, in total and per host.
+     */
+    private int httpMaxConnections = DEFAULT_HTTP_MAX_CONNECTIONS;
+
+    /**
+     * Time (ms) an idle outbound HTTP connection is kept alive.
+     */
+    private long httpKeepAliveMs = DEFAULT_HTTP_KEEP_ALIVE_MS;
+
+    /**
+     * Pwned Passwords API base URL.
+     */
+    private String hibpBaseUrl = "https://api.pwnedpasswords.com";
+
+    /**
+     * Maximum concurrent Pwned Passwords checks. Checks beyond this return unknown (-1) immediately.
+     */
+    private int hibpMaxConcurrentChecks = DEFAULT_HIBP_MAX_CONCURRENT_CHECKS;
+
+    /**
+     * Consecutive Pwned Passwords failures which open the circuit.
+     */
+    private int hibpCircuitFailureThreshold = DEFAULT_HIBP_CIRCUIT_FAILURE_THRESHOLD;
+
+    /**
+     * Time (ms) the Pwned Passwords circuit stays open before a trial call.
+     */
+    private long hibpCircuitOpenMs = DEFAULT_HIBP_CIRCUIT_OPEN_MS;
+
+    /**
+     * Packages whose beans are created on first use rather than at startup (e.g. org.springdoc).
+     */
+    private List<String> lazyBeanPackages = new ArrayList<>();
+
+    /**
+     * Exit once started. Used to record the class list for the class data sharing archive.
+     */
+    private boolean cdsTrainingRun;
+
+    /**
+     * Exercise the main request paths with synthetic data before reporting ready.
+     */
+    private boolean warmupEnabled;
+
+    /**
+     * Warm-up iterations.
+     */
+    private int warmupIterations = DEFAULT_WARMUP_ITERATIONS;
+
+    /**
+     * Warm-up time budget (ms). Warm-up stops early, and the instance reports ready, once it is spent.
+     */
+    private long warmupMaxMs = DEFAULT_WARMUP_MAX_MS;
+
+    /**
+     * Minimum Hazelcast cluster members (including this one) for the instance to report ready.
+     */
+    private int hazelcastMinMembers = 1;
+
+    /**
+     * Initial adaptive concurrency limit.
+     */
+    private int concurrencyInitialLimit = DEFAULT_CONCURRENCY_INITIAL_LIMIT;
+
+    /**
+     * Minimum adaptive concurrency limit.
+     */
+    private int concurrencyMinLimit = DEFAULT_CONCURRENCY_MIN_LIMIT;
+
+    /**
+     * Maximum adaptive concurrency limit.
+     */
+    private int concurrencyMaxLimit = DEFAULT_CONCURRENCY_MAX_LIMIT;
+
+    /**
+     * Tolerated ratio of short-term to long-term latency before the concurrency limit shrinks.
+     */
+    private double concurrencyLatencyTolerance = DEFAULT_CONCURRENCY_LATENCY_TOLERANCE;
+
+    /**
+     * Weight (0-1) of each new concurrency limit estimate.
+     */
+    private double concurrencySmoothing = DEFAULT_CONCURRENCY_SMOOTHING;
+
+    /**
+     * Concurrency limit sampling window (ms).
+     */
+    private long concurrencyWindowMs = DEFAULT_CONCURRENCY_WINDOW_MS;
+
+    /**
+     * Minimum samples before a concurrency limit window is evaluated.
+     */
+    private int concurrencyMinWindowSamples = DEFAULT_CONCURRENCY_MIN_WINDOW_SAMPLES;
+
+    /**
+     * Share of the concurrency limit NORMAL requests may use.
+     */
+    private double concurrencyNormalShare = DEFAULT_CONCURRENCY_NORMAL_SHARE;
+
+    /**
+     * Share of the concurrency limit BULK requests may use.
+     */
+    private double concurrencyBulkShare = DEFAULT_CONCURRENCY_BULK_SHARE;
+
+    /**
+     * CRITICAL endpoints, as "METHOD /path/pattern".
+     */
+    private List<String> concurrencyCriticalEndpoints = new ArrayList<>();
+
+    /**
+     * BULK endpoints, as "METHOD /path/pattern".
+     */
+    private List<String> concurrencyBulkEndpoints = new ArrayList<>();
+
+    /**
+     * Endpoints which are not concurrency limited, as "METHOD /path/pattern".
+     */
+    private List<String> concurrencyExemptEndpoints = new ArrayList<>();
+
+    /**
+     * Report not ready while shedding load continuously.
+     */
+    private boolean concurrencyShedReadinessEnabled = true;
+
+    /**
+     * Continuous shedding (ms) before the instance refuses traffic.
+     */
+    private long concurrencyRefuseAfterMs = DEFAULT_CONCURRENCY_REFUSE_AFTER_MS;
+
+    /**
+     * Time (ms) without shedding before the instance accepts traffic again.
+     */
+    private long concurrencyRecoverAfterMs = DEFAULT_CONCURRENCY_RECOVER_AFTER_MS;
+
+    /**
+     * Bulkhead sizing by endpoint class, e.g. groundschool.bulkheads.auth-read.threads. Classes without an entry use
+     * the BulkheadProperties defaults.
+     */
+    private Map<EndpointClass, BulkheadProperties> bulkheads = new EnumMap<>(EndpointClass.class);
+
+    /**
+     * Where HTTP sessions are kept: local, hazelcast (requires hazelcastEnabled) or stateless.
+     */
+    private SessionStore sessionStore = SessionStore.LOCAL;
+
+    /**
+     * Maximum number of sessions held in each replica's near cache (hazelcast session store).
+     */
+    private int sessionNearCacheMaxEntries = DEFAULT_SESSION_NEAR_CACHE_MAX_ENTRIES;
+
+    /**
+     * Maximum number of users written per flag write-behind flush. A full batch is flushed without waiting for the
+     * interval.
+     */
+    private int flagWriteBehindBatchSize = DEFAULT_FLAG_WRITE_BEHIND_BATCH_SIZE;
+
+    /**
+     * Maximum number of users with queued flag updates; updates for further users are written synchronously. 0 writes
+     * every flag update synchronously.
+     */
+    private int flagWriteBehindMaxPending = DEFAULT_FLAG_WRITE_BEHIND_MAX_PENDING;
+
+    /**
+     * Maximum request body size (bytes) the rate limit and idempotency filters read into memory. Larger bodies are
+     * rejected with 413 Payload Too Large.
+     */
+    private int maxBufferedBodyBytes = DEFAULT_MAX_BUFFERED_BODY_BYTES;
+
+    /**
+     * Time (ms) allowed for GET /api/users/addresses/{type} to write every address, in place of the BULK bulkhead
+     * timeout. A response cut off by this timeout is truncated, since its headers have already been sent.
+     */
+    private long addressesTimeoutMs = DEFAULT_ADDRESSES_TIMEOUT_MS;
 }
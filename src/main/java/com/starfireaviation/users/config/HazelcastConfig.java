@@ -0,0 +1,164 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.config;
+
+import com.hazelcast.cache.HazelcastCachingProvider;
+import com.hazelcast.config.AttributeConfig;
+import com.hazelcast.config.CacheSimpleConfig;
+import com.hazelcast.config.Config;
+import com.hazelcast.config.EvictionConfig;
+import com.hazelcast.config.EvictionPolicy;
+import com.hazelcast.config.InMemoryFormat;
+import com.hazelcast.config.IndexConfig;
+import com.hazelcast.config.IndexType;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.config.MaxSizePolicy;
+import com.hazelcast.config.NearCacheConfig;
+import com.hazelcast.config.SerializerConfig;
+import com.hazelcast.core.HazelcastInstance;
+import com.starfireaviation.users.idempotency.HazelcastIdempotencyStore;
+import com.starfireaviation.users.model.UserEntity;
+import com.starfireaviation.users.ratelimit.HazelcastRateLimiter;
+import com.starfireaviation.users.session.SessionStore;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.session.MapSession;
+import org.springframework.session.hazelcast.Hazelcast4IndexedSessionRepository;
+import org.springframework.session.hazelcast.Hazelcast4PrincipalNameExtractor;
+import org.springframework.session.hazelcast.HazelcastSessionSerializer;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HazelcastConfig. Spring Boot creates the HazelcastInstance from the Config defined here.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "groundschool", name = "hazelcast-enabled", havingValue = "true")
+public class HazelcastConfig {
+
+    /**
+     * Hazelcast Config.
+     *
+     * @param props ApplicationProperties
+     * @return Config
+     */
+    @Bean
+    public Config hazelcastConfig(final ApplicationProperties props) {
+        final Config config = new Config();
+        config.setClusterName(props.getHazelcastClusterName());
+        if (!props.getHazelcastMembers().isEmpty()) {
+            final JoinConfig join = config.getNetworkConfig().getJoin();
+            join.getMulticastConfig().setEnabled(false);
+            join.getAutoDetectionConfig().setEnabled(false);
+            join.getTcpIpConfig().setEnabled(true).setMembers(props.getHazelcastMembers());
+        }
+        config.getMapConfig(HazelcastRateLimiter.MAP_NAME)
+                .setMaxIdleSeconds((int) TimeUnit.MINUTES.toSeconds(props.getRateLimitMaxIdleMinutes()))
+                .setEvictionConfig(new EvictionConfig()
+                        .setEvictionPolicy(EvictionPolicy.LRU)
+                        .setMaxSizePolicy(MaxSizePolicy.PER_NODE)
+                        .setSize(props.getRateLimitMaxKeys()));
+        config.getMapConfig(HazelcastIdempotencyStore.MAP_NAME)
+                .setEvictionConfig(new EvictionConfig()
+                        .setEvictionPolicy(EvictionPolicy.LRU)
+                        .setMaxSizePolicy(MaxSizePolicy.PER_NODE)
+                        .setSize(props.getIdempotencyMaxKeys()));
+        for (final String region : new String[] {UserEntity.CACHE_REGION, UserEntity.NATURAL_ID_CACHE_REGION}) {
+            config.addCacheConfig(new CacheSimpleConfig()
+                    .setName(region)
+                    .setStatisticsEnabled(true)
+                    .setEvictionConfig(new EvictionConfig()
+                            .setEvictionPolicy(EvictionPolicy.LRU)
+                            .setMaxSizePolicy(MaxSizePolicy.ENTRY_COUNT)
+                            .setSize(props.getSecondLevelCacheMaxEntries())));
+        }
+        if (props.getSessionStore() == SessionStore.HAZELCAST) {
+            configureSessions(config, props);
+        }
+        return config;
+    }
+
+    /**
+     * Configures the HTTP session map: sessions are serialized field by field rather than with Java serialization,
+     * indexed by principal name, and read through a near cache. The near cache holds serialized sessions, since
+     * Spring Session mutates the sessions it reads.
+     *
+     * @param config Config
+     * @param props  ApplicationProperties
+     */
+    private static void configureSessions(final Config config, final ApplicationProperties props) {
+        config.getSerializationConfig().addSerializerConfig(new SerializerConfig()
+                .setImplementation(new HazelcastSessionSerializer())
+                .setTypeClass(MapSession.class));
+        config.getMapConfig(HazelcastSessionConfig.SESSION_MAP_NAME)
+                .addAttributeConfig(new AttributeConfig(
+                        Hazelcast4IndexedSessionRepository.PRINCIPAL_NAME_ATTRIBUTE,
+                        Hazelcast4PrincipalNameExtractor.class.getName()))
+                .addIndexConfig(new IndexConfig(
+                        IndexType.HASH,
+                        Hazelcast4IndexedSessionRepository.PRINCIPAL_NAME_ATTRIBUTE))
+                .setNearCacheConfig(new NearCacheConfig()
+                        .setInMemoryFormat(InMemoryFormat.BINARY)
+                        .setInvalidateOnChange(true)
+                        .setEvictionConfig(new EvictionConfig()
+                                .setEvictionPolicy(EvictionPolicy.LRU)
+                                .setMaxSizePolicy(MaxSizePolicy.ENTRY_COUNT)
+                                .setSize(props.getSessionNearCacheMaxEntries())));
+    }
+
+    /**
+     * JCache CacheManager backing the Hibernate second-level cache, bound to the application's HazelcastInstance.
+     *
+     * @param hazelcastInstance HazelcastInstance
+     * @return CacheManager
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "groundschool", name = "second-level-cache-enabled", matchIfMissing = true)
+    public CacheManager hibernateCacheManager(final HazelcastInstance hazelcastInstance) {
+        final CachingProvider provider = Caching.getCachingProvider(HazelcastCachingProvider.MEMBER_CACHING_PROVIDER);
+        return provider.getCacheManager(
+                provider.getDefaultURI(),
+                provider.getDefaultClassLoader(),
+                HazelcastCachingProvider.propertiesByInstanceItself(hazelcastInstance));
+    }
+
+    /**
+     * Enables the Hibernate second-level, natural ID and query caches.
+     *
+     * @param hibernateCacheManager CacheManager
+     * @return HibernatePropertiesCustomizer
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "groundschool", name = "second-level-cache-enabled", matchIfMissing = true)
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(final CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, Boolean.TRUE);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, Boolean.TRUE);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "create");
+        };
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.config;
+
+import com.hazelcast.core.HazelcastInstance;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.context.properties.source.InvalidConfigurationPropertyValueException;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.session.FlushMode;
+import org.springframework.session.SaveMode;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+import org.springframework.session.hazelcast.Hazelcast4IndexedSessionRepository;
+
+import java.time.Duration;
+
+/**
+ * HazelcastSessionConfig. Keeps HTTP sessions in a Hazelcast map shared by all replicas (requires hazelcastEnabled).
+ * The map itself is configured in HazelcastConfig. Startup fails if Hazelcast is not enabled, rather than silently
+ * falling back to per-replica sessions.
+ */
+@Configuration
+@EnableSpringHttpSession
+@ConditionalOnProperty(prefix = "groundschool", name = "session-store", havingValue = "hazelcast")
+public class HazelcastSessionConfig {
+
+    /**
+     * Session map name.
+     */
+    public static final String SESSION_MAP_NAME = Hazelcast4IndexedSessionRepository.DEFAULT_SESSION_MAP_NAME;
+
+    /**
+     * Session store property.
+     */
+    private static final String SESSION_STORE_PROPERTY = "groundschool.session-store";
+
+    /**
+     * Hazelcast4IndexedSessionRepository. Sessions are written once per request, and only the attributes which were
+     * set.
+     *
+     * @param hazelcast        HazelcastInstance, when available
+     * @param serverProperties ServerProperties
+     * @return Hazelcast4IndexedSessionRepository
+     */
+    @Bean
+    public Hazelcast4IndexedSessionRepository sessionRepository(final ObjectProvider<HazelcastInstance> hazelcast,
+                                                                final ServerProperties serverProperties) {
+        final HazelcastInstance hazelcastInstance = hazelcast.getIfAvailable();
+        if (hazelcastInstance == null) {
+            throw new InvalidConfigurationPropertyValueException(SESSION_STORE_PROPERTY, "hazelcast",
+                    "The hazelcast session store requires groundschool.hazelcast-enabled=true");
+        }
+        final Hazelcast4IndexedSessionRepository repository =
+                new Hazelcast4IndexedSessionRepository(hazelcastInstance);
+        repository.setSessionMapName(SESSION_MAP_NAME);
+        repository.setFlushMode(FlushMode.ON_SAVE);
+        repository.setSaveMode(SaveMode.ON_SET_ATTRIBUTE);
+        final Duration timeout = serverProperties.getServlet().getSession().getTimeout();
+        if (timeout != null) {
+            repository.setDefaultMaxInactiveInterval((int) timeout.getSeconds());
+        }
+        return repository;
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.config;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.starfireaviation.users.client.CircuitBreaker;
+import com.starfireaviation.users.health.CachedHealthIndicator;
+import com.starfireaviation.users.health.DataSourcePoolHealthIndicator;
+import com.starfireaviation.users.health.HazelcastMembershipHealthIndicator;
+import com.starfireaviation.users.health.PwnedPasswordsHealthIndicator;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * HealthConfig. Contributors are named after their bean, less the HealthIndicator suffix, and grouped into the
+ * readiness probe in application.properties.
+ */
+@Configuration
+public class HealthConfig {
+
+    /**
+     * Connection pool health, cached.
+     *
+     * @param dataSource DataSource
+     * @param primary    primary pool, when reads are split
+     * @param replica    replica pool, when reads are split
+     * @return CachedHealthIndicator
+     * @throws SQLException when the DataSource is not backed by a Hikari pool
+     */
+    @Bean
+    public CachedHealthIndicator userDatabaseHealthIndicator(
+            final DataSource dataSource,
+            @Qualifier("primaryDataSource") final ObjectProvider<HikariDataSource> primary,
+            @Qualifier("replicaDataSource") final ObjectProvider<HikariDataSource> replica) throws SQLException {
+        HikariDataSource primaryPool = primary.getIfAvailable();
+        if (primaryPool == null) {
+            primaryPool = dataSource.unwrap(HikariDataSource.class);
+        }
+        return new CachedHealthIndicator(new DataSourcePoolHealthIndicator(primaryPool, replica.getIfAvailable()));
+    }
+
+    /**
+     * Hazelcast cluster membership health, cached.
+     *
+     * @param hazelcastInstance HazelcastInstance, when enabled
+     * @param props             ApplicationProperties
+     * @return CachedHealthIndicator
+     */
+    @Bean
+    public CachedHealthIndicator hazelcastMembershipHealthIndicator(
+            final ObjectProvider<HazelcastInstance> hazelcastInstance,
+            final ApplicationProperties props) {
+        return new CachedHealthIndicator(new HazelcastMembershipHealthIndicator(hazelcastInstance.getIfAvailable(),
+                props.getHazelcastMinMembers()));
+    }
+
+    /**
+     * Pwned Passwords circuit state.
+     *
+     * @param breaker Pwned Passwords CircuitBreaker
+     * @return PwnedPasswordsHealthIndicator
+     */
+    @Bean
+    public PwnedPasswordsHealthIndicator pwnedPasswordsHealthIndicator(
+            @Qualifier("pwnedPasswordsCircuitBreaker") final CircuitBreaker breaker) {
+        return new PwnedPasswordsHealthIndicator(breaker);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.config;
+
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.core.type.MethodMetadata;
+
+import java.util.List;
+
+/**
+ * Marks the beans of non-critical libraries (e.g. springdoc) lazy, so they are created on first use instead of
+ * during startup. A bean matches when its class, or the configuration class declaring its factory method, is in one
+ * of the configured packages.
+ */
+public class LazyPackagesBeanFactoryPostProcessor implements BeanFactoryPostProcessor {
+
+    /**
+     * Package prefixes.
+     */
+    private final List<String> packages;
+
+    /**
+     * LazyPackagesBeanFactoryPostProcessor.
+     *
+     * @param lazyPackages package prefixes, e.g. org.springdoc
+     */
+    public LazyPackagesBeanFactoryPostProcessor(final List<String> lazyPackages) {
+        packages = lazyPackages;
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public void postProcessBeanFactory(final ConfigurableListableBeanFactory beanFactory) {
+        if (packages.isEmpty()) {
+            return;
+        }
+        for (final String beanName : beanFactory.getBeanDefinitionNames()) {
+            final BeanDefinition definition = beanFactory.getBeanDefinition(beanName);
+            if (matches(definition.getBeanClassName()) || matches(declaringClassName(definition))) {
+                definition.setLazyInit(true);
+            }
+        }
+    }
+
+    /**
+     * Gets the class declaring a bean's factory method.
+     *
+     * @param definition BeanDefinition
+     * @return class name, or null when the bean is not created by a factory method
+     */
+    private static String declaringClassName(final BeanDefinition definition) {
+        if (!(definition instanceof AnnotatedBeanDefinition)) {
+            return null;
+        }
+        final MethodMetadata factoryMethod = ((AnnotatedBeanDefinition) definition).getFactoryMethodMetadata();
+        if (factoryMethod == null) {
+            return null;
+        }
+        return factoryMethod.getDeclaringClassName();
+    }
+
+    /**
+     * Determines if a class is in one of the configured packages.
+     *
+     * @param className class name
+     * @return match?
+     */
+    private boolean matches(final String className) {
+        if (className == null) {
+            return false;
+        }
+        for (final String prefix : packages) {
+            if (className.startsWith(prefix + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.config;
+
+import com.starfireaviation.users.model.UserRepository;
+import com.starfireaviation.users.persistence.JdbcWarmer;
+import com.starfireaviation.users.persistence.QueryCountingDataSourcePostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * PersistenceConfig.
+ */
+@Configuration
+public class PersistenceConfig {
+
+    /**
+     * Wraps the DataSource so that SQL statements can be counted per request.
+     *
+     * @return QueryCountingDataSourcePostProcessor
+     */
+    @Bean
+    public static QueryCountingDataSourcePostProcessor queryCountingDataSourcePostProcessor() {
+        return new QueryCountingDataSourcePostProcessor();
+    }
+
+    /**
+     * Warms pooled connections and their prepared statements at startup.
+     *
+     * @param userRepository     UserRepository
+     * @param transactionManager PlatformTransactionManager
+     * @param props              ApplicationProperties
+     * @return JdbcWarmer
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "groundschool", name = "jdbc-warmup-enabled", havingValue = "true")
+    public JdbcWarmer jdbcWarmer(final UserRepository userRepository,
+                                 final PlatformTransactionManager transactionManager,
+                                 final ApplicationProperties props) {
+        return new JdbcWarmer(userRepository, transactionManager, props.getJdbcWarmupConnections());
+    }
+
+}
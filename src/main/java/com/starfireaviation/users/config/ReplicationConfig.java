@@ -0,0 +1,135 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.config;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.starfireaviation.users.persistence.HazelcastReadYourWritesStore;
+import com.starfireaviation.users.persistence.LocalReadYourWritesStore;
+import com.starfireaviation.users.persistence.ReadYourWritesStore;
+import com.starfireaviation.users.persistence.ReadYourWritesTracker;
+import com.starfireaviation.users.persistence.ReplicaLagMonitor;
+import com.starfireaviation.users.persistence.ReplicationRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read/write split. When enabled, read-only transactions are routed to a read replica configured under
+ * groundschool.replica-datasource.*, while spring.datasource.* remains the primary.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "groundschool", name = "read-replica-enabled", havingValue = "true")
+public class ReplicationConfig {
+
+    /**
+     * Number of writers tracked before expired read-your-writes entries are purged.
+     */
+    private static final int READ_YOUR_WRITES_PURGE_THRESHOLD = 10_000;
+
+    /**
+     * Primary DataSource.
+     *
+     * @param properties DataSourceProperties
+     * @return HikariDataSource
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(final DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Replica DataSource.
+     *
+     * @return HikariDataSource
+     */
+    @Bean
+    @ConfigurationProperties("groundschool.replica-datasource")
+    public HikariDataSource replicaDataSource() {
+        return new HikariDataSource();
+    }
+
+    /**
+     * ReadYourWritesTracker. Recent writers are shared through Hazelcast when it is enabled, so that a write served by
+     * one replica keeps the writer's reads on the primary whichever replica serves them.
+     *
+     * @param props                     ApplicationProperties
+     * @param hazelcastInstanceProvider HazelcastInstance, when Hazelcast is enabled
+     * @return ReadYourWritesTracker
+     */
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker(
+            final ApplicationProperties props,
+            final ObjectProvider<HazelcastInstance> hazelcastInstanceProvider) {
+        final HazelcastInstance hazelcastInstance = hazelcastInstanceProvider.getIfAvailable();
+        final ReadYourWritesStore store;
+        if (hazelcastInstance != null) {
+            store = new HazelcastReadYourWritesStore(hazelcastInstance, props.getReadYourWritesWindowMs());
+        } else {
+            store = new LocalReadYourWritesStore(
+                    TimeUnit.MILLISECONDS.toNanos(props.getReadYourWritesWindowMs()),
+                    READ_YOUR_WRITES_PURGE_THRESHOLD);
+        }
+        return new ReadYourWritesTracker(store);
+    }
+
+    /**
+     * ReplicaLagMonitor.
+     *
+     * @param replica Replica DataSource
+     * @param props   ApplicationProperties
+     * @return ReplicaLagMonitor
+     */
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") final DataSource replica,
+                                               final ApplicationProperties props) {
+        return new ReplicaLagMonitor(replica,
+                props.getReplicaLagQuery(),
+                props.getReplicaLagColumn(),
+                props.getReplicaMaxLagSeconds());
+    }
+
+    /**
+     * Routing DataSource used by JPA.
+     *
+     * @param primary Primary DataSource
+     * @param replica Replica DataSource
+     * @param tracker ReadYourWritesTracker
+     * @param monitor ReplicaLagMonitor
+     * @return DataSource
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") final DataSource primary,
+                                 @Qualifier("replicaDataSource") final DataSource replica,
+                                 final ReadYourWritesTracker tracker,
+                                 final ReplicaLagMonitor monitor) {
+        return new LazyConnectionDataSourceProxy(
+                new ReplicationRoutingDataSource(primary, replica, tracker, monitor));
+    }
+
+}
@@ -17,19 +17,40 @@
 package com.starfireaviation.users.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.starfireaviation.users.client.CircuitBreaker;
+import com.starfireaviation.users.client.PwnedPasswordsClient;
+import com.starfireaviation.users.model.UserOutboxRepository;
 import com.starfireaviation.users.model.UserRepository;
+import com.starfireaviation.users.persistence.ReadYourWritesTracker;
+import com.starfireaviation.users.service.UserChangeFeed;
+import com.starfireaviation.users.service.UserFlagWriteBehind;
+import com.starfireaviation.users.service.UserReadCoalescer;
+import com.starfireaviation.users.service.UserSearchIndex;
 import com.starfireaviation.users.service.UserService;
+import com.starfireaviation.users.service.UserStatistics;
+import com.starfireaviation.users.service.UsernameBloomFilter;
 import com.starfireaviation.users.validation.UserValidator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.web.client.RestTemplate;
 
 import java.net.http.HttpClient;
 import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 /**
  * ServiceConfig.
@@ -43,13 +64,107 @@ public class ServiceConfig {
      * UserService.
      *
      * @param uRepository UserRepository
-     * @param template    RestTemplate
+     * @param hibpClient  PwnedPasswordsClient, resolved on first use
      * @return UserService
      */
     @Bean
     public UserService userService(final UserRepository uRepository,
-                                   final RestTemplate template) {
-        return new UserService(uRepository, template);
+                                   @Lazy final PwnedPasswordsClient hibpClient) {
+        return new UserService(uRepository, hibpClient);
+    }
+
+    /**
+     * UserFlagWriteBehind.
+     *
+     * @param uService UserService
+     * @param props    ApplicationProperties
+     * @return UserFlagWriteBehind
+     */
+    @Bean
+    public UserFlagWriteBehind userFlagWriteBehind(final UserService uService, final ApplicationProperties props) {
+        return new UserFlagWriteBehind(uService,
+                props.getFlagWriteBehindBatchSize(),
+                props.getFlagWriteBehindMaxPending());
+    }
+
+    /**
+     * UserReadCoalescer.
+     *
+     * @param uRepository        UserRepository
+     * @param transactionManager PlatformTransactionManager
+     * @param tracker            ReadYourWritesTracker, when reads are routed to a replica
+     * @return UserReadCoalescer
+     */
+    @Bean
+    public UserReadCoalescer userReadCoalescer(final UserRepository uRepository,
+                                               final PlatformTransactionManager transactionManager,
+                                               final ObjectProvider<ReadYourWritesTracker> tracker) {
+        return new UserReadCoalescer(uRepository, transactionManager, tracker.getIfAvailable());
+    }
+
+    /**
+     * UserStatistics.
+     *
+     * @param uRepository UserRepository
+     * @return UserStatistics
+     */
+    @Bean
+    public UserStatistics userStatistics(final UserRepository uRepository) {
+        return new UserStatistics(uRepository);
+    }
+
+    /**
+     * UsernameBloomFilter.
+     *
+     * @param uRepository UserRepository
+     * @param changeFeed  UserChangeFeed
+     * @param props       ApplicationProperties
+     * @return UsernameBloomFilter
+     */
+    @Bean
+    public UsernameBloomFilter usernameBloomFilter(final UserRepository uRepository,
+                                                   final UserChangeFeed changeFeed,
+                                                   final ApplicationProperties props) {
+        return new UsernameBloomFilter(uRepository,
+                changeFeed,
+                props.getUsernameFilterExpectedInsertions(),
+                props.getUsernameFilterFalsePositiveRate(),
+                props.getOutboxRelayBatchSize());
+    }
+
+    /**
+     * UserSearchIndex.
+     *
+     * @param uRepository UserRepository
+     * @param changeFeed  UserChangeFeed
+     * @param props       ApplicationProperties
+     * @return UserSearchIndex
+     */
+    @Bean
+    public UserSearchIndex userSearchIndex(final UserRepository uRepository,
+                                           final UserChangeFeed changeFeed,
+                                           final ApplicationProperties props) {
+        return new UserSearchIndex(uRepository,
+                changeFeed,
+                props.getSearchMaxCandidates(),
+                props.getOutboxRelayBatchSize());
+    }
+
+    /**
+     * UserChangeFeed.
+     *
+     * @param outboxRepository UserOutboxRepository
+     * @param props            ApplicationProperties
+     * @return UserChangeFeed
+     */
+    @Bean
+    public UserChangeFeed userChangeFeed(final UserOutboxRepository outboxRepository,
+                                         final ApplicationProperties props) {
+        return new UserChangeFeed(outboxRepository,
+                props.getOutboxRelayBatchSize(),
+                props.getChangeFeedBufferSize(),
+                Duration.ofMillis(props.getOutboxGapTimeoutMs()),
+                Duration.ofDays(props.getOutboxRetentionDays()));
     }
 
     /**
@@ -73,26 +188,105 @@ public class ServiceConfig {
     }
 
     /**
-     * Creates a rest template with default timeout settings. The bean definition
-     * will be updated to accept timeout
-     * parameters once those are part of the Customer settings.
+     * Pooled, keep-alive connection manager for outbound HTTP calls. Created on first use.
+     *
+     * @param props    ApplicationProperties
+     * @param registry MeterRegistry
+     * @return PoolingHttpClientConnectionManager
+     */
+    @Lazy
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager outboundConnectionManager(final ApplicationProperties props,
+                                                                        final MeterRegistry registry) {
+        final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(props.getHttpMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(props.getHttpMaxConnections());
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "outbound").bindTo(registry);
+        return connectionManager;
+    }
+
+    /**
+     * Outbound HTTP client with connect, read and pool checkout timeouts.
+     *
+     * @param connectionManager PoolingHttpClientConnectionManager
+     * @param props             ApplicationProperties
+     * @return CloseableHttpClient
+     */
+    @Lazy
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient outboundHttpClient(final PoolingHttpClientConnectionManager connectionManager,
+                                                  final ApplicationProperties props) {
+        final long keepAliveMs = props.getHttpKeepAliveMs();
+        return HttpClients
+                .custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig
+                        .custom()
+                        .setConnectTimeout(props.getHttpConnectTimeoutMs())
+                        .setSocketTimeout(props.getHttpReadTimeoutMs())
+                        .setConnectionRequestTimeout(props.getHttpConnectionRequestTimeoutMs())
+                        .build())
+                .setKeepAliveStrategy((response, context) -> keepAliveMs)
+                .evictIdleConnections(keepAliveMs, TimeUnit.MILLISECONDS)
+                .evictExpiredConnections()
+                .disableCookieManagement()
+                .build();
+    }
+
+    /**
+     * Creates a rest template backed by the pooled outbound HTTP client.
      *
      * @param restTemplateBuilder RestTemplateBuilder
-     * @param props   ApplicationProperties
+     * @param outboundHttpClient  CloseableHttpClient
      *
      * @return Rest Template with request, read, and connection timeouts set
      */
+    @Lazy
     @Bean
     public RestTemplate restTemplate(
             final RestTemplateBuilder restTemplateBuilder,
-            final ApplicationProperties props) {
+            final CloseableHttpClient outboundHttpClient) {
         return restTemplateBuilder
-                .setConnectTimeout(Duration.ofMillis(props.getConnectTimeout()))
-                .setReadTimeout(Duration.ofMillis(props.getReadTimeout()))
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(outboundHttpClient))
                 .additionalMessageConverters(new MappingJackson2HttpMessageConverter())
                 .build();
     }
 
+    /**
+     * Pwned Passwords circuit breaker. Not lazy, so that readiness can report its state before the first check.
+     *
+     * @param props ApplicationProperties
+     * @return CircuitBreaker
+     */
+    @Bean
+    public CircuitBreaker pwnedPasswordsCircuitBreaker(final ApplicationProperties props) {
+        return new CircuitBreaker(props.getHibpCircuitFailureThreshold(),
+                TimeUnit.MILLISECONDS.toNanos(props.getHibpCircuitOpenMs()));
+    }
+
+    /**
+     * PwnedPasswordsClient. Created, along with the outbound HTTP client, on the first compromised password check.
+     *
+     * @param template RestTemplate
+     * @param props    ApplicationProperties
+     * @param registry MeterRegistry
+     * @param breaker  Pwned Passwords CircuitBreaker
+     * @return PwnedPasswordsClient
+     */
+    @Lazy
+    @Bean
+    public PwnedPasswordsClient pwnedPasswordsClient(final RestTemplate template,
+                                                     final ApplicationProperties props,
+                                                     final MeterRegistry registry,
+                                                     final CircuitBreaker breaker) {
+        final PwnedPasswordsClient client = new PwnedPasswordsClient(template,
+                props.getHibpBaseUrl(),
+                props.getHibpMaxConcurrentChecks(),
+                breaker);
+        client.bindTo(registry);
+        return client;
+    }
+
     /**
      * UserValidator.
      *
@@ -0,0 +1,130 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.starfireaviation.users.model.UserRepository;
+import com.starfireaviation.users.service.UserService;
+import com.starfireaviation.users.service.UserStatistics;
+import com.starfireaviation.users.warmup.WarmupRunner;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+/**
+ * StartupConfig.
+ */
+@Slf4j
+@Configuration
+public class StartupConfig {
+
+    /**
+     * Defers creation of the beans in groundschool.lazy-bean-packages. Bound directly from the Environment, since bean
+     * factory post-processors run before ApplicationProperties is available.
+     *
+     * @param environment Environment
+     * @return LazyPackagesBeanFactoryPostProcessor
+     */
+    @Bean
+    public static LazyPackagesBeanFactoryPostProcessor lazyPackagesBeanFactoryPostProcessor(
+            final Environment environment) {
+        final List<String> packages = Binder
+                .get(environment)
+                .bind("groundschool.lazy-bean-packages", Bindable.listOf(String.class))
+                .orElse(List.of());
+        return new LazyPackagesBeanFactoryPostProcessor(packages);
+    }
+
+    /**
+     * Exits as soon as the application has started. Used by the image build to record the classes loaded during
+     * startup for the class data sharing archive.
+     *
+     * @return ApplicationListener
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "groundschool", name = "cds-training-run", havingValue = "true")
+    public ApplicationListener<ApplicationReadyEvent> cdsTrainingRunExit() {
+        return event -> {
+            log.info("Class data sharing training run complete; exiting");
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        };
+    }
+
+    /**
+     * Warms the main request paths before the instance reports ready.
+     *
+     * @param userService        UserService
+     * @param userRepository     UserRepository
+     * @param userStatistics     UserStatistics
+     * @param transactionManager PlatformTransactionManager
+     * @param encoder            BCryptPasswordEncoder
+     * @param objectMapper       ObjectMapper
+     * @param context            ApplicationContext, used to find the embedded web server port
+     * @param registry           MeterRegistry
+     * @param props              ApplicationProperties
+     * @return WarmupRunner
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "groundschool", name = "warmup-enabled", havingValue = "true")
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    public WarmupRunner warmupRunner(final UserService userService,
+                                     final UserRepository userRepository,
+                                     final UserStatistics userStatistics,
+                                     final PlatformTransactionManager transactionManager,
+                                     final BCryptPasswordEncoder encoder,
+                                     final ObjectMapper objectMapper,
+                                     final ApplicationContext context,
+                                     final MeterRegistry registry,
+                                     final ApplicationProperties props) {
+        return new WarmupRunner(userService,
+                userRepository,
+                userStatistics,
+                transactionManager,
+                encoder,
+                objectMapper,
+                () -> serverPort(context),
+                registry,
+                props.getWarmupIterations(),
+                props.getWarmupMaxMs());
+    }
+
+    /**
+     * Gets the embedded web server port.
+     *
+     * @param context ApplicationContext
+     * @return port, or 0 when not running in a web server
+     */
+    private static int serverPort(final ApplicationContext context) {
+        if (context instanceof WebServerApplicationContext) {
+            return ((WebServerApplicationContext) context).getWebServer().getPort();
+        }
+        return 0;
+    }
+}
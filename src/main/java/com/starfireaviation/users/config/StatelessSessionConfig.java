@@ -0,0 +1,54 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.config;
+
+import com.starfireaviation.users.session.NoSessionIdResolver;
+import com.starfireaviation.users.session.TransientSessionRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+
+/**
+ * StatelessSessionConfig. Sessions last for a single request and no session cookie is issued, so every request must
+ * carry its own credentials and any replica can serve it.
+ */
+@Configuration
+@EnableSpringHttpSession
+@ConditionalOnProperty(prefix = "groundschool", name = "session-store", havingValue = "stateless")
+public class StatelessSessionConfig {
+
+    /**
+     * TransientSessionRepository.
+     *
+     * @return TransientSessionRepository
+     */
+    @Bean
+    public TransientSessionRepository sessionRepository() {
+        return new TransientSessionRepository();
+    }
+
+    /**
+     * NoSessionIdResolver.
+     *
+     * @return NoSessionIdResolver
+     */
+    @Bean
+    public NoSessionIdResolver httpSessionIdResolver() {
+        return new NoSessionIdResolver();
+    }
+
+}
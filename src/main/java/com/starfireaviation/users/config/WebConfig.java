@@ -0,0 +1,256 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.config;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.starfireaviation.users.bulkhead.Bulkheads;
+import com.starfireaviation.users.concurrency.AdaptiveConcurrencyLimiter;
+import com.starfireaviation.users.concurrency.LoadShedReadiness;
+import com.starfireaviation.users.filter.ConcurrencyLimitFilter;
+import com.starfireaviation.users.filter.IdempotencyFilter;
+import com.starfireaviation.users.filter.RateLimitFilter;
+import com.starfireaviation.users.filter.SqlStatementBudgetFilter;
+import com.starfireaviation.users.idempotency.HazelcastIdempotencyStore;
+import com.starfireaviation.users.idempotency.IdempotencyStore;
+import com.starfireaviation.users.idempotency.LocalIdempotencyStore;
+import com.starfireaviation.users.persistence.QueryCounterTaskDecorator;
+import com.starfireaviation.users.persistence.RequestContextTaskDecorator;
+import com.starfireaviation.users.ratelimit.HazelcastRateLimiter;
+import com.starfireaviation.users.ratelimit.LocalRateLimiter;
+import com.starfireaviation.users.ratelimit.RateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.source.InvalidConfigurationPropertyValueException;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+/**
+ * WebConfig.
+ */
+@Configuration
+public class WebConfig {
+
+    /**
+     * URL pattern covering the API.
+     */
+    private static final String API_URL_PATTERN = "/api/*";
+
+    /**
+     * RateLimitFilter order. Runs first so that rejected requests cost as little as possible.
+     */
+    private static final int RATE_LIMIT_FILTER_ORDER = Ordered.HIGHEST_PRECEDENCE;
+
+    /**
+     * ConcurrencyLimitFilter order. Rate limited requests do not take a concurrency slot.
+     */
+    private static final int CONCURRENCY_LIMIT_FILTER_ORDER = RATE_LIMIT_FILTER_ORDER + 1;
+
+    /**
+     * SqlStatementBudgetFilter order.
+     */
+    private static final int SQL_STATEMENT_BUDGET_FILTER_ORDER = CONCURRENCY_LIMIT_FILTER_ORDER + 1;
+
+    /**
+     * IdempotencyFilter order. Runs after Spring Security, so that recorded responses are only replayed to
+     * authenticated callers and are fingerprinted by principal, and inside the statement budget filter, so replays
+     * are measured too.
+     */
+    private static final int IDEMPOTENCY_FILTER_ORDER = SecurityProperties.DEFAULT_FILTER_ORDER + 1;
+
+    /**
+     * Distributed idempotency property.
+     */
+    private static final String IDEMPOTENCY_DISTRIBUTED_PROPERTY = "groundschool.idempotency-distributed";
+
+    /**
+     * SqlStatementBudgetFilter.
+     *
+     * @param aProps   ApplicationProperties
+     * @param registry MeterRegistry
+     * @return FilterRegistrationBean
+     */
+    @Bean
+    public FilterRegistrationBean<SqlStatementBudgetFilter> sqlStatementBudgetFilter(
+            final ApplicationProperties aProps,
+            final MeterRegistry registry) {
+        final FilterRegistrationBean<SqlStatementBudgetFilter> registration =
+                new FilterRegistrationBean<>(new SqlStatementBudgetFilter(aProps, registry));
+        registration.addUrlPatterns(API_URL_PATTERN);
+        registration.setOrder(SQL_STATEMENT_BUDGET_FILTER_ORDER);
+        return registration;
+    }
+
+    /**
+     * RateLimitFilter.
+     *
+     * @param aProps    ApplicationProperties
+     * @param hazelcast HazelcastInstance, when available
+     * @param registry  MeterRegistry
+     * @return FilterRegistrationBean
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "groundschool", name = "rate-limit-enabled", matchIfMissing = true)
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(
+            final ApplicationProperties aProps,
+            final ObjectProvider<HazelcastInstance> hazelcast,
+            final MeterRegistry registry) {
+        final HazelcastInstance hazelcastInstance = hazelcast.getIfAvailable();
+        final RateLimiter clientLimiter;
+        final RateLimiter emailLimiter;
+        if (aProps.isRateLimitDistributed() && hazelcastInstance != null) {
+            clientLimiter = new HazelcastRateLimiter(hazelcastInstance,
+                    aProps.getRateLimitClientCapacity(), aProps.getRateLimitClientTokensPerMinute());
+            emailLimiter = new HazelcastRateLimiter(hazelcastInstance,
+                    aProps.getRateLimitEmailCapacity(), aProps.getRateLimitEmailTokensPerMinute());
+        } else {
+            clientLimiter = new LocalRateLimiter(aProps.getRateLimitClientCapacity(),
+                    aProps.getRateLimitClientTokensPerMinute(), aProps.getRateLimitMaxKeys());
+            emailLimiter = new LocalRateLimiter(aProps.getRateLimitEmailCapacity(),
+                    aProps.getRateLimitEmailTokensPerMinute(), aProps.getRateLimitMaxKeys());
+        }
+        final FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(
+                new RateLimitFilter(clientLimiter, emailLimiter, aProps.getMaxBufferedBodyBytes(), registry));
+        registration.addUrlPatterns(RateLimitFilter.PASSWORD_RESET_PATH, RateLimitFilter.PASSWORD_COMPROMISED_PATH);
+        registration.setOrder(RATE_LIMIT_FILTER_ORDER);
+        return registration;
+    }
+
+    /**
+     * IdempotencyFilter.
+     *
+     * @param aProps    ApplicationProperties
+     * @param hazelcast HazelcastInstance, when available
+     * @param registry  MeterRegistry
+     * @return FilterRegistrationBean
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "groundschool", name = "idempotency-enabled", matchIfMissing = true)
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(
+            final ApplicationProperties aProps,
+            final ObjectProvider<HazelcastInstance> hazelcast,
+            final MeterRegistry registry) {
+        final HazelcastInstance hazelcastInstance = hazelcast.getIfAvailable();
+        final Duration ttl = Duration.ofMinutes(aProps.getIdempotencyTtlMinutes());
+        final Duration inFlightTtl = Duration.ofSeconds(aProps.getIdempotencyInFlightTtlSeconds());
+        final IdempotencyStore store;
+        if (aProps.isIdempotencyDistributed()) {
+            if (hazelcastInstance == null) {
+                throw new InvalidConfigurationPropertyValueException(IDEMPOTENCY_DISTRIBUTED_PROPERTY, true,
+                        "Distributed idempotency requires groundschool.hazelcast-enabled=true");
+            }
+            store = new HazelcastIdempotencyStore(hazelcastInstance, ttl, inFlightTtl);
+        } else {
+            store = new LocalIdempotencyStore(ttl, inFlightTtl, aProps.getIdempotencyMaxKeys());
+        }
+        final FilterRegistrationBean<IdempotencyFilter> registration = new FilterRegistrationBean<>(
+                new IdempotencyFilter(store, Duration.ofMillis(aProps.getIdempotencyWaitMs()),
+                        aProps.getMaxBufferedBodyBytes(), registry));
+        registration.addUrlPatterns(API_URL_PATTERN);
+        registration.setOrder(IDEMPOTENCY_FILTER_ORDER);
+        return registration;
+    }
+
+    /**
+     * AdaptiveConcurrencyLimiter.
+     *
+     * @param aProps ApplicationProperties
+     * @return AdaptiveConcurrencyLimiter
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "groundschool", name = "concurrency-limit-enabled", matchIfMissing = true)
+    public AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter(final ApplicationProperties aProps) {
+        return new AdaptiveConcurrencyLimiter(
+                aProps.getConcurrencyInitialLimit(),
+                aProps.getConcurrencyMinLimit(),
+                aProps.getConcurrencyMaxLimit(),
+                aProps.getConcurrencyLatencyTolerance(),
+                aProps.getConcurrencySmoothing(),
+                aProps.getConcurrencyWindowMs(),
+                aProps.getConcurrencyMinWindowSamples(),
+                aProps.getConcurrencyNormalShare(),
+                aProps.getConcurrencyBulkShare());
+    }
+
+    /**
+     * ConcurrencyLimitFilter.
+     *
+     * @param aProps   ApplicationProperties
+     * @param limiter  AdaptiveConcurrencyLimiter
+     * @param registry MeterRegistry
+     * @return FilterRegistrationBean
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "groundschool", name = "concurrency-limit-enabled", matchIfMissing = true)
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            final ApplicationProperties aProps,
+            final AdaptiveConcurrencyLimiter limiter,
+            final MeterRegistry registry) {
+        final FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(
+                new ConcurrencyLimitFilter(
+                        limiter,
+                        aProps.getConcurrencyCriticalEndpoints(),
+                        aProps.getConcurrencyBulkEndpoints(),
+                        aProps.getConcurrencyExemptEndpoints(),
+                        registry));
+        registration.addUrlPatterns(API_URL_PATTERN);
+        registration.setOrder(CONCURRENCY_LIMIT_FILTER_ORDER);
+        return registration;
+    }
+
+    /**
+     * LoadShedReadiness.
+     *
+     * @param aProps    ApplicationProperties
+     * @param limiter   AdaptiveConcurrencyLimiter
+     * @param publisher ApplicationEventPublisher
+     * @return LoadShedReadiness
+     */
+    @Bean
+    @ConditionalOnProperty(
+            prefix = "groundschool",
+            name = { "concurrency-limit-enabled", "concurrency-shed-readiness-enabled" },
+            matchIfMissing = true)
+    public LoadShedReadiness loadShedReadiness(final ApplicationProperties aProps,
+                                               final AdaptiveConcurrencyLimiter limiter,
+                                               final ApplicationEventPublisher publisher) {
+        return new LoadShedReadiness(
+                limiter,
+                publisher,
+                aProps.getConcurrencyRefuseAfterMs(),
+                aProps.getConcurrencyRecoverAfterMs());
+    }
+
+    /**
+     * Bulkheads.
+     *
+     * @param aProps ApplicationProperties
+     * @return Bulkheads
+     */
+    @Bean
+    public Bulkheads bulkheads(final ApplicationProperties aProps) {
+        return new Bulkheads(aProps.getBulkheads(),
+                new RequestContextTaskDecorator(new QueryCounterTaskDecorator()));
+    }
+
+}
@@ -13,26 +13,90 @@
  *  See the License for the specific language governing permissions and
  *  limitations under the License.
  */
-
 package com.starfireaviation.users.controller;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.health.HealthComponent;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.LivenessState;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+/**
+ * Plain-text health endpoints, mirroring the actuator liveness and readiness probes.
+ */
 @Slf4j
 @RestController
 @RequestMapping("/health")
 public class HealthController {
 
     /**
-     * Endpoint to test application.
+     * Readiness health group.
+     */
+    private static final String READINESS_GROUP = "readiness";
+
+    /**
+     * Healthy response body.
+     */
+    private static final String OK = "OK";
+
+    /**
+     * ApplicationAvailability.
+     */
+    private final ApplicationAvailability applicationAvailability;
+
+    /**
+     * HealthEndpoint.
+     */
+    private final HealthEndpoint healthEndpoint;
+
+    /**
+     * HealthController.
+     *
+     * @param availability ApplicationAvailability
+     * @param endpoint     HealthEndpoint
+     */
+    public HealthController(final ApplicationAvailability availability, final HealthEndpoint endpoint) {
+        applicationAvailability = availability;
+        healthEndpoint = endpoint;
+    }
+
+    /**
+     * Liveness: the application is running and has not reported itself broken. Deliberately independent of MySQL,
+     * Hazelcast and HIBP, so that a dependency outage does not get every pod restarted.
      *
-     * @return success
+     * @return OK, or 503 when broken
      */
     @GetMapping()
-    public String health() {
-        return "OK";
+    public ResponseEntity<String> health() {
+        if (applicationAvailability.getLivenessState() == LivenessState.BROKEN) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(LivenessState.BROKEN.name());
+        }
+        return ResponseEntity.ok(OK);
+    }
+
+    /**
+     * Readiness: the readiness health group (readiness state and cached dependency checks) is UP.
+     *
+     * @return OK, or 503 with the group status when not ready
+     */
+    @GetMapping("/ready")
+    public ResponseEntity<String> ready() {
+        final HealthComponent readiness = healthEndpoint.healthForPath(READINESS_GROUP);
+        if (readiness == null || !Status.UP.equals(readiness.getStatus())) {
+            final String status;
+            if (readiness == null) {
+                status = Status.UNKNOWN.getCode();
+            } else {
+                status = readiness.getStatus().getCode();
+            }
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(status);
+        }
+        return ResponseEntity.ok(OK);
     }
 }
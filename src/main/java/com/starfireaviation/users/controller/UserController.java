@@ -16,16 +16,28 @@
 
 package com.starfireaviation.users.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.starfireaviation.common.model.User;
+import com.starfireaviation.users.bulkhead.Bulkheads;
+import com.starfireaviation.users.bulkhead.EndpointClass;
 import com.starfireaviation.users.config.ApplicationProperties;
 import com.starfireaviation.common.exception.AccessDeniedException;
-import com.starfireaviation.common.exception.ConflictException;
-import com.starfireaviation.common.exception.InvalidPayloadException;
 import com.starfireaviation.common.exception.ResourceNotFoundException;
 import com.starfireaviation.common.CommonConstants;
 import com.starfireaviation.common.model.NotificationType;
 import com.starfireaviation.common.model.Role;
+import com.starfireaviation.users.model.NotificationAddress;
+import com.starfireaviation.users.model.UserChanges;
+import com.starfireaviation.users.model.UserEntity;
+import com.starfireaviation.users.model.UserFlagUpdate;
+import com.starfireaviation.users.model.UserSearchResults;
+import com.starfireaviation.users.model.UserStats;
+import com.starfireaviation.users.model.UserView;
+import com.starfireaviation.users.service.UserChangeFeed;
+import com.starfireaviation.users.service.UserFlagWriteBehind;
 import com.starfireaviation.users.service.UserService;
+import com.starfireaviation.users.service.UserStatistics;
 import com.starfireaviation.users.validation.UserValidator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.Authentication;
@@ -41,16 +53,26 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.servlet.view.RedirectView;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
+import java.time.Duration;
 import java.util.List;
 import java.util.stream.Collectors;
 
 /**
  * UserController.
+ *
+ * Most handlers run on the bulkhead for their EndpointClass rather than on the Tomcat request thread. Exceptions
+ * thrown there are resolved exactly as if thrown on the request thread.
  */
 @Slf4j
 @CrossOrigin(origins = "*", allowedHeaders = "*")
@@ -58,6 +80,11 @@ import java.util.stream.Collectors;
 @RequestMapping({ "/api/users" })
 public class UserController {
 
+    /**
+     * Newline-delimited JSON media type.
+     */
+    private static final String NDJSON = "application/x-ndjson";
+
     /**
      * UserService.
      */
@@ -78,6 +105,31 @@ public class UserController {
      */
     private final BCryptPasswordEncoder bCryptPasswordEncoder;
 
+    /**
+     * UserChangeFeed.
+     */
+    private final UserChangeFeed userChangeFeed;
+
+    /**
+     * ObjectMapper.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * UserStatistics.
+     */
+    private final UserStatistics userStatistics;
+
+    /**
+     * Bulkheads.
+     */
+    private final Bulkheads bulkheads;
+
+    /**
+     * UserFlagWriteBehind.
+     */
+    private final UserFlagWriteBehind userFlagWriteBehind;
+
     /**
      * UserController.
      *
@@ -85,94 +137,109 @@ public class UserController {
      * @param uValidator UserValidator
      * @param aProps     ApplicationProperties
      * @param encoder    BCryptPasswordEncoder
+     * @param changeFeed UserChangeFeed
+     * @param mapper     ObjectMapper
+     * @param statistics UserStatistics
+     * @param bulkheadPools Bulkheads
+     * @param flagWriteBehind UserFlagWriteBehind
      */
     public UserController(final UserService uService,
                           final UserValidator uValidator,
                           final ApplicationProperties aProps,
-                          final BCryptPasswordEncoder encoder) {
+                          final BCryptPasswordEncoder encoder,
+                          final UserChangeFeed changeFeed,
+                          final ObjectMapper mapper,
+                          final UserStatistics statistics,
+                          final Bulkheads bulkheadPools,
+                          final UserFlagWriteBehind flagWriteBehind) {
         userService = uService;
         userValidator = uValidator;
         applicationProperties = aProps;
         bCryptPasswordEncoder = encoder;
+        userChangeFeed = changeFeed;
+        objectMapper = mapper;
+        userStatistics = statistics;
+        bulkheads = bulkheadPools;
+        userFlagWriteBehind = flagWriteBehind;
     }
 
     /**
      * Creates a user.
      *
+     * Fails with InvalidPayloadException when invalid data is provided, ResourceNotFoundException when no user is
+     * found, or ConflictException when user data conflict with another user.
+     *
      * @param user User
      * @return User
-     * @throws InvalidPayloadException   when invalid data is provided
-     * @throws ResourceNotFoundException when no user is found
-     * @throws ConflictException         when user data conflict with another user
      */
     @PostMapping
-    public User post(@RequestBody final User user) throws InvalidPayloadException, ResourceNotFoundException,
-            ConflictException {
-        userValidator.validate(user);
-        user.setPassword(bCryptPasswordEncoder.encode(user.getPassword()));
-        if (user.getCertificateNumber() != null && user.getCertificateNumber().endsWith("CFI")) {
-            user.setRole(Role.INSTRUCTOR);
-        } else {
-            user.setRole(Role.STUDENT);
-        }
-        return userService.store(user);
+    public WebAsyncTask<User> post(@RequestBody final User user) {
+        return bulkheads.submit(EndpointClass.WRITE, () -> {
+            userValidator.validate(user);
+            user.setPassword(bCryptPasswordEncoder.encode(user.getPassword()));
+            if (user.getCertificateNumber() != null && user.getCertificateNumber().endsWith("CFI")) {
+                user.setRole(Role.INSTRUCTOR);
+            } else {
+                user.setRole(Role.STUDENT);
+            }
+            return userService.store(user);
+        });
     }
 
     /**
      * Updates a user.
      *
+     * Fails with ResourceNotFoundException when no user is found, AccessDeniedException when user doesn't have
+     * permission to perform operation, InvalidPayloadException when invalid data is provided, or ConflictException
+     * when user data conflict with another user.
+     *
      * @param user      User
      * @param principal Principal
      * @return User
-     * @throws ResourceNotFoundException when no user is found
-     * @throws AccessDeniedException     when user doesn't have permission to
-     *                                   perform operation
-     * @throws InvalidPayloadException   when invalid data is provided
-     * @throws ConflictException         when user data conflict with another user
      */
     @PutMapping
-    public User put(@RequestBody final User user, final Principal principal) throws ResourceNotFoundException,
-            AccessDeniedException, InvalidPayloadException, ConflictException {
-        userValidator.validate(user);
-        userValidator.accessAdminInstructorOrSpecificUser(user.getId(), principal);
-        final User loggedInUser = userService.findByUsername(principal.getName());
-        final Role role = loggedInUser.getRole();
-        if (role != Role.ADMIN && role != Role.INSTRUCTOR && loggedInUser.getId() != user.getId()) {
-            throw new AccessDeniedException("Current user is not authorized to update user information");
-        }
-        final User response = userService.store(user);
-        return response;
+    public WebAsyncTask<User> put(@RequestBody final User user, final Principal principal) {
+        return bulkheads.submit(EndpointClass.WRITE, () -> {
+            userValidator.validate(user);
+            // Throws a stackless AccessDeniedException unless the caller is an admin, instructor or the user itself
+            userValidator.accessAdminInstructorOrSpecificUser(user.getId(), principal);
+            final User response = userService.store(user);
+            return response;
+        });
     }
 
     /**
      * Gets a user.
      *
+     * Fails with AccessDeniedException when user doesn't have permission to perform operation, or
+     * ResourceNotFoundException when user is not found.
+     *
      * @param userId    Long
      * @param principal Principal
      * @return User
-     * @throws AccessDeniedException     when user doesn't have permission to
-     *                                   perform operation
-     * @throws ResourceNotFoundException when user is not found
      */
     @GetMapping(path = { "/{userId}" })
-    public User get(@PathVariable("userId") final long userId, final Principal principal) throws AccessDeniedException,
-            ResourceNotFoundException {
-        userValidator.accessAdminInstructorOrSpecificUser(userId, principal);
-        return userService.get(userId);
+    public WebAsyncTask<UserView> get(@PathVariable("userId") final long userId, final Principal principal) {
+        return bulkheads.submit(EndpointClass.AUTH_READ, () -> {
+            userValidator.accessAdminInstructorOrSpecificUser(userId, principal);
+            return userService.get(userId);
+        });
     }
 
     /**
      * Checks password to see if it has been compromised.
      *
      * @param password password to check
-     * @return count number of times password found in HIBP database
+     * @return count number of times password found in HIBP database, or -1 when HIBP could not be reached
      */
     @GetMapping(path = { "/password/compromised" })
-    public int checkIfPasswordIsCompromised(@RequestParam("p") final String password) {
-        if (password == null) {
-            return 0;
-        }
-        return userService.checkIfPasswordIsCompromised(CodeGenerator.sha1Hash(password));
+    public WebAsyncTask<Integer> checkIfPasswordIsCompromised(@RequestParam("p") final String password) {
+        return bulkheads.submit(EndpointClass.EXTERNAL, () -> {
+            if (password == null) {
+                return 0;
+            }
+            return userService.checkIfPasswordIsCompromised(CodeGenerator.sha1Hash(password));
+        });
     }
 
     /**
@@ -182,121 +249,230 @@ public class UserController {
      * @return success
      */
     @GetMapping(path = { "/username/{username}/available" })
-    public boolean checkUsername(@PathVariable("username") final String username) {
-        return userService.findByUsername(username) == null;
+    public WebAsyncTask<Boolean> checkUsername(@PathVariable("username") final String username) {
+        return bulkheads.submit(EndpointClass.AUTH_READ, () -> userService.isUsernameAvailable(username));
     }
 
     /**
      * Get all users.
      *
+     * Fails with ResourceNotFoundException when user is not found, or AccessDeniedException when user doesn't have
+     * permission to perform operation.
+     *
      * @param username Optional username
      * @param username Optional slack
      * @param principal Principal
      * @return list of User IDs
-     * @throws ResourceNotFoundException when user is not found
+     */
+    @GetMapping
+    public WebAsyncTask<List<Long>> list(@RequestParam(value = "username", required = false) final String username,
+                                         @RequestParam(value = "slack", required = false) final String slack,
+                                         final Principal principal) {
+        return bulkheads.submit(EndpointClass.BULK, () -> {
+            userValidator.accessAdminOrInstructor(principal);
+            return userService
+                    .getAll()
+                    .stream()
+                    .filter(u -> username == null || u.getUsername().equalsIgnoreCase(username))
+                    .filter(u -> slack == null || u.getSlack().equalsIgnoreCase(slack))
+                    .map(u -> u.getId())
+                    .collect(Collectors.toList());
+        });
+    }
+
+    /**
+     * Streams the ID and address of every user who has enabled and verified a notification channel, as
+     * newline-delimited JSON. Addresses are read a page at a time outside of any transaction held while writing, and
+     * the request gets its own timeout (groundschool.addresses-timeout-ms) rather than the BULK bulkhead's.
+     *
+     * Fails with IOException when the response cannot be written, ResourceNotFoundException when principal user is
+     * not found, or AccessDeniedException when user doesn't have permission to perform operation.
+     *
+     * @param type      NotificationType
+     * @param role      Optional role
+     * @param principal Principal
+     * @param response  HttpServletResponse
+     * @return nothing; the addresses are written to the response
+     */
+    @GetMapping(path = { "/addresses/{type}" })
+    public WebAsyncTask<Void> addresses(@PathVariable("type") final NotificationType type,
+                                        @RequestParam(value = "role", required = false) final Role role,
+                                        final Principal principal,
+                                        final HttpServletResponse response) {
+        return bulkheads.submit(EndpointClass.BULK, applicationProperties.getAddressesTimeoutMs(), () -> {
+            userValidator.accessAdminOrInstructor(principal);
+            response.setContentType(NDJSON);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            final ObjectWriter writer = objectMapper.writerFor(NotificationAddress.class);
+            final Writer out = response.getWriter();
+            userService.forEachDeliverableAddress(type, role, address -> {
+                try {
+                    out.write(writer.writeValueAsString(address));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+            return null;
+        });
+    }
+
+    /**
+     * Gets user counts by role, notification preference and verification status. Served from memory.
+     *
+     * Fails with ResourceNotFoundException when principal user is not found, or AccessDeniedException when user
+     * doesn't have permission to perform operation.
+     *
+     * @param principal Principal
+     * @return UserStats
+     */
+    @GetMapping(path = { "/stats" })
+    public WebAsyncTask<UserStats> stats(final Principal principal) {
+        return bulkheads.submit(EndpointClass.BULK, () -> {
+            userValidator.accessAdmin(principal);
+            return userStatistics.getStats();
+        });
+    }
+
+    /**
+     * Searches users by prefix or approximate match on username, first name, last name and email address.
+     *
+     * Fails with AccessDeniedException when user doesn't have permission to perform operation.
+     *
+     * @param query     search text
+     * @param page      page number (zero based)
+     * @param size      page size
+     * @param principal Principal
+     * @return UserSearchResults
+     */
+    @GetMapping(path = { "/search" })
+    public WebAsyncTask<UserSearchResults> search(@RequestParam("q") final String query,
+                                                  @RequestParam(value = "page", defaultValue = "0") final int page,
+                                                  @RequestParam(value = "size", defaultValue = "20") final int size,
+                                                  final Principal principal) {
+        return bulkheads.submit(EndpointClass.BULK, () -> {
+            userValidator.accessAdminOrInstructor(principal);
+            return userService.search(query, page, size);
+        });
+    }
+
+    /**
+     * Gets the user changes after a cursor, long-polling until changes are available or the timeout elapses.
+     *
+     * @param after     cursor (the last change ID received, or 0)
+     * @param limit     maximum number of changes
+     * @param timeout   maximum time to wait in milliseconds
+     * @param principal Principal
+     * @return UserChanges
+     * @throws ResourceNotFoundException when principal user is not found
      * @throws AccessDeniedException     when user doesn't have permission to
      *                                   perform operation
      */
-    @GetMapping
-    public List<Long> list(@RequestParam(value = "username", required = false) final String username,
-                           @RequestParam(value = "slack", required = false) final String slack,
-                           final Principal principal) throws ResourceNotFoundException, AccessDeniedException {
-        userValidator.accessAdminOrInstructor(principal);
-        return userService
-                .getAll()
-                .stream()
-                .filter(u -> username == null || u.getUsername().equalsIgnoreCase(username))
-                .filter(u -> slack == null || u.getSlack().equalsIgnoreCase(slack))
-                .map(u -> u.getId())
-                .collect(Collectors.toList());
+    @GetMapping(path = { "/changes" })
+    public DeferredResult<UserChanges> changes(
+            @RequestParam(value = "after", defaultValue = "0") final long after,
+            @RequestParam(value = "limit", defaultValue = "500") final int limit,
+            @RequestParam(value = "timeout", defaultValue = "30000") final long timeout,
+            final Principal principal) throws ResourceNotFoundException, AccessDeniedException {
+        userValidator.accessAdmin(principal);
+        final long wait = Math.max(0, Math.min(timeout, applicationProperties.getChangeFeedMaxWaitMs()));
+        final int max = Math.max(1, Math.min(limit, applicationProperties.getOutboxRelayBatchSize()));
+        return userChangeFeed.poll(after, max, Duration.ofMillis(wait));
     }
 
     /**
-     * Verifies a user's notification settings for a given NotificationType.
+     * Verifies a user's notification settings for a given NotificationType. The flag is written behind, unless it is
+     * already set.
+     *
+     * Fails with ResourceNotFoundException when no user is found.
      *
      * @param userId user ID
      * @param type   NotificationType
      * @return success
-     * @throws ResourceNotFoundException when no user is found
      */
     @GetMapping(path = { "/{userId}/verify/{type}" })
-    public RedirectView verify(@PathVariable("userId") final long userId,
-            @PathVariable("type") final NotificationType type)
-            throws ResourceNotFoundException {
-        final User user = userService.get(userId);
-        if (user != null) {
+    public WebAsyncTask<RedirectView> verify(@PathVariable("userId") final long userId,
+            @PathVariable("type") final NotificationType type) {
+        return bulkheads.submit(EndpointClass.WRITE, () -> {
+            final UserView user = userService.get(userId);
             switch (type) {
                 case EMAIL:
-                    user.setEmailVerified(true);
+                    if (!user.isEmailVerified()) {
+                        userFlagWriteBehind.update(userId, UserFlagUpdate.emailVerified(user.getEmail()));
+                    }
                     break;
                 case SLACK:
-                    user.setSlackVerified(true);
+                    if (!user.isSlackVerified()) {
+                        userFlagWriteBehind.update(userId, UserFlagUpdate.slackVerified(user.getSlack()));
+                    }
                     break;
                 default:
             }
-            userService.store(user);
-        }
-        return new RedirectView(applicationProperties.getUiHost());
+            return new RedirectView(applicationProperties.getUiHost());
+        });
     }
 
     /**
      * Updates a user's password.
      *
+     * Fails with ResourceNotFoundException when no user is found.
+     *
      * @param userId           User ID
      * @param password         new password
      * @param verificationCode to ensure request is not fraudulent
      * @param principal        Principal
      * @return success
-     * @throws ResourceNotFoundException when no user is found
-     *
      */
     @PostMapping(path = { "/{userId}/password/{verificationCode}" })
-    public boolean updatePassword(
+    public WebAsyncTask<Boolean> updatePassword(
             @PathVariable("userId") final long userId,
             @PathVariable("verificationCode") final String verificationCode,
             @RequestBody final String password,
-            final Principal principal) throws ResourceNotFoundException {
-        final User user = userService.get(userId);
-        if (user == null) {
-            final String msg = String.format("No user found for ID [%s]", userId);
-            log.warn(msg);
-            throw new ResourceNotFoundException(msg);
-        }
-        if (userValidator.isAdmin(principal)
-                || userValidator.isAuthenticatedUser(userId, principal)
-                || (verificationCode != null && verificationCode.equals(user.getCode()))) {
-            user.setPassword(bCryptPasswordEncoder.encode(password));
-            user.setCode(null);
-            return userService.store(user) != null;
-        }
-        return false;
+            final Principal principal) {
+        return bulkheads.submit(EndpointClass.WRITE, () -> {
+            final UserEntity user = userService.getForUpdate(userId);
+            if (user == null) {
+                final String msg = String.format("No user found for ID [%s]", userId);
+                log.warn(msg);
+                throw new ResourceNotFoundException(msg);
+            }
+            if (userValidator.isAdmin(principal)
+                    || userValidator.isAuthenticatedUser(userId, principal)
+                    || (verificationCode != null && verificationCode.equals(user.getCode()))) {
+                // store() keeps the stored password, so the change must go through changePassword()
+                user.setCode(null);
+                userService.changePassword(user, password);
+                return true;
+            }
+            return false;
+        });
     }
 
     /**
-     * Start the user password reset process.
+     * Start the user password reset process. The verification code is written behind; it is only sent to the user
+     * once written, since notification follows the outbox row written with it.
      *
      * @param email User's email address
      * @return success
      *
      */
     @PostMapping(path = { "/password/reset" })
-    public boolean passwordReset(@RequestBody final String email) {
-        boolean success = false;
-        try {
-            final User user = userService.findByEmail(email);
-            if (user != null) {
-                user.setCode(CodeGenerator.generateCode(CommonConstants.FOUR));
-                userService.store(user);
-                success = true;
+    public WebAsyncTask<Boolean> passwordReset(@RequestBody final String email) {
+        return bulkheads.submit(EndpointClass.WRITE, () -> {
+            final UserView user = userService.findByEmail(email);
+            if (user == null) {
+                log.warn(
+                        String.format(
+                                "A password reset was attempted for email [%s] but no "
+                                        + "email address was found in the database.",
+                                email));
+                return false;
             }
-        } catch (ResourceNotFoundException rnfe) {
-            log.warn(
-                    String.format(
-                            "A password reset was attempted for email [%s] but no "
-                                    + "email address was found in the database.",
-                            email));
-        }
-        return success;
+            final String code = CodeGenerator.generateCode(CommonConstants.FOUR);
+            userFlagWriteBehind.update(user.getId(), UserFlagUpdate.code(code));
+            return true;
+        });
     }
 
     /**
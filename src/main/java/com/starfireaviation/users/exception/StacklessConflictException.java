@@ -0,0 +1,47 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.exception;
+
+import com.starfireaviation.common.exception.ConflictException;
+
+/**
+ * ConflictException without a stack trace, for username, email, SMS and Slack conflicts.
+ */
+public class StacklessConflictException extends ConflictException {
+
+    /**
+     * Default SerialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * StacklessConflictException.
+     *
+     * @param message message
+     */
+    public StacklessConflictException(final String message) {
+        super(message);
+    }
+
+    /**
+     * {@inheritDoc} Skips stack trace capture.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.filter;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Request wrapper which reads the request body once so that a filter can inspect it, then replays it to the handler.
+ * Bodies larger than the provided limit are rejected rather than buffered.
+ */
+public class CachedBodyHttpServletRequest extends HttpServletRequestWrapper {
+
+    /**
+     * Read buffer size.
+     */
+    private static final int BUFFER_SIZE = 4_096;
+
+    /**
+     * Request body.
+     */
+    private final byte[] body;
+
+    /**
+     * CachedBodyHttpServletRequest.
+     *
+     * @param request  HttpServletRequest
+     * @param maxBytes maximum body size
+     * @throws PayloadTooLargeException when the body is larger than maxBytes
+     * @throws IOException              when the body cannot be read
+     */
+    public CachedBodyHttpServletRequest(final HttpServletRequest request, final int maxBytes) throws IOException {
+        super(request);
+        if (request.getContentLengthLong() > maxBytes) {
+            throw new PayloadTooLargeException(maxBytes);
+        }
+        body = read(request.getInputStream(), maxBytes);
+    }
+
+    /**
+     * Reads a stream, failing as soon as it exceeds a limit (the declared length may be absent or wrong).
+     *
+     * @param input    InputStream
+     * @param maxBytes maximum number of bytes
+     * @return bytes read
+     * @throws IOException when the stream cannot be read or exceeds maxBytes
+     */
+    private static byte[] read(final InputStream input, final int maxBytes) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int read = input.read(buffer);
+        while (read != -1) {
+            if (output.size() + read > maxBytes) {
+                throw new PayloadTooLargeException(maxBytes);
+            }
+            output.write(buffer, 0, read);
+            read = input.read(buffer);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Gets the request body.
+     *
+     * @return body bytes
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Gets the request body as a String, using the request's character encoding (UTF-8 when unspecified).
+     *
+     * @return body
+     */
+    public String getBodyAsString() {
+        return new String(body, charset());
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public ServletInputStream getInputStream() {
+        final ByteArrayInputStream stream = new ByteArrayInputStream(body);
+        return new ServletInputStream() {
+            @Override
+            public boolean isFinished() {
+                return stream.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(final ReadListener readListener) {
+                // The whole body is already in memory, so it is available at once
+                try {
+                    readListener.onDataAvailable();
+                    if (isFinished()) {
+                        readListener.onAllDataRead();
+                    }
+                } catch (IOException e) {
+                    readListener.onError(e);
+                }
+            }
+
+            @Override
+            public int read() {
+                return stream.read();
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public BufferedReader getReader() {
+        return new BufferedReader(new InputStreamReader(getInputStream(), charset()));
+    }
+
+    /**
+     * Determines the request's character set.
+     *
+     * @return Charset
+     */
+    private Charset charset() {
+        final String encoding = getCharacterEncoding();
+        if (encoding == null) {
+            return StandardCharsets.UTF_8;
+        }
+        return Charset.forName(encoding);
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.filter;
+
+import com.starfireaviation.users.concurrency.AdaptiveConcurrencyLimiter;
+import com.starfireaviation.users.concurrency.RequestPriority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Limits the number of API requests in flight to an adaptive concurrency limit and rejects the excess immediately
+ * with 503 Service Unavailable, rather than letting it queue for Tomcat threads and database connections. Critical
+ * endpoints may use the whole limit; bulk endpoints only part of it, so they are shed first.
+ *
+ * Endpoints are given as "METHOD /path/pattern" (Ant-style, e.g. "GET /api/users/{userId:\d+}").
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    /**
+     * Retry-After (seconds) sent with rejections. Limits adapt within about a second.
+     */
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    /**
+     * UrlPathHelper.
+     */
+    private static final UrlPathHelper URL_PATH_HELPER = new UrlPathHelper();
+
+    /**
+     * PathMatcher.
+     */
+    private static final PathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    /**
+     * AdaptiveConcurrencyLimiter.
+     */
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    /**
+     * Critical endpoints.
+     */
+    private final List<String> criticalEndpoints;
+
+    /**
+     * Bulk endpoints.
+     */
+    private final List<String> bulkEndpoints;
+
+    /**
+     * Endpoints which are not limited, e.g. long polls which hold a request open without doing work.
+     */
+    private final List<String> exemptEndpoints;
+
+    /**
+     * Admitted requests counters.
+     */
+    private final Map<RequestPriority, Counter> admitted = new EnumMap<>(RequestPriority.class);
+
+    /**
+     * Rejected requests counters.
+     */
+    private final Map<RequestPriority, Counter> rejected = new EnumMap<>(RequestPriority.class);
+
+    /**
+     * ConcurrencyLimitFilter.
+     *
+     * @param aLimiter AdaptiveConcurrencyLimiter
+     * @param critical critical endpoints
+     * @param bulk     bulk endpoints
+     * @param exempt   endpoints which are not limited
+     * @param registry MeterRegistry
+     */
+    public ConcurrencyLimitFilter(final AdaptiveConcurrencyLimiter aLimiter,
+                                  final List<String> critical,
+                                  final List<String> bulk,
+                                  final List<String> exempt,
+                                  final MeterRegistry registry) {
+        limiter = aLimiter;
+        criticalEndpoints = List.copyOf(critical);
+        bulkEndpoints = List.copyOf(bulk);
+        exemptEndpoints = List.copyOf(exempt);
+        for (final RequestPriority priority : RequestPriority.values()) {
+            admitted.put(priority, counter(registry, priority, "admitted"));
+            rejected.put(priority, counter(registry, priority, "rejected"));
+        }
+        Gauge
+                .builder("users.concurrency.limit", aLimiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .register(registry);
+        Gauge
+                .builder("users.concurrency.in.flight", aLimiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("API requests in flight")
+                .register(registry);
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    protected boolean shouldNotFilter(final HttpServletRequest request) {
+        return matches(request, exemptEndpoints);
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request,
+                                    final HttpServletResponse response,
+                                    final FilterChain filterChain) throws ServletException, IOException {
+        final RequestPriority priority = classify(request);
+        if (!limiter.tryAcquire(priority)) {
+            rejected.get(priority).increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            return;
+        }
+        admitted.get(priority).increment();
+        final long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseListener(start));
+            } else {
+                limiter.release(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Determines the priority of a request.
+     *
+     * @param request HttpServletRequest
+     * @return RequestPriority
+     */
+    private RequestPriority classify(final HttpServletRequest request) {
+        if (matches(request, criticalEndpoints)) {
+            return RequestPriority.CRITICAL;
+        }
+        if (matches(request, bulkEndpoints)) {
+            return RequestPriority.BULK;
+        }
+        return RequestPriority.NORMAL;
+    }
+
+    /**
+     * Determines if the request matches any of the given endpoints.
+     *
+     * @param request   HttpServletRequest
+     * @param endpoints "METHOD /path/pattern" endpoints
+     * @return match?
+     */
+    private static boolean matches(final HttpServletRequest request, final List<String> endpoints) {
+        final String path = URL_PATH_HELPER.getPathWithinApplication(request);
+        for (final String endpoint : endpoints) {
+            final int space = endpoint.indexOf(' ');
+            if (space > 0
+                    && endpoint.substring(0, space).equalsIgnoreCase(request.getMethod())
+                    && PATH_MATCHER.match(endpoint.substring(space + 1).trim(), path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds a requests counter.
+     *
+     * @param registry MeterRegistry
+     * @param priority RequestPriority
+     * @param outcome  admitted or rejected
+     * @return Counter
+     */
+    private static Counter counter(final MeterRegistry registry, final RequestPriority priority, final String outcome) {
+        return Counter
+                .builder("users.concurrency.requests")
+                .description("API requests admitted or rejected by the concurrency limit")
+                .tag("priority", priority.name())
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * Releases the concurrency slot once an asynchronously processed request completes.
+     */
+    private final class ReleaseListener implements AsyncListener {
+
+        /**
+         * Admission time (ns).
+         */
+        private final long start;
+
+        /**
+         * ReleaseListener.
+         *
+         * @param startNanos admission time (ns)
+         */
+        private ReleaseListener(final long startNanos) {
+            start = startNanos;
+        }
+
+        @Override
+        public void onComplete(final AsyncEvent event) {
+            limiter.release(System.nanoTime() - start);
+        }
+
+        @Override
+        public void onTimeout(final AsyncEvent event) {
+            // Completion follows
+        }
+
+        @Override
+        public void onError(final AsyncEvent event) {
+            // Completion follows
+        }
+
+        @Override
+        public void onStartAsync(final AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
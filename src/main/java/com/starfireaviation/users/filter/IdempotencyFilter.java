@@ -0,0 +1,372 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.filter;
+
+import com.starfireaviation.users.idempotency.IdempotencyClaim;
+import com.starfireaviation.users.idempotency.IdempotencyStore;
+import com.starfireaviation.users.idempotency.IdempotentResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Honors the Idempotency-Key header on user creation and password changes. The first request for a key executes and
+ * its response is recorded; repeats replay the recorded response without re-executing, and concurrent repeats wait
+ * for the first to finish. Reusing a key with a different request is rejected with 422. Server errors are not
+ * recorded, so those requests may be retried. Asynchronously processed requests are recorded on their final dispatch.
+ */
+@Slf4j
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    /**
+     * Idempotency key request header.
+     */
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    /**
+     * Response header marking a replayed response.
+     */
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    /**
+     * User creation path.
+     */
+    public static final String USERS_PATH = "/api/users";
+
+    /**
+     * Password change path pattern.
+     */
+    public static final String PASSWORD_CHANGE_PATTERN = "/api/users/*/password/*";
+
+    /**
+     * Maximum idempotency key length.
+     */
+    private static final int MAX_KEY_LENGTH = 255;
+
+    /**
+     * UrlPathHelper.
+     */
+    private static final UrlPathHelper URL_PATH_HELPER = new UrlPathHelper();
+
+    /**
+     * AntPathMatcher.
+     */
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    /**
+     * Request attribute holding the execution of a request which continues asynchronously.
+     */
+    private static final String EXECUTION_ATTRIBUTE = IdempotencyFilter.class.getName() + ".EXECUTION";
+
+    /**
+     * IdempotencyStore.
+     */
+    private final IdempotencyStore store;
+
+    /**
+     * Maximum time a repeated request waits for the first one to finish.
+     */
+    private final Duration wait;
+
+    /**
+     * MeterRegistry.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Maximum request body size.
+     */
+    private final int maxBodyBytes;
+
+    /**
+     * IdempotencyFilter.
+     *
+     * @param aStore   IdempotencyStore
+     * @param aWait    maximum time a repeated request waits for the first one to finish
+     * @param maxBody  maximum request body size, in bytes
+     * @param registry MeterRegistry
+     */
+    public IdempotencyFilter(final IdempotencyStore aStore,
+                             final Duration aWait,
+                             final int maxBody,
+                             final MeterRegistry registry) {
+        store = aStore;
+        wait = aWait;
+        maxBodyBytes = maxBody;
+        meterRegistry = registry;
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    protected boolean shouldNotFilter(final HttpServletRequest request) {
+        if (!HttpMethod.POST.matches(request.getMethod()) || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null) {
+            return true;
+        }
+        final String path = URL_PATH_HELPER.getPathWithinApplication(request);
+        return !USERS_PATH.equals(path) && !PATH_MATCHER.match(PASSWORD_CHANGE_PATTERN, path);
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request,
+                                    final HttpServletResponse response,
+                                    final FilterChain filterChain) throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            final Execution execution = (Execution) request.getAttribute(EXECUTION_ATTRIBUTE);
+            if (execution == null) {
+                filterChain.doFilter(request, response);
+            } else {
+                proceed(execution, request, filterChain);
+            }
+            return;
+        }
+        final String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY_HEADER).trim();
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            outcome("invalid");
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Invalid " + IDEMPOTENCY_KEY_HEADER);
+            return;
+        }
+        final CachedBodyHttpServletRequest cached;
+        try {
+            cached = new CachedBodyHttpServletRequest(request, maxBodyBytes);
+        } catch (PayloadTooLargeException e) {
+            outcome("too_large");
+            response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value(), e.getMessage());
+            return;
+        }
+        final String key = URL_PATH_HELPER.getPathWithinApplication(request) + "|" + idempotencyKey;
+        final String fingerprint = fingerprint(cached);
+        final IdempotencyClaim claim;
+        try {
+            claim = store.claim(key, fingerprint, wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        if (claim.isInProgress()) {
+            outcome("in_progress");
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.CONFLICT.value(), "A request with this " + IDEMPOTENCY_KEY_HEADER
+                    + " is still being processed");
+            return;
+        }
+        if (!claim.isAcquired()) {
+            replay(claim.getResponse(), fingerprint, response);
+            return;
+        }
+        execute(key, fingerprint, claim.getOwner(), cached, response, filterChain);
+    }
+
+    /**
+     * Executes the first request for a key and records its response.
+     *
+     * @param key         idempotency key
+     * @param fingerprint request fingerprint
+     * @param owner       owner token of the claim
+     * @param request     HttpServletRequest
+     * @param response    HttpServletResponse
+     * @param filterChain FilterChain
+     * @throws ServletException when the request fails
+     * @throws IOException      when the request fails
+     */
+    private void execute(final String key,
+                         final String fingerprint,
+                         final String owner,
+                         final HttpServletRequest request,
+                         final HttpServletResponse response,
+                         final FilterChain filterChain) throws ServletException, IOException {
+        proceed(new Execution(key, fingerprint, owner, new ContentCachingResponseWrapper(response)),
+                request, filterChain);
+    }
+
+    /**
+     * Runs the filter chain for an execution and finishes it, unless the request continues asynchronously, in which
+     * case it is finished on a later dispatch.
+     *
+     * @param execution   Execution
+     * @param request     HttpServletRequest
+     * @param filterChain FilterChain
+     * @throws ServletException when the request fails
+     * @throws IOException      when the request fails
+     */
+    private void proceed(final Execution execution,
+                         final HttpServletRequest request,
+                         final FilterChain filterChain) throws ServletException, IOException {
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, execution.getWrapper());
+            completed = true;
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.setAttribute(EXECUTION_ATTRIBUTE, execution);
+            } else {
+                request.removeAttribute(EXECUTION_ATTRIBUTE);
+                finish(execution, completed);
+            }
+        }
+    }
+
+    /**
+     * Records the response of a finished execution, or releases its key, and writes the response.
+     *
+     * @param execution Execution
+     * @param completed whether the filter chain completed normally
+     * @throws IOException when the response cannot be written
+     */
+    private void finish(final Execution execution, final boolean completed) throws IOException {
+        final ContentCachingResponseWrapper wrapper = execution.getWrapper();
+        boolean recorded = false;
+        try {
+            if (completed
+                    && wrapper.getStatus() < HttpStatus.INTERNAL_SERVER_ERROR.value()
+                    && wrapper.getStatus() != HttpStatus.TOO_MANY_REQUESTS.value()) {
+                store.complete(execution.getKey(), execution.getOwner(),
+                        new IdempotentResponse(execution.getFingerprint(), wrapper.getStatus(),
+                                wrapper.getContentType(), wrapper.getContentAsByteArray()));
+                recorded = true;
+            }
+            if (completed) {
+                outcome("executed");
+            }
+        } finally {
+            if (!recorded) {
+                store.release(execution.getKey(), execution.getOwner());
+            }
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    /**
+     * Replays a recorded response.
+     *
+     * @param recorded    IdempotentResponse
+     * @param fingerprint fingerprint of the repeated request
+     * @param response    HttpServletResponse
+     * @throws IOException when the response cannot be written
+     */
+    private void replay(final IdempotentResponse recorded,
+                        final String fingerprint,
+                        final HttpServletResponse response) throws IOException {
+        if (!recorded.getFingerprint().equals(fingerprint)) {
+            outcome("mismatch");
+            response.sendError(HttpStatus.UNPROCESSABLE_ENTITY.value(), IDEMPOTENCY_KEY_HEADER
+                    + " was already used for a different request");
+            return;
+        }
+        outcome("replayed");
+        response.setStatus(recorded.getStatus());
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (recorded.getContentType() != null) {
+            response.setContentType(recorded.getContentType());
+        }
+        response.setContentLength(recorded.getBody().length);
+        response.getOutputStream().write(recorded.getBody());
+    }
+
+    /**
+     * Counts a request outcome.
+     *
+     * @param outcome outcome
+     */
+    private void outcome(final String outcome) {
+        meterRegistry.counter("users.idempotency.requests", "outcome", outcome).increment();
+    }
+
+    /**
+     * Fingerprints a request by its authenticated principal and body, so that a key reused by another caller or with
+     * another payload is not answered with the original response. Relies on running after Spring Security.
+     *
+     * @param request CachedBodyHttpServletRequest
+     * @return fingerprint
+     */
+    private static String fingerprint(final CachedBodyHttpServletRequest request) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.isAuthenticated()) {
+                digest.update(authentication.getClass().getName().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(authentication.getName().getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0);
+            digest.update(request.getBody());
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * The first request for an idempotency key, whose response is being captured.
+     */
+    @Value
+    private static class Execution {
+
+        /**
+         * Idempotency key.
+         */
+        private String key;
+
+        /**
+         * Request fingerprint.
+         */
+        private String fingerprint;
+
+        /**
+         * Owner token of the claim.
+         */
+        private String owner;
+
+        /**
+         * Response capture.
+         */
+        private ContentCachingResponseWrapper wrapper;
+    }
+}
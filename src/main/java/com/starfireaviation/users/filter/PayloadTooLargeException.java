@@ -0,0 +1,39 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.filter;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a request body exceeds the size a filter is prepared to buffer. Filters respond 413 Payload Too Large.
+ */
+public class PayloadTooLargeException extends IOException {
+
+    /**
+     * Default SerialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * PayloadTooLargeException.
+     *
+     * @param maxBytes maximum body size
+     */
+    public PayloadTooLargeException(final long maxBytes) {
+        super(String.format("Request body exceeds %s bytes", maxBytes));
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.filter;
+
+import com.starfireaviation.users.ratelimit.RateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies per-client token bucket rate limits to the unauthenticated endpoints which amplify load onto the database
+ * (password reset) or onto the HIBP API (compromised password check). Password resets are limited both by client IP
+ * address and by target email address.
+ */
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    /**
+     * Password reset path.
+     */
+    public static final String PASSWORD_RESET_PATH = "/api/users/password/reset";
+
+    /**
+     * Compromised password check path.
+     */
+    public static final String PASSWORD_COMPROMISED_PATH = "/api/users/password/compromised";
+
+    /**
+     * UrlPathHelper.
+     */
+    private static final UrlPathHelper URL_PATH_HELPER = new UrlPathHelper();
+
+    /**
+     * Nanoseconds per second.
+     */
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Limiter keyed by client IP address.
+     */
+    private final RateLimiter clientRateLimiter;
+
+    /**
+     * Limiter keyed by target email address.
+     */
+    private final RateLimiter emailRateLimiter;
+
+    /**
+     * Maximum password reset body size.
+     */
+    private final int maxBodyBytes;
+
+    /**
+     * Rejected requests counter.
+     */
+    private final Counter rejected;
+
+    /**
+     * RateLimitFilter.
+     *
+     * @param clientLimiter RateLimiter keyed by client IP address
+     * @param emailLimiter  RateLimiter keyed by target email address
+     * @param maxBody       maximum password reset body size, in bytes
+     * @param registry      MeterRegistry
+     */
+    public RateLimitFilter(final RateLimiter clientLimiter,
+                           final RateLimiter emailLimiter,
+                           final int maxBody,
+                           final MeterRegistry registry) {
+        clientRateLimiter = clientLimiter;
+        emailRateLimiter = emailLimiter;
+        maxBodyBytes = maxBody;
+        rejected = Counter
+                .builder("users.ratelimit.rejected")
+                .description("Requests rejected by the rate limiter")
+                .register(registry);
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    protected boolean shouldNotFilter(final HttpServletRequest request) {
+        return !isPasswordReset(request) && !isPasswordCompromised(request);
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request,
+                                    final HttpServletResponse response,
+                                    final FilterChain filterChain) throws ServletException, IOException {
+        final String path = URL_PATH_HELPER.getPathWithinApplication(request);
+        long waitNanos = clientRateLimiter.tryAcquire(path + "|" + request.getRemoteAddr());
+        HttpServletRequest target = request;
+        if (waitNanos == 0 && isPasswordReset(request)) {
+            final CachedBodyHttpServletRequest cached;
+            try {
+                cached = new CachedBodyHttpServletRequest(request, maxBodyBytes);
+            } catch (PayloadTooLargeException e) {
+                response.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
+                return;
+            }
+            waitNanos = emailRateLimiter.tryAcquire("email|" + normalizeEmail(cached.getBodyAsString()));
+            target = cached;
+        }
+        if (waitNanos > 0) {
+            reject(request, response, waitNanos);
+            return;
+        }
+        filterChain.doFilter(target, response);
+    }
+
+    /**
+     * Rejects a request with 429 Too Many Requests.
+     *
+     * @param request   HttpServletRequest
+     * @param response  HttpServletResponse
+     * @param waitNanos nanoseconds until a permit will be available
+     */
+    private void reject(final HttpServletRequest request, final HttpServletResponse response, final long waitNanos) {
+        rejected.increment();
+        final long retryAfter = Math.max(1, (waitNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND);
+        log.warn(
+                String.format(
+                        "Rate limit exceeded for [%s] from [%s]; retry after %s seconds",
+                        request.getRequestURI(),
+                        request.getRemoteAddr(),
+                        retryAfter));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+    }
+
+    /**
+     * Normalizes the raw password reset body into an email key.
+     *
+     * @param body request body
+     * @return email key
+     */
+    private static String normalizeEmail(final String body) {
+        String email = body.trim();
+        if (email.length() > 1 && email.startsWith("\"") && email.endsWith("\"")) {
+            email = email.substring(1, email.length() - 1);
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Determines if the request is a password reset.
+     *
+     * @param request HttpServletRequest
+     * @return password reset?
+     */
+    private static boolean isPasswordReset(final HttpServletRequest request) {
+        return HttpMethod.POST.matches(request.getMethod())
+                && PASSWORD_RESET_PATH.equals(URL_PATH_HELPER.getPathWithinApplication(request));
+    }
+
+    /**
+     * Determines if the request is a compromised password check.
+     *
+     * @param request HttpServletRequest
+     * @return compromised password check?
+     */
+    private static boolean isPasswordCompromised(final HttpServletRequest request) {
+        return HttpMethod.GET.matches(request.getMethod())
+                && PASSWORD_COMPROMISED_PATH.equals(URL_PATH_HELPER.getPathWithinApplication(request));
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.filter;
+
+import com.starfireaviation.users.config.ApplicationProperties;
+import com.starfireaviation.users.persistence.QueryCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the SQL statements and JDBC time spent on each request, publishes them as metrics, optionally exposes them
+ * as response headers, and logs a warning when an endpoint exceeds its statement budget.
+ */
+@Slf4j
+public class SqlStatementBudgetFilter extends OncePerRequestFilter {
+
+    /**
+     * Statement count response header.
+     */
+    public static final String STATEMENTS_HEADER = "X-SQL-Statements";
+
+    /**
+     * JDBC time response header.
+     */
+    public static final String TIME_HEADER = "X-SQL-Time-Ms";
+
+    /**
+     * Endpoint key used for requests which were not mapped to a handler.
+     */
+    private static final String UNMAPPED = "UNMAPPED";
+
+    /**
+     * ApplicationProperties.
+     */
+    private final ApplicationProperties applicationProperties;
+
+    /**
+     * MeterRegistry.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * SqlStatementBudgetFilter.
+     *
+     * @param aProps   ApplicationProperties
+     * @param registry MeterRegistry
+     */
+    public SqlStatementBudgetFilter(final ApplicationProperties aProps, final MeterRegistry registry) {
+        applicationProperties = aProps;
+        meterRegistry = registry;
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request,
+                                    final HttpServletResponse response,
+                                    final FilterChain filterChain) throws ServletException, IOException {
+        final QueryCounter counter = QueryCounter.start();
+        HttpServletResponse target = response;
+        if (applicationProperties.isSqlDiagnosticsHeaderEnabled()) {
+            target = new DiagnosticsHeaderResponseWrapper(response, counter);
+        }
+        try {
+            filterChain.doFilter(request, target);
+        } finally {
+            QueryCounter.clear();
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new CompletionListener(request, counter));
+            } else {
+                complete(request, counter);
+            }
+        }
+    }
+
+    /**
+     * Records metrics for a completed request and enforces its budget.
+     *
+     * @param request HttpServletRequest
+     * @param counter QueryCounter
+     */
+    private void complete(final HttpServletRequest request, final QueryCounter counter) {
+        final String endpoint = endpoint(request);
+        final long statements = counter.getStatements();
+        final long elapsed = counter.getElapsedMillis();
+        DistributionSummary
+                .builder("users.sql.statements")
+                .description("SQL statements issued per request")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .record(statements);
+        Timer
+                .builder("users.sql.time")
+                .description("JDBC time spent per request")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.MILLISECONDS);
+        final int budget = applicationProperties
+                .getSqlStatementBudgets()
+                .getOrDefault(endpoint, applicationProperties.getSqlStatementBudget());
+        if (statements > budget) {
+            Counter
+                    .builder("users.sql.budget.exceeded")
+                    .description("Requests which exceeded their SQL statement budget")
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry)
+                    .increment();
+            log.warn(
+                    String.format(
+                            "[%s] issued %s SQL statements (%s ms) exceeding its budget of %s",
+                            endpoint,
+                            statements,
+                            elapsed,
+                            budget));
+        }
+    }
+
+    /**
+     * Builds a low-cardinality endpoint key from the request method and the matched handler pattern.
+     *
+     * @param request HttpServletRequest
+     * @return endpoint key
+     */
+    private static String endpoint(final HttpServletRequest request) {
+        final Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern == null) {
+            return UNMAPPED;
+        }
+        return request.getMethod() + " " + pattern;
+    }
+
+    /**
+     * Records metrics once an asynchronously processed request completes.
+     */
+    private final class CompletionListener implements AsyncListener {
+
+        /**
+         * HttpServletRequest.
+         */
+        private final HttpServletRequest request;
+
+        /**
+         * QueryCounter.
+         */
+        private final QueryCounter counter;
+
+        /**
+         * CompletionListener.
+         *
+         * @param req HttpServletRequest
+         * @param qc  QueryCounter
+         */
+        private CompletionListener(final HttpServletRequest req, final QueryCounter qc) {
+            request = req;
+            counter = qc;
+        }
+
+        @Override
+        public void onComplete(final AsyncEvent event) {
+            complete(request, counter);
+        }
+
+        @Override
+        public void onTimeout(final AsyncEvent event) {
+            // Completion follows
+        }
+
+        @Override
+        public void onError(final AsyncEvent event) {
+            // Completion follows
+        }
+
+        @Override
+        public void onStartAsync(final AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    /**
+     * Adds the diagnostics headers just before the response is committed, without buffering the response body.
+     */
+    private static final class DiagnosticsHeaderResponseWrapper extends HttpServletResponseWrapper {
+
+        /**
+         * QueryCounter.
+         */
+        private final QueryCounter counter;
+
+        /**
+         * Headers written flag.
+         */
+        private boolean written;
+
+        /**
+         * DiagnosticsHeaderResponseWrapper.
+         *
+         * @param response HttpServletResponse
+         * @param qc       QueryCounter
+         */
+        private DiagnosticsHeaderResponseWrapper(final HttpServletResponse response, final QueryCounter qc) {
+            super(response);
+            counter = qc;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeaders();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeaders();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeaders();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(final int sc) throws IOException {
+            writeHeaders();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(final int sc, final String msg) throws IOException {
+            writeHeaders();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(final String location) throws IOException {
+            writeHeaders();
+            super.sendRedirect(location);
+        }
+
+        /**
+         * Writes the diagnostics headers once, if the response is not yet committed.
+         */
+        private void writeHeaders() {
+            if (written || isCommitted()) {
+                return;
+            }
+            written = true;
+            setHeader(STATEMENTS_HEADER, Long.toString(counter.getStatements()));
+            setHeader(TIME_HEADER, Long.toString(counter.getElapsedMillis()));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.health;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Serves another indicator's last result. The delegate is run by refresh() on a fixed schedule (and once, on the first
+ * probe), never by the probes themselves, so the load a dependency check puts on MySQL or Hazelcast does not depend on
+ * how often, or by how many clients, the health endpoints are polled.
+ */
+public class CachedHealthIndicator implements HealthIndicator {
+
+    /**
+     * Detail holding the age of the cached result.
+     */
+    private static final String AGE_DETAIL = "ageMs";
+
+    /**
+     * Delegate.
+     */
+    private final HealthIndicator delegate;
+
+    /**
+     * Last result.
+     */
+    private volatile Health cached;
+
+    /**
+     * Time (ms) the last result was produced.
+     */
+    private volatile long cachedAt;
+
+    /**
+     * CachedHealthIndicator.
+     *
+     * @param indicator delegate
+     */
+    public CachedHealthIndicator(final HealthIndicator indicator) {
+        delegate = indicator;
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public Health health() {
+        Health health = cached;
+        if (health == null) {
+            refresh();
+            health = cached;
+        }
+        return Health
+                .status(health.getStatus())
+                .withDetails(health.getDetails())
+                .withDetail(AGE_DETAIL, System.currentTimeMillis() - cachedAt)
+                .build();
+    }
+
+    /**
+     * Runs the delegate.
+     */
+    @Scheduled(fixedDelayString = "${groundschool.health-refresh-interval-ms:5000}")
+    public void refresh() {
+        Health health;
+        try {
+            health = delegate.health();
+        } catch (RuntimeException e) {
+            health = Health.down(e).build();
+        }
+        cachedAt = System.currentTimeMillis();
+        cached = health;
+    }
+}
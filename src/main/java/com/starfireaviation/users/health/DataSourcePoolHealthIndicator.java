@@ -0,0 +1,103 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.health;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Checks that a connection can be borrowed from each pool and is valid, and reports pool usage. Only the primary pool
+ * decides the status: when the replica is unavailable, reads fall back to the primary.
+ */
+public class DataSourcePoolHealthIndicator implements HealthIndicator {
+
+    /**
+     * Time (seconds) allowed for connection validation.
+     */
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    /**
+     * Primary pool.
+     */
+    private final HikariDataSource primary;
+
+    /**
+     * Replica pool, or null.
+     */
+    private final HikariDataSource replica;
+
+    /**
+     * DataSourcePoolHealthIndicator.
+     *
+     * @param primaryPool primary pool
+     * @param replicaPool replica pool, or null when reads are not split
+     */
+    public DataSourcePoolHealthIndicator(final HikariDataSource primaryPool, final HikariDataSource replicaPool) {
+        primary = primaryPool;
+        replica = replicaPool;
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public Health health() {
+        final Map<String, Object> primaryDetails = check(primary);
+        final Health.Builder builder = Health.up();
+        if (primaryDetails.containsKey("error")) {
+            builder.down();
+        }
+        builder.withDetail("primary", primaryDetails);
+        if (replica != null) {
+            builder.withDetail("replica", check(replica));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Validates a pooled connection and reads the pool's usage.
+     *
+     * @param pool HikariDataSource
+     * @return details
+     */
+    private static Map<String, Object> check(final HikariDataSource pool) {
+        final Map<String, Object> details = new LinkedHashMap<>();
+        details.put("pool", pool.getPoolName());
+        try (Connection connection = pool.getConnection()) {
+            if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                details.put("error", "connection is not valid");
+            }
+        } catch (SQLException e) {
+            details.put("error", e.getMessage());
+        }
+        final HikariPoolMXBean mxBean = pool.getHikariPoolMXBean();
+        if (mxBean != null) {
+            details.put("active", mxBean.getActiveConnections());
+            details.put("idle", mxBean.getIdleConnections());
+            details.put("total", mxBean.getTotalConnections());
+            details.put("awaiting", mxBean.getThreadsAwaitingConnection());
+            details.put("max", pool.getMaximumPoolSize());
+        }
+        return details;
+    }
+}
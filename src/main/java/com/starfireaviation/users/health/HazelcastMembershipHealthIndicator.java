@@ -0,0 +1,71 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.health;
+
+import com.hazelcast.core.HazelcastInstance;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+/**
+ * Checks that the Hazelcast member is running and sees at least the expected number of cluster members. Reports UP
+ * when Hazelcast is not enabled.
+ */
+public class HazelcastMembershipHealthIndicator implements HealthIndicator {
+
+    /**
+     * HazelcastInstance, or null when Hazelcast is not enabled.
+     */
+    private final HazelcastInstance hazelcastInstance;
+
+    /**
+     * Minimum number of members, including this one.
+     */
+    private final int minMembers;
+
+    /**
+     * HazelcastMembershipHealthIndicator.
+     *
+     * @param instance HazelcastInstance, or null when Hazelcast is not enabled
+     * @param min      minimum number of members, including this one
+     */
+    public HazelcastMembershipHealthIndicator(final HazelcastInstance instance, final int min) {
+        hazelcastInstance = instance;
+        minMembers = min;
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public Health health() {
+        if (hazelcastInstance == null) {
+            return Health.up().withDetail("enabled", false).build();
+        }
+        if (!hazelcastInstance.getLifecycleService().isRunning()) {
+            return Health.down().withDetail("error", "member is not running").build();
+        }
+        final int members = hazelcastInstance.getCluster().getMembers().size();
+        final Health.Builder builder = Health.up();
+        if (members < minMembers) {
+            builder.down();
+        }
+        return builder
+                .withDetail("cluster", hazelcastInstance.getConfig().getClusterName())
+                .withDetail("members", members)
+                .withDetail("minMembers", minMembers)
+                .build();
+    }
+}
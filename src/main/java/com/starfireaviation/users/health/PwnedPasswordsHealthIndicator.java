@@ -0,0 +1,50 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.health;
+
+import com.starfireaviation.users.client.CircuitBreaker;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+/**
+ * Reports the Pwned Passwords circuit state. Always UP: HIBP is an external dependency shared by every replica, and
+ * compromised password checks already degrade to "unknown" while the circuit is open, so failing readiness would take
+ * every pod out of rotation without helping any of them.
+ */
+public class PwnedPasswordsHealthIndicator implements HealthIndicator {
+
+    /**
+     * CircuitBreaker.
+     */
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * PwnedPasswordsHealthIndicator.
+     *
+     * @param breaker CircuitBreaker
+     */
+    public PwnedPasswordsHealthIndicator(final CircuitBreaker breaker) {
+        circuitBreaker = breaker;
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public Health health() {
+        return Health.up().withDetail("circuit", circuitBreaker.getState()).build();
+    }
+}
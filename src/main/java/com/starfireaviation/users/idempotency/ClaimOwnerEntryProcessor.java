@@ -0,0 +1,83 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.idempotency;
+
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.map.ExtendedMapEntry;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Completes or releases a claimed idempotency key on the Hazelcast member owning it, but only while the key still
+ * holds the pending placeholder of the same claim. A request whose claim was abandoned after the in-flight TTL must
+ * not overwrite or remove the claim of the request which took the key over.
+ */
+public class ClaimOwnerEntryProcessor implements EntryProcessor<String, IdempotentResponse, Boolean> {
+
+    /**
+     * Default SerialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Owner token of the claim.
+     */
+    private final String owner;
+
+    /**
+     * Response to record, or null to release the key.
+     */
+    private final IdempotentResponse response;
+
+    /**
+     * Time (ms) a recorded response is kept.
+     */
+    private final long ttlMillis;
+
+    /**
+     * ClaimOwnerEntryProcessor.
+     *
+     * @param claimOwner owner token of the claim
+     * @param recorded   response to record, or null to release the key
+     * @param ttl        time (ms) a recorded response is kept
+     */
+    public ClaimOwnerEntryProcessor(final String claimOwner, final IdempotentResponse recorded, final long ttl) {
+        owner = claimOwner;
+        response = recorded;
+        ttlMillis = ttl;
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     *
+     * @return whether the key was still claimed by the owner
+     */
+    @Override
+    public Boolean process(final Map.Entry<String, IdempotentResponse> entry) {
+        final IdempotentResponse current = entry.getValue();
+        if (current == null || !current.isPendingFor(owner)) {
+            return Boolean.FALSE;
+        }
+        if (response == null) {
+            entry.setValue(null);
+        } else {
+            ((ExtendedMapEntry<String, IdempotentResponse>) entry).setValue(response, ttlMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+        return Boolean.TRUE;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.idempotency;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IdempotencyStore backed by a Hazelcast map, so that a retry landing on another replica still replays the recorded
+ * response. A claim is a pending placeholder written with putIfAbsent; requests waiting on it poll with backoff. The
+ * placeholder carries the claim's owner token, and completing or releasing the key only succeeds while it is still
+ * in place (see ClaimOwnerEntryProcessor).
+ */
+public class HazelcastIdempotencyStore implements IdempotencyStore {
+
+    /**
+     * Name of the Hazelcast map holding idempotent responses.
+     */
+    public static final String MAP_NAME = "users-idempotency";
+
+    /**
+     * Initial poll interval (ms) while waiting on an in-flight request.
+     */
+    private static final long MIN_POLL_MILLIS = 10L;
+
+    /**
+     * Maximum poll interval (ms) while waiting on an in-flight request.
+     */
+    private static final long MAX_POLL_MILLIS = 200L;
+
+    /**
+     * Responses by key.
+     */
+    private final IMap<String, IdempotentResponse> responses;
+
+    /**
+     * Time (ms) a completed response is kept.
+     */
+    private final long ttlMillis;
+
+    /**
+     * Time (ms) after which an in-flight claim is abandoned, e.g. when its replica dies.
+     */
+    private final long inFlightTtlMillis;
+
+    /**
+     * HazelcastIdempotencyStore.
+     *
+     * @param hazelcastInstance HazelcastInstance
+     * @param ttl               time a completed response is kept
+     * @param inFlightTtl       time after which an in-flight claim is abandoned
+     */
+    public HazelcastIdempotencyStore(final HazelcastInstance hazelcastInstance,
+                                     final Duration ttl,
+                                     final Duration inFlightTtl) {
+        responses = hazelcastInstance.getMap(MAP_NAME);
+        ttlMillis = ttl.toMillis();
+        inFlightTtlMillis = inFlightTtl.toMillis();
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public IdempotencyClaim claim(final String key, final String fingerprint, final Duration wait)
+            throws InterruptedException {
+        final long deadline = System.nanoTime() + wait.toNanos();
+        long poll = MIN_POLL_MILLIS;
+        final String owner = UUID.randomUUID().toString();
+        while (true) {
+            final IdempotentResponse existing = responses.putIfAbsent(key,
+                    IdempotentResponse.pending(fingerprint, owner), inFlightTtlMillis, TimeUnit.MILLISECONDS);
+            if (existing == null) {
+                return IdempotencyClaim.acquired(owner);
+            }
+            if (!existing.isPending()) {
+                return IdempotencyClaim.completed(existing);
+            }
+            final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return IdempotencyClaim.inProgress();
+            }
+            Thread.sleep(Math.min(poll, remaining));
+            poll = Math.min(poll * 2, MAX_POLL_MILLIS);
+        }
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public void complete(final String key, final String owner, final IdempotentResponse response) {
+        responses.executeOnKey(key, new ClaimOwnerEntryProcessor(owner, response, ttlMillis));
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public void release(final String key, final String owner) {
+        responses.executeOnKey(key, new ClaimOwnerEntryProcessor(owner, null, ttlMillis));
+    }
+}
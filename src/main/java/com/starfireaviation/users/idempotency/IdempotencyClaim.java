@@ -0,0 +1,114 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.idempotency;
+
+/**
+ * Result of claiming an idempotency key.
+ */
+public final class IdempotencyClaim {
+
+    /**
+     * Another request for the key is still executing.
+     */
+    private static final IdempotencyClaim IN_PROGRESS = new IdempotencyClaim(null, null);
+
+    /**
+     * Recorded response.
+     */
+    private final IdempotentResponse response;
+
+    /**
+     * Owner token, when the caller owns the key.
+     */
+    private final String owner;
+
+    /**
+     * IdempotencyClaim.
+     *
+     * @param aResponse recorded response
+     * @param anOwner   owner token
+     */
+    private IdempotencyClaim(final IdempotentResponse aResponse, final String anOwner) {
+        response = aResponse;
+        owner = anOwner;
+    }
+
+    /**
+     * The caller owns the key.
+     *
+     * @param owner owner token identifying this claim
+     * @return IdempotencyClaim
+     */
+    public static IdempotencyClaim acquired(final String owner) {
+        return new IdempotencyClaim(null, owner);
+    }
+
+    /**
+     * The first request for the key is still executing.
+     *
+     * @return IdempotencyClaim
+     */
+    public static IdempotencyClaim inProgress() {
+        return IN_PROGRESS;
+    }
+
+    /**
+     * The key has a recorded response.
+     *
+     * @param response IdempotentResponse
+     * @return IdempotencyClaim
+     */
+    public static IdempotencyClaim completed(final IdempotentResponse response) {
+        return new IdempotencyClaim(response, null);
+    }
+
+    /**
+     * Determines if the caller owns the key.
+     *
+     * @return acquired?
+     */
+    public boolean isAcquired() {
+        return owner != null;
+    }
+
+    /**
+     * Determines if another request for the key is still executing.
+     *
+     * @return in progress?
+     */
+    public boolean isInProgress() {
+        return this == IN_PROGRESS;
+    }
+
+    /**
+     * Gets the owner token, which must be passed back when completing or releasing the key.
+     *
+     * @return owner token, or null unless acquired
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * Gets the recorded response.
+     *
+     * @return IdempotentResponse, or null unless completed
+     */
+    public IdempotentResponse getResponse() {
+        return response;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.idempotency;
+
+import java.time.Duration;
+
+/**
+ * Bounded, expiring store of responses keyed by idempotency key.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Claims a key. When another request holds the key, waits up to the given time for its response.
+     *
+     * @param key         idempotency key
+     * @param fingerprint fingerprint of the claiming request
+     * @param wait        maximum time to wait for an in-flight request
+     * @return IdempotencyClaim
+     * @throws InterruptedException when interrupted while waiting
+     */
+    IdempotencyClaim claim(String key, String fingerprint, Duration wait) throws InterruptedException;
+
+    /**
+     * Records the response for a claimed key and wakes any waiting requests. Does nothing once the claim has been
+     * abandoned and the key claimed by another request.
+     *
+     * @param key      idempotency key
+     * @param owner    owner token of the claim (see IdempotencyClaim.getOwner())
+     * @param response IdempotentResponse
+     */
+    void complete(String key, String owner, IdempotentResponse response);
+
+    /**
+     * Releases a claimed key without recording a response, so that a retry executes again. Does nothing once the
+     * claim has been abandoned and the key claimed by another request.
+     *
+     * @param key   idempotency key
+     * @param owner owner token of the claim (see IdempotencyClaim.getOwner())
+     */
+    void release(String key, String owner);
+}
@@ -0,0 +1,157 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.idempotency;
+
+import java.io.Serializable;
+
+/**
+ * Response recorded for an idempotency key, replayed to repeated requests.
+ */
+public class IdempotentResponse implements Serializable {
+
+    /**
+     * Default SerialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Fingerprint of the request which produced the response.
+     */
+    private final String fingerprint;
+
+    /**
+     * HTTP status. Zero while the request is still executing.
+     */
+    private final int status;
+
+    /**
+     * Content type.
+     */
+    private final String contentType;
+
+    /**
+     * Response body.
+     */
+    private final byte[] body;
+
+    /**
+     * Owner token of the claim, while the request is still executing.
+     */
+    private final String owner;
+
+    /**
+     * IdempotentResponse.
+     *
+     * @param aFingerprint request fingerprint
+     * @param aStatus      HTTP status
+     * @param aContentType content type
+     * @param aBody        response body
+     */
+    public IdempotentResponse(final String aFingerprint,
+                              final int aStatus,
+                              final String aContentType,
+                              final byte[] aBody) {
+        this(aFingerprint, aStatus, aContentType, aBody, null);
+    }
+
+    /**
+     * IdempotentResponse.
+     *
+     * @param aFingerprint request fingerprint
+     * @param aStatus      HTTP status
+     * @param aContentType content type
+     * @param aBody        response body
+     * @param anOwner      owner token of the claim
+     */
+    private IdempotentResponse(final String aFingerprint,
+                               final int aStatus,
+                               final String aContentType,
+                               final byte[] aBody,
+                               final String anOwner) {
+        fingerprint = aFingerprint;
+        status = aStatus;
+        contentType = aContentType;
+        body = aBody;
+        owner = anOwner;
+    }
+
+    /**
+     * Placeholder recorded while the first request for a key executes.
+     *
+     * @param fingerprint request fingerprint
+     * @param owner       owner token of the claim
+     * @return IdempotentResponse
+     */
+    public static IdempotentResponse pending(final String fingerprint, final String owner) {
+        return new IdempotentResponse(fingerprint, 0, null, new byte[0], owner);
+    }
+
+    /**
+     * Determines if this is a placeholder for a request which is still executing.
+     *
+     * @return pending?
+     */
+    public boolean isPending() {
+        return status == 0;
+    }
+
+    /**
+     * Determines if this is the placeholder of a claim.
+     *
+     * @param claimOwner owner token of the claim
+     * @return pending and owned by the claim?
+     */
+    public boolean isPendingFor(final String claimOwner) {
+        return isPending() && claimOwner.equals(owner);
+    }
+
+    /**
+     * Gets the request fingerprint.
+     *
+     * @return fingerprint
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Gets the HTTP status.
+     *
+     * @return status
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the content type.
+     *
+     * @return content type, or null
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Gets the response body.
+     *
+     * @return body
+     */
+    public byte[] getBody() {
+        return body;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.idempotency;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process IdempotencyStore. Requests waiting on an in-flight key block on its future, so they are woken as soon as
+ * the first request completes. When the store grows beyond its bound, expired keys are dropped first, then completed
+ * ones. Each claim carries its own owner token, so that a request whose claim was abandoned cannot complete or release
+ * the key once a later request has claimed it.
+ */
+public class LocalIdempotencyStore implements IdempotencyStore {
+
+    /**
+     * Percentage of the bound to shrink to when evicting.
+     */
+    private static final int EVICTION_TARGET_PERCENT = 90;
+
+    /**
+     * Percent denominator.
+     */
+    private static final int PERCENT = 100;
+
+    /**
+     * Entries by key.
+     */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Source of owner tokens.
+     */
+    private final AtomicLong owners = new AtomicLong();
+
+    /**
+     * Time (ns) a completed response is kept.
+     */
+    private final long ttlNanos;
+
+    /**
+     * Time (ns) after which an in-flight claim is abandoned.
+     */
+    private final long inFlightTtlNanos;
+
+    /**
+     * Maximum number of keys.
+     */
+    private final int maxKeys;
+
+    /**
+     * LocalIdempotencyStore.
+     *
+     * @param ttl         time a completed response is kept
+     * @param inFlightTtl time after which an in-flight claim is abandoned
+     * @param max         maximum number of keys
+     */
+    public LocalIdempotencyStore(final Duration ttl, final Duration inFlightTtl, final int max) {
+        ttlNanos = ttl.toNanos();
+        inFlightTtlNanos = inFlightTtl.toNanos();
+        maxKeys = max;
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public IdempotencyClaim claim(final String key, final String fingerprint, final Duration wait)
+            throws InterruptedException {
+        final long deadline = System.nanoTime() + wait.toNanos();
+        while (true) {
+            final long now = System.nanoTime();
+            final Entry claimed = new Entry(Long.toString(owners.incrementAndGet()), now + inFlightTtlNanos);
+            final Entry existing = entries.putIfAbsent(key, claimed);
+            if (existing == null) {
+                if (entries.size() > maxKeys) {
+                    evict(now);
+                }
+                return IdempotencyClaim.acquired(claimed.owner);
+            }
+            if (existing.expiresAt - now < 0) {
+                if (entries.remove(key, existing)) {
+                    // Wake requests still waiting on the abandoned claim
+                    existing.response.complete(null);
+                }
+                continue;
+            }
+            try {
+                final IdempotentResponse response =
+                        existing.response.get(Math.max(0, deadline - now), TimeUnit.NANOSECONDS);
+                if (response != null) {
+                    return IdempotencyClaim.completed(response);
+                }
+                // Released without a response: try to claim it again
+            } catch (TimeoutException e) {
+                return IdempotencyClaim.inProgress();
+            } catch (ExecutionException e) {
+                entries.remove(key, existing);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public void complete(final String key, final String owner, final IdempotentResponse response) {
+        final Entry entry = entries.get(key);
+        if (entry != null && entry.owner.equals(owner)) {
+            entry.expiresAt = System.nanoTime() + ttlNanos;
+            entry.response.complete(response);
+        }
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public void release(final String key, final String owner) {
+        final Entry entry = entries.get(key);
+        if (entry != null && entry.owner.equals(owner) && entries.remove(key, entry)) {
+            entry.response.complete(null);
+        }
+    }
+
+    /**
+     * Gets the number of keys held.
+     *
+     * @return number of keys
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Shrinks the store below its bound: expired keys first, then completed ones. In-flight keys are never evicted.
+     *
+     * @param now current System.nanoTime()
+     */
+    private void evict(final long now) {
+        final int target = (int) ((long) maxKeys * EVICTION_TARGET_PERCENT / PERCENT);
+        entries.entrySet().removeIf(e -> e.getValue().expiresAt - now < 0);
+        final Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > target && iterator.hasNext()) {
+            if (iterator.next().response.isDone()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Store entry.
+     */
+    private static final class Entry {
+
+        /**
+         * Response, completed with null when the claim is released.
+         */
+        private final CompletableFuture<IdempotentResponse> response = new CompletableFuture<>();
+
+        /**
+         * Owner token of the claim.
+         */
+        private final String owner;
+
+        /**
+         * Expiry (System.nanoTime()).
+         */
+        private volatile long expiresAt;
+
+        /**
+         * Entry.
+         *
+         * @param claimOwner owner token of the claim
+         * @param expiry     expiry (System.nanoTime())
+         */
+        private Entry(final String claimOwner, final long expiry) {
+            owner = claimOwner;
+            expiresAt = expiry;
+        }
+    }
+}
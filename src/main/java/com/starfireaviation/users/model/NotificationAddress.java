@@ -0,0 +1,35 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.model;
+
+import lombok.Value;
+
+/**
+ * A user ID and the address at which that user can be reached on one notification channel.
+ */
+@Value
+public class NotificationAddress {
+
+    /**
+     * User ID.
+     */
+    private Long id;
+
+    /**
+     * Email address, SMS number or Slack name.
+     */
+    private String address;
+}
@@ -0,0 +1,62 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * UserChange.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserChange {
+
+    /**
+     * Change ID. Pass the last ID received as the cursor to resume the feed.
+     */
+    private long id;
+
+    /**
+     * User ID.
+     */
+    private Long userId;
+
+    /**
+     * Change type.
+     */
+    private UserChangeType type;
+
+    /**
+     * Time of the change.
+     */
+    private Instant createdAt;
+
+    /**
+     * Creates a UserChange from an outbox row.
+     *
+     * @param event UserChangeEventEntity
+     * @return UserChange
+     */
+    public static UserChange from(final UserChangeEventEntity event) {
+        return new UserChange(event.getId(), event.getUserId(), event.getChangeType(), event.getCreatedAt());
+    }
+}
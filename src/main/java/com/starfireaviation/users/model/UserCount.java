@@ -0,0 +1,63 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.model;
+
+import com.starfireaviation.common.model.NotificationPreference;
+import com.starfireaviation.common.model.Role;
+import lombok.Value;
+
+/**
+ * Number of users sharing a role, notification preference, enabled flag and verification flags. One row of the
+ * statistics reconciliation query.
+ */
+@Value
+public class UserCount {
+
+    /**
+     * Role.
+     */
+    private Role role;
+
+    /**
+     * Notification preference.
+     */
+    private NotificationPreference notificationPreference;
+
+    /**
+     * Enabled.
+     */
+    private boolean enabled;
+
+    /**
+     * Email verified.
+     */
+    private boolean emailVerified;
+
+    /**
+     * SMS verified.
+     */
+    private boolean smsVerified;
+
+    /**
+     * Slack verified.
+     */
+    private boolean slackVerified;
+
+    /**
+     * Number of users.
+     */
+    private long count;
+}
@@ -19,21 +19,52 @@ package com.starfireaviation.users.model;
 import com.starfireaviation.common.model.NotificationPreference;
 import com.starfireaviation.common.model.Role;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
 import java.io.Serializable;
 
 /**
- * User.
+ * User. Cached in the second-level cache, by ID and by username, when a cache region factory is configured. Updates
+ * only write the changed columns, so a flag update does not write back fields it did not change.
  */
 @Data
 @Entity
-@Table(name = "GS_USER")
+@Table(
+        name = "GS_USER",
+        indexes = {
+                @Index(name = "idx_user_email_delivery",
+                        columnList = "email_enabled, email_verified, role, id, email"),
+                @Index(name = "idx_user_sms_delivery",
+                        columnList = "sms_enabled, sms_verified, role, id, sms"),
+                @Index(name = "idx_user_slack_delivery",
+                        columnList = "slack_enabled, slack_verified, role, id, slack")
+        })
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = UserEntity.CACHE_REGION)
+@NaturalIdCache(region = UserEntity.NATURAL_ID_CACHE_REGION)
 public class UserEntity implements Serializable {
 
+    /**
+     * Second-level cache region holding users by ID.
+     */
+    public static final String CACHE_REGION = "users";
+
+    /**
+     * Second-level cache region resolving usernames to user IDs.
+     */
+    public static final String NATURAL_ID_CACHE_REGION = "users-by-username";
+
     /**
      * Default SerialVersionUID.
      */
@@ -127,6 +158,7 @@ public class UserEntity implements Serializable {
     /**
      * Username.
      */
+    @NaturalId(mutable = true)
     @Column(name = "username", nullable = false)
     private String username;
 
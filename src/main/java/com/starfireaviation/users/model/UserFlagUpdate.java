@@ -0,0 +1,148 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.model;
+
+import lombok.Value;
+
+import java.util.Objects;
+
+/**
+ * Low-value flag changes to a single user, queued by UserFlagWriteBehind. Null fields are left unchanged.
+ *
+ * A verified flag carries the address which was verified. It is only set while the user still has that address, so
+ * an address changed before the update is written is not marked verified.
+ */
+@Value
+public class UserFlagUpdate {
+
+    /**
+     * Email verified flag, or null to leave unchanged.
+     */
+    private Boolean emailVerified;
+
+    /**
+     * Email address the email verified flag applies to.
+     */
+    private String verifiedEmail;
+
+    /**
+     * Slack verified flag, or null to leave unchanged.
+     */
+    private Boolean slackVerified;
+
+    /**
+     * Slack name the Slack verified flag applies to.
+     */
+    private String verifiedSlack;
+
+    /**
+     * Verification code, or null to leave unchanged.
+     */
+    private String code;
+
+    /**
+     * Marks a user's email address as verified.
+     *
+     * @param email the email address which was verified
+     * @return UserFlagUpdate
+     */
+    public static UserFlagUpdate emailVerified(final String email) {
+        return new UserFlagUpdate(Boolean.TRUE, email, null, null, null);
+    }
+
+    /**
+     * Marks a user's Slack name as verified.
+     *
+     * @param slack the Slack name which was verified
+     * @return UserFlagUpdate
+     */
+    public static UserFlagUpdate slackVerified(final String slack) {
+        return new UserFlagUpdate(null, null, Boolean.TRUE, slack, null);
+    }
+
+    /**
+     * Sets a user's verification code.
+     *
+     * @param code verification code
+     * @return UserFlagUpdate
+     */
+    public static UserFlagUpdate code(final String code) {
+        return new UserFlagUpdate(null, null, null, null, code);
+    }
+
+    /**
+     * Combines this update with a later one. Fields set by the later update win; a verified flag and its address are
+     * taken together.
+     *
+     * @param later UserFlagUpdate
+     * @return combined UserFlagUpdate
+     */
+    public UserFlagUpdate merge(final UserFlagUpdate later) {
+        Boolean email = emailVerified;
+        String emailAddress = verifiedEmail;
+        if (later.getEmailVerified() != null) {
+            email = later.getEmailVerified();
+            emailAddress = later.getVerifiedEmail();
+        }
+        Boolean slack = slackVerified;
+        String slackName = verifiedSlack;
+        if (later.getSlackVerified() != null) {
+            slack = later.getSlackVerified();
+            slackName = later.getVerifiedSlack();
+        }
+        return new UserFlagUpdate(email, emailAddress, slack, slackName, pick(later.getCode(), code));
+    }
+
+    /**
+     * Applies this update to a user. Verified flags are skipped when the user's address has changed since the update
+     * was queued.
+     *
+     * @param user UserEntity
+     * @return whether anything was applied
+     */
+    public boolean applyTo(final UserEntity user) {
+        boolean applied = false;
+        if (emailVerified != null && Objects.equals(verifiedEmail, user.getEmail())) {
+            user.setEmailVerified(emailVerified);
+            applied = true;
+        }
+        if (slackVerified != null && Objects.equals(verifiedSlack, user.getSlack())) {
+            user.setSlackVerified(slackVerified);
+            applied = true;
+        }
+        if (code != null) {
+            user.setCode(code);
+            applied = true;
+        }
+        return applied;
+    }
+
+    /**
+     * Picks the later of two values.
+     *
+     * @param later   later value, or null
+     * @param earlier earlier value, or null
+     * @param <T>     value type
+     * @return the later value when set, otherwise the earlier value
+     */
+    private static <T> T pick(final T later, final T earlier) {
+        if (later != null) {
+            return later;
+        }
+        return earlier;
+    }
+}
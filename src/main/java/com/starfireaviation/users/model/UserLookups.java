@@ -0,0 +1,42 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.model;
+
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * User lookups which are served from the persistence context and second-level cache before going to the database.
+ */
+@Transactional(readOnly = true)
+public interface UserLookups {
+
+    /**
+     * Gets a user by ID.
+     *
+     * @param id Long
+     * @return User
+     */
+    UserEntity findById(long id);
+
+    /**
+     * Gets a user by Username.
+     *
+     * @param username String
+     * @return User
+     */
+    UserEntity findByUsername(String username);
+}
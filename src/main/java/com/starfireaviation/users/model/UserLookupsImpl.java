@@ -0,0 +1,64 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.model;
+
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * UserLookups implementation.
+ *
+ * Note: ID lookups use EntityManager.find, which consults the second-level cache (unlike a derived query). Username
+ * lookups resolve the natural ID, which is answered by the natural ID cache when it is enabled; without a cache that
+ * resolution would cost an extra statement, so a single query is issued instead.
+ */
+public class UserLookupsImpl implements UserLookups {
+
+    /**
+     * EntityManager.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public UserEntity findById(final long id) {
+        return entityManager.find(UserEntity.class, id);
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public UserEntity findByUsername(final String username) {
+        if (username == null) {
+            return null;
+        }
+        final Session session = entityManager.unwrap(Session.class);
+        if (session.getSessionFactory().getSessionFactoryOptions().isSecondLevelCacheEnabled()) {
+            return session.bySimpleNaturalId(UserEntity.class).load(username);
+        }
+        return session
+                .createQuery("select u from UserEntity u where u.username = :username", UserEntity.class)
+                .setParameter("username", username)
+                .uniqueResult();
+    }
+}
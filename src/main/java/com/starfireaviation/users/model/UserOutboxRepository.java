@@ -0,0 +1,86 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.model;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * UserOutboxRepository.
+ */
+public interface UserOutboxRepository extends Repository<UserChangeEventEntity, Long> {
+
+    /**
+     * Saves an outbox row.
+     *
+     * @param event UserChangeEventEntity
+     * @return UserChangeEventEntity
+     */
+    UserChangeEventEntity save(UserChangeEventEntity event);
+
+    /**
+     * Gets the rows after a cursor, oldest first.
+     *
+     * @param id       cursor
+     * @param pageable batch size
+     * @return list of UserChangeEventEntity
+     */
+    List<UserChangeEventEntity> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    /**
+     * Gets the rows after a cursor up to an end ID, oldest first.
+     *
+     * @param id       cursor
+     * @param end      highest ID to return
+     * @param pageable batch size
+     * @return list of UserChangeEventEntity
+     */
+    List<UserChangeEventEntity> findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(long id, long end, Pageable pageable);
+
+    /**
+     * Gets the highest row ID.
+     *
+     * @return highest row ID, or 0 when the outbox is empty
+     */
+    @Query("select coalesce(max(e.id), 0) from UserChangeEventEntity e")
+    long findMaxId();
+
+    /**
+     * Gets the highest ID of the rows created before a cutoff.
+     *
+     * @param cutoff created before
+     * @return highest row ID, or 0 when there is no such row
+     */
+    @Query("select coalesce(max(e.id), 0) from UserChangeEventEntity e where e.createdAt < :cutoff")
+    long findMaxIdCreatedBefore(@Param("cutoff") Instant cutoff);
+
+    /**
+     * Deletes rows created before a cutoff.
+     *
+     * @param cutoff created before
+     * @return number of rows deleted
+     */
+    @Modifying
+    @Query("delete from UserChangeEventEntity e where e.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -16,20 +16,33 @@
 
 package com.starfireaviation.users.model;
 
+import com.starfireaviation.common.model.Role;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHint;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
 
 /**
- * UserRepository.
+ * UserRepository. Queries run in read-only transactions, so they may be served by a read replica. ID and username
+ * lookups are provided by UserLookups.
  */
-public interface UserRepository extends Repository<UserEntity, Long> {
+@Transactional(readOnly = true)
+public interface UserRepository extends Repository<UserEntity, Long>, UserLookups {
 
     /**
      * Deletes a user.
      *
      * @param user User
      */
+    @Transactional
     void delete(UserEntity user);
 
     /**
@@ -40,20 +53,129 @@ public interface UserRepository extends Repository<UserEntity, Long> {
     List<UserEntity> findAll();
 
     /**
-     * Gets a user by ID.
+     * Gets and write-locks the users with the provided IDs, in a single query on the primary. Rows are locked in ID
+     * order, so concurrent callers cannot deadlock each other.
      *
-     * @param id Long
-     * @return User
+     * @param ids user IDs
+     * @return list of Users
+     */
+    @Transactional
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from UserEntity u where u.id in :ids order by u.id")
+    List<UserEntity> lockByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Gets all users as views, in a single query which does not select passwords or verification codes.
+     *
+     * @return list of UserViews
+     */
+    @Query("select new com.starfireaviation.users.model.UserView(u.id, u.email, u.emailVerified, u.emailEnabled, "
+            + "u.sms, u.smsVerified, u.smsEnabled, u.slack, u.slackVerified, u.slackEnabled, u.username, "
+            + "u.firstName, u.lastName, u.certificateNumber, u.role, u.notificationPreference, u.enabled) "
+            + "from UserEntity u")
+    List<UserView> findAllViews();
+
+    /**
+     * Gets the users with the provided IDs as views. Reads the primary, since the users may have been stored too
+     * recently to have reached a replica.
+     *
+     * @param ids user IDs
+     * @return list of UserViews
+     */
+    @Transactional
+    @Query("select new com.starfireaviation.users.model.UserView(u.id, u.email, u.emailVerified, u.emailEnabled, "
+            + "u.sms, u.smsVerified, u.smsEnabled, u.slack, u.slackVerified, u.slackEnabled, u.username, "
+            + "u.firstName, u.lastName, u.certificateNumber, u.role, u.notificationPreference, u.enabled) "
+            + "from UserEntity u where u.id in :ids")
+    List<UserView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Gets a page of the email addresses of users who have enabled and verified email, optionally limited to a role,
+     * in order of ID after the given ID. Served from the idx_user_email_delivery index when a role is given, and
+     * from the primary key otherwise.
+     *
+     * @param role    Role, or null for all roles
+     * @param afterId ID of the last address of the previous page
+     * @param page    page size (the page number is ignored)
+     * @return NotificationAddresses
+     */
+    @Query("select new com.starfireaviation.users.model.NotificationAddress(u.id, u.email) from UserEntity u "
+            + "where u.emailEnabled = true and u.emailVerified = true and (:role is null or u.role = :role) "
+            + "and u.id > :afterId order by u.id")
+    List<NotificationAddress> findEmailAddresses(@Param("role") Role role,
+                                                 @Param("afterId") long afterId,
+                                                 Pageable page);
+
+    /**
+     * Gets a page of the SMS numbers of users who have enabled and verified SMS, optionally limited to a role, in
+     * order of ID after the given ID. Served from the idx_user_sms_delivery index when a role is given, and from the
+     * primary key otherwise.
+     *
+     * @param role    Role, or null for all roles
+     * @param afterId ID of the last address of the previous page
+     * @param page    page size (the page number is ignored)
+     * @return NotificationAddresses
      */
-    UserEntity findById(long id);
+    @Query("select new com.starfireaviation.users.model.NotificationAddress(u.id, u.sms) from UserEntity u "
+            + "where u.smsEnabled = true and u.smsVerified = true and (:role is null or u.role = :role) "
+            + "and u.id > :afterId order by u.id")
+    List<NotificationAddress> findSmsAddresses(@Param("role") Role role,
+                                               @Param("afterId") long afterId,
+                                               Pageable page);
 
     /**
-     * Gets a user by Username.
+     * Gets a page of the Slack names of users who have enabled and verified Slack, optionally limited to a role, in
+     * order of ID after the given ID. Served from the idx_user_slack_delivery index when a role is given, and from
+     * the primary key otherwise.
+     *
+     * @param role    Role, or null for all roles
+     * @param afterId ID of the last address of the previous page
+     * @param page    page size (the page number is ignored)
+     * @return NotificationAddresses
+     */
+    @Query("select new com.starfireaviation.users.model.NotificationAddress(u.id, u.slack) from UserEntity u "
+            + "where u.slackEnabled = true and u.slackVerified = true and (:role is null or u.role = :role) "
+            + "and u.id > :afterId order by u.id")
+    List<NotificationAddress> findSlackAddresses(@Param("role") Role role,
+                                                 @Param("afterId") long afterId,
+                                                 Pageable page);
+
+    /**
+     * Counts users grouped by every dimension reported in UserStats, in a single query.
+     *
+     * @return list of UserCounts
+     */
+    @Query("select new com.starfireaviation.users.model.UserCount(u.role, u.notificationPreference, u.enabled, "
+            + "u.emailVerified, u.smsVerified, u.slackVerified, count(u)) from UserEntity u "
+            + "group by u.role, u.notificationPreference, u.enabled, u.emailVerified, u.smsVerified, u.slackVerified")
+    List<UserCount> countUsers();
+
+    /**
+     * Determines if a user exists with the provided Username.
      *
      * @param username String
-     * @return User
+     * @return user exists?
+     */
+    boolean existsByUsername(String username);
+
+    /**
+     * Gets all usernames.
+     *
+     * @return list of usernames
+     */
+    @Query("select u.username from UserEntity u")
+    List<String> findAllUsernames();
+
+    /**
+     * Gets the usernames of the users with the provided IDs. Reads the primary, since the users may have been stored
+     * too recently to have reached a replica.
+     *
+     * @param ids user IDs
+     * @return list of usernames
      */
-    UserEntity findByUsername(String username);
+    @Transactional
+    @Query("select u.username from UserEntity u where u.id in :ids")
+    List<String> findUsernamesByIdIn(@Param("ids") Collection<Long> ids);
 
     /**
      * Gets a user by SMS Number.
@@ -61,6 +183,7 @@ public interface UserRepository extends Repository<UserEntity, Long> {
      * @param sms String
      * @return User
      */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
     UserEntity findBySms(String sms);
 
     /**
@@ -69,6 +192,7 @@ public interface UserRepository extends Repository<UserEntity, Long> {
      * @param slack String
      * @return User
      */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
     UserEntity findBySlack(String slack);
 
     /**
@@ -77,6 +201,7 @@ public interface UserRepository extends Repository<UserEntity, Long> {
      * @param email String
      * @return User
      */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
     UserEntity findByEmail(String email);
 
     /**
@@ -85,5 +210,6 @@ public interface UserRepository extends Repository<UserEntity, Long> {
      * @param user User
      * @return User
      */
+    @Transactional
     UserEntity save(UserEntity user);
 }
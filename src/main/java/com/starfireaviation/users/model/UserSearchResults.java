@@ -0,0 +1,52 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * UserSearchResults.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSearchResults {
+
+    /**
+     * Page number (zero based).
+     */
+    private int page;
+
+    /**
+     * Page size.
+     */
+    private int size;
+
+    /**
+     * Total number of matching users.
+     */
+    private int total;
+
+    /**
+     * Matching users for the requested page, best match first.
+     */
+    private List<UserSearchResult> results;
+}
@@ -0,0 +1,64 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.model;
+
+import com.starfireaviation.common.model.NotificationPreference;
+import com.starfireaviation.common.model.Role;
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * User counts for admin dashboards.
+ */
+@Value
+public class UserStats {
+
+    /**
+     * Total users.
+     */
+    private long total;
+
+    /**
+     * Enabled users.
+     */
+    private long enabled;
+
+    /**
+     * Users with a verified email address.
+     */
+    private long emailVerified;
+
+    /**
+     * Users with a verified SMS number.
+     */
+    private long smsVerified;
+
+    /**
+     * Users with a verified Slack name.
+     */
+    private long slackVerified;
+
+    /**
+     * Users by role.
+     */
+    private Map<Role, Long> byRole;
+
+    /**
+     * Users by notification preference.
+     */
+    private Map<NotificationPreference, Long> byNotificationPreference;
+}
@@ -0,0 +1,150 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.model;
+
+import com.starfireaviation.common.model.NotificationPreference;
+import com.starfireaviation.common.model.Role;
+import lombok.Value;
+
+import java.io.Serializable;
+
+/**
+ * Immutable, read-only view of a user. Never carries the password or verification code.
+ */
+@Value
+public class UserView implements Serializable {
+
+    /**
+     * Default SerialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * User ID.
+     */
+    private Long id;
+
+    /**
+     * Email.
+     */
+    private String email;
+
+    /**
+     * Email verified.
+     */
+    private boolean emailVerified;
+
+    /**
+     * Email enabled.
+     */
+    private boolean emailEnabled;
+
+    /**
+     * SMS.
+     */
+    private String sms;
+
+    /**
+     * SMS verified.
+     */
+    private boolean smsVerified;
+
+    /**
+     * SMS enabled.
+     */
+    private boolean smsEnabled;
+
+    /**
+     * Slack.
+     */
+    private String slack;
+
+    /**
+     * Slack verified.
+     */
+    private boolean slackVerified;
+
+    /**
+     * Slack enabled.
+     */
+    private boolean slackEnabled;
+
+    /**
+     * Username.
+     */
+    private String username;
+
+    /**
+     * First name.
+     */
+    private String firstName;
+
+    /**
+     * Last name.
+     */
+    private String lastName;
+
+    /**
+     * Certificate Number.
+     */
+    private String certificateNumber;
+
+    /**
+     * Role.
+     */
+    private Role role;
+
+    /**
+     * NotificationPreference.
+     */
+    private NotificationPreference notificationPreference;
+
+    /**
+     * Enabled.
+     */
+    private boolean enabled;
+
+    /**
+     * Creates a view of a user.
+     *
+     * @param user UserEntity
+     * @return UserView, or null when user is null
+     */
+    public static UserView from(final UserEntity user) {
+        if (user == null) {
+            return null;
+        }
+        return new UserView(
+                user.getId(),
+                user.getEmail(),
+                user.isEmailVerified(),
+                user.isEmailEnabled(),
+                user.getSms(),
+                user.isSmsVerified(),
+                user.isSmsEnabled(),
+                user.getSlack(),
+                user.isSlackVerified(),
+                user.isSlackEnabled(),
+                user.getUsername(),
+                user.getFirstName(),
+                user.getLastName(),
+                user.getCertificateNumber(),
+                user.getRole(),
+                user.getNotificationPreference(),
+                user.isEnabled());
+    }
+}
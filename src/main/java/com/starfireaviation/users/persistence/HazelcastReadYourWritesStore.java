@@ -0,0 +1,70 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.persistence;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReadYourWritesStore whose entries live in a Hazelcast map, so that a write served by one replica keeps the
+ * writer's reads on the primary whichever replica serves them. Entries expire through their time-to-live.
+ */
+public class HazelcastReadYourWritesStore implements ReadYourWritesStore {
+
+    /**
+     * Name of the Hazelcast map holding recent writers.
+     */
+    public static final String MAP_NAME = "users-recent-writers";
+
+    /**
+     * Recent writers.
+     */
+    private final IMap<String, Boolean> recentWriters;
+
+    /**
+     * Read-your-writes window in milliseconds.
+     */
+    private final long windowMillis;
+
+    /**
+     * HazelcastReadYourWritesStore.
+     *
+     * @param hazelcastInstance HazelcastInstance
+     * @param window            read-your-writes window in milliseconds
+     */
+    public HazelcastReadYourWritesStore(final HazelcastInstance hazelcastInstance, final long window) {
+        recentWriters = hazelcastInstance.getMap(MAP_NAME);
+        windowMillis = window;
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public void record(final String writer) {
+        recentWriters.set(writer, Boolean.TRUE, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public boolean contains(final String writer) {
+        return recentWriters.containsKey(writer);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.persistence;
+
+import com.starfireaviation.users.model.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Opens pooled connections and issues the hot user lookups on each of them at startup, so that the first requests do
+ * not pay for connection establishment or for preparing (and caching) their statements.
+ *
+ * Note: each warming transaction holds its connection until every other one has issued its lookups, which forces the
+ * pool to hand out distinct connections.
+ */
+@Slf4j
+public class JdbcWarmer implements ApplicationRunner, Ordered {
+
+    /**
+     * Runner order. Connections are warmed before any other warm-up work.
+     */
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE;
+
+    /**
+     * Maximum time (seconds) a warming transaction waits for the others.
+     */
+    private static final long BARRIER_TIMEOUT_SECONDS = 10L;
+
+    /**
+     * ID which never matches a user.
+     */
+    private static final long UNKNOWN_ID = -1L;
+
+    /**
+     * Value which never matches a user.
+     */
+    private static final String UNKNOWN = "";
+
+    /**
+     * UserRepository.
+     */
+    private final UserRepository userRepository;
+
+    /**
+     * TransactionTemplate.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Number of connections to warm.
+     */
+    private final int connections;
+
+    /**
+     * JdbcWarmer.
+     *
+     * @param repository         UserRepository
+     * @param transactionManager PlatformTransactionManager
+     * @param count              number of connections to warm
+     */
+    public JdbcWarmer(final UserRepository repository,
+                      final PlatformTransactionManager transactionManager,
+                      final int count) {
+        userRepository = repository;
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        connections = count;
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public void run(final ApplicationArguments args) {
+        warm();
+    }
+
+    /**
+     * Warms the configured number of connections.
+     *
+     * @return number of connections warmed
+     */
+    public int warm() {
+        if (connections <= 0) {
+            return 0;
+        }
+        final long start = System.nanoTime();
+        final CyclicBarrier barrier = new CyclicBarrier(connections);
+        final ExecutorService executor = Executors.newFixedThreadPool(connections);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            futures.add(executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                lookups();
+                await(barrier);
+            })));
+        }
+        int warmed = 0;
+        try {
+            for (final Future<?> future : futures) {
+                future.get();
+                warmed++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn(String.format("JDBC warm-up incomplete: %s", e.getCause().getMessage()));
+        } finally {
+            executor.shutdownNow();
+        }
+        log.info(
+                String.format(
+                        "Warmed %s of %s JDBC connections in %s ms",
+                        warmed,
+                        connections,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        return warmed;
+    }
+
+    /**
+     * Issues the lookups served on the hot request paths.
+     */
+    private void lookups() {
+        userRepository.findById(UNKNOWN_ID);
+        userRepository.findByUsername(UNKNOWN);
+        userRepository.existsByUsername(UNKNOWN);
+        userRepository.findByEmail(UNKNOWN);
+        userRepository.findBySms(UNKNOWN);
+        userRepository.findBySlack(UNKNOWN);
+    }
+
+    /**
+     * Waits for the other warming transactions.
+     *
+     * @param barrier CyclicBarrier
+     */
+    private static void await(final CyclicBarrier barrier) {
+        try {
+            barrier.await(BARRIER_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while warming connections", e);
+        } catch (BrokenBarrierException | TimeoutException e) {
+            throw new IllegalStateException("Fewer connections available than configured for warm-up", e);
+        }
+    }
+}
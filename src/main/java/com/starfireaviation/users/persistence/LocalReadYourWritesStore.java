@@ -0,0 +1,73 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.persistence;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ReadYourWritesStore held in this process. Only suitable for a single replica, since a write seen by one replica
+ * does not keep reads served by another on the primary.
+ */
+public class LocalReadYourWritesStore implements ReadYourWritesStore {
+
+    /**
+     * Writer key to the time (System.nanoTime()) until which its reads must use the primary.
+     */
+    private final Map<String, Long> recentWriters = new ConcurrentHashMap<>();
+
+    /**
+     * Read-your-writes window in nanoseconds.
+     */
+    private final long windowNanos;
+
+    /**
+     * Number of writers tracked before expired entries are purged.
+     */
+    private final int purgeThreshold;
+
+    /**
+     * LocalReadYourWritesStore.
+     *
+     * @param window    read-your-writes window in nanoseconds
+     * @param threshold number of writers tracked before expired entries are purged
+     */
+    public LocalReadYourWritesStore(final long window, final int threshold) {
+        windowNanos = window;
+        purgeThreshold = threshold;
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public void record(final String writer) {
+        final long now = System.nanoTime();
+        recentWriters.put(writer, now + windowNanos);
+        if (recentWriters.size() > purgeThreshold) {
+            recentWriters.values().removeIf(until -> until - now < 0);
+        }
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public boolean contains(final String writer) {
+        final Long until = recentWriters.get(writer);
+        return until != null && until - System.nanoTime() > 0;
+    }
+}
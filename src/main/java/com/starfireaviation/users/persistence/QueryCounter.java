@@ -0,0 +1,109 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.persistence;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the JDBC statements (and time spent executing them) issued on behalf of a single unit of work, typically an
+ * HTTP request.
+ */
+public class QueryCounter {
+
+    /**
+     * Counter bound to the current thread.
+     */
+    private static final ThreadLocal<QueryCounter> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Number of statements executed.
+     */
+    private final LongAdder statements = new LongAdder();
+
+    /**
+     * Time spent executing statements, in milliseconds.
+     */
+    private final LongAdder elapsedMillis = new LongAdder();
+
+    /**
+     * Creates a new counter and binds it to the current thread.
+     *
+     * @return QueryCounter
+     */
+    public static QueryCounter start() {
+        final QueryCounter counter = new QueryCounter();
+        CURRENT.set(counter);
+        return counter;
+    }
+
+    /**
+     * Binds an existing counter to the current thread, e.g. when work continues on another thread.
+     *
+     * @param counter QueryCounter
+     */
+    public static void bind(final QueryCounter counter) {
+        if (counter == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(counter);
+        }
+    }
+
+    /**
+     * Gets the counter bound to the current thread.
+     *
+     * @return QueryCounter, or null when nothing is being counted
+     */
+    public static QueryCounter current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Unbinds the counter from the current thread.
+     */
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Records an executed statement.
+     *
+     * @param millis time spent executing the statement
+     */
+    public void record(final long millis) {
+        statements.increment();
+        elapsedMillis.add(millis);
+    }
+
+    /**
+     * Gets the number of statements executed.
+     *
+     * @return statement count
+     */
+    public long getStatements() {
+        return statements.sum();
+    }
+
+    /**
+     * Gets the time spent executing statements.
+     *
+     * @return milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis.sum();
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.persistence;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Carries the submitting thread's QueryCounter over to the thread which runs a task, so that statements issued by
+ * asynchronously processed requests still count against their budget.
+ */
+public class QueryCounterTaskDecorator implements TaskDecorator {
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public Runnable decorate(final Runnable runnable) {
+        final QueryCounter counter = QueryCounter.current();
+        return () -> {
+            QueryCounter.bind(counter);
+            try {
+                runnable.run();
+            } finally {
+                QueryCounter.clear();
+            }
+        };
+    }
+}
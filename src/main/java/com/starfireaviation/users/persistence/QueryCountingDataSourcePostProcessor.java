@@ -0,0 +1,51 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.persistence;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application DataSource in a proxy which reports every statement to a QueryCountListener.
+ */
+public class QueryCountingDataSourcePostProcessor implements BeanPostProcessor {
+
+    /**
+     * Name of the DataSource bean used by JPA.
+     */
+    public static final String DATA_SOURCE_BEAN_NAME = "dataSource";
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+        if (bean instanceof DataSource
+                && !(bean instanceof ProxyDataSource)
+                && DATA_SOURCE_BEAN_NAME.equals(beanName)) {
+            return ProxyDataSourceBuilder
+                    .create((DataSource) bean)
+                    .name(beanName)
+                    .listener(new QueryCountListener())
+                    .build();
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.persistence;
+
+/**
+ * Holds the writers which are within their read-your-writes window.
+ */
+public interface ReadYourWritesStore {
+
+    /**
+     * Starts, or restarts, the read-your-writes window of a writer.
+     *
+     * @param writer writer key
+     */
+    void record(String writer);
+
+    /**
+     * Determines if a writer is within its read-your-writes window.
+     *
+     * @param writer writer key
+     * @return within its window?
+     */
+    boolean contains(String writer);
+}
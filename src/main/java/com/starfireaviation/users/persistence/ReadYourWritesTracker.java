@@ -0,0 +1,113 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.persistence;
+
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Remembers which writers have recently written to the primary database, so that their reads can be kept on the
+ * primary until replicas have caught up with their own changes.
+ *
+ * Authenticated writers are identified by principal name. Unauthenticated writers (registration, password reset,
+ * verification) are identified by client address, so clients sharing an address share a window, and a client whose
+ * address changes loses it.
+ */
+public class ReadYourWritesTracker {
+
+    /**
+     * Prefix of writer keys identifying a principal.
+     */
+    private static final String PRINCIPAL_PREFIX = "principal:";
+
+    /**
+     * Prefix of writer keys identifying a client address.
+     */
+    private static final String CLIENT_PREFIX = "client:";
+
+    /**
+     * ReadYourWritesStore.
+     */
+    private final ReadYourWritesStore store;
+
+    /**
+     * ReadYourWritesTracker.
+     *
+     * @param readYourWritesStore ReadYourWritesStore
+     */
+    public ReadYourWritesTracker(final ReadYourWritesStore readYourWritesStore) {
+        store = readYourWritesStore;
+    }
+
+    /**
+     * Records that the current writer is writing to the primary.
+     */
+    public void recordWrite() {
+        final String writer = currentWriter();
+        if (writer != null) {
+            store.record(writer);
+        }
+    }
+
+    /**
+     * Determines if the current writer wrote recently enough that it must read from the primary.
+     *
+     * @return read from the primary?
+     */
+    public boolean mustReadPrimary() {
+        final String writer = currentWriter();
+        return writer != null && store.contains(writer);
+    }
+
+    /**
+     * Gets the key identifying the current writer.
+     *
+     * @return writer key, or null outside of a request
+     */
+    private static String currentWriter() {
+        final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return PRINCIPAL_PREFIX + authentication.getName();
+        }
+        final String address = clientAddress(authentication);
+        if (address == null) {
+            return null;
+        }
+        return CLIENT_PREFIX + address;
+    }
+
+    /**
+     * Gets the address of the current client.
+     *
+     * @param authentication anonymous Authentication, if any
+     * @return client address, or null outside of a request
+     */
+    private static String clientAddress(final Authentication authentication) {
+        if (authentication != null && authentication.getDetails() instanceof WebAuthenticationDetails) {
+            return ((WebAuthenticationDetails) authentication.getDetails()).getRemoteAddress();
+        }
+        final RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            return ((ServletRequestAttributes) attributes).getRequest().getRemoteAddr();
+        }
+        return null;
+    }
+}
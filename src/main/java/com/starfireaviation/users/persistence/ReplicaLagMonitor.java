@@ -0,0 +1,121 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Periodically measures replication lag on the read replica. While the replica is too far behind, or its lag cannot
+ * be determined, reads are routed to the primary.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    /**
+     * JdbcTemplate for the replica.
+     */
+    private final JdbcTemplate replicaJdbcTemplate;
+
+    /**
+     * Query reporting replication lag. Lag checking is disabled when empty.
+     */
+    private final String lagQuery;
+
+    /**
+     * Column holding the lag in seconds.
+     */
+    private final String lagColumn;
+
+    /**
+     * Maximum acceptable lag in seconds.
+     */
+    private final long maxLagSeconds;
+
+    /**
+     * Healthy flag.
+     */
+    private volatile boolean healthy;
+
+    /**
+     * ReplicaLagMonitor.
+     *
+     * @param replica DataSource for the replica
+     * @param query   query reporting replication lag (e.g. SHOW REPLICA STATUS); lag checking is disabled when empty
+     * @param column  column holding the lag in seconds (e.g. Seconds_Behind_Source)
+     * @param maxLag  maximum acceptable lag in seconds
+     */
+    public ReplicaLagMonitor(final DataSource replica, final String query, final String column, final long maxLag) {
+        replicaJdbcTemplate = new JdbcTemplate(replica);
+        lagQuery = query;
+        lagColumn = column;
+        maxLagSeconds = maxLag;
+        healthy = !StringUtils.hasText(query);
+    }
+
+    /**
+     * Determines if the replica may serve reads.
+     *
+     * @return replica healthy?
+     */
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * Measures replication lag.
+     */
+    @Scheduled(fixedDelayString = "${groundschool.replica-lag-check-interval-ms:5000}")
+    public void check() {
+        if (!StringUtils.hasText(lagQuery)) {
+            return;
+        }
+        boolean nowHealthy = false;
+        try {
+            final List<Map<String, Object>> rows = replicaJdbcTemplate.queryForList(lagQuery);
+            if (!rows.isEmpty()) {
+                final Object lag = rows.get(0).get(lagColumn);
+                nowHealthy = lag instanceof Number && ((Number) lag).longValue() <= maxLagSeconds;
+            }
+        } catch (RuntimeException e) {
+            log.warn(String.format("Unable to determine replica lag: %s", e.getMessage()));
+        }
+        if (nowHealthy != healthy) {
+            log.warn(String.format("Read replica is now %s", healthyOrLagging(nowHealthy)));
+        }
+        healthy = nowHealthy;
+    }
+
+    /**
+     * Describes replica health.
+     *
+     * @param value healthy?
+     * @return description
+     */
+    private static String healthyOrLagging(final boolean value) {
+        if (value) {
+            return "serving reads";
+        }
+        return "lagging; reads fall back to the primary";
+    }
+}
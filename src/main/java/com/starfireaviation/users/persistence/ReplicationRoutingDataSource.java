@@ -0,0 +1,115 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.persistence;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Routes read-only transactions to the read replica and everything else to the primary. Reads stay on the primary
+ * while the current writer is within its read-your-writes window, or while the replica is lagging. Sessions reading
+ * from the replica stop putting entities into the second-level cache, since the cache is shared by every replica and
+ * would otherwise keep serving whatever stale state the replica returned.
+ *
+ * Must be wrapped in a LazyConnectionDataSourceProxy, so that the routing decision is made once the transaction's
+ * read-only flag is known.
+ */
+public class ReplicationRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * Routing key.
+     */
+    public enum Target {
+
+        /**
+         * Primary.
+         */
+        PRIMARY,
+
+        /**
+         * Read replica.
+         */
+        REPLICA
+    }
+
+    /**
+     * ReadYourWritesTracker.
+     */
+    private final ReadYourWritesTracker readYourWritesTracker;
+
+    /**
+     * ReplicaLagMonitor.
+     */
+    private final ReplicaLagMonitor replicaLagMonitor;
+
+    /**
+     * ReplicationRoutingDataSource.
+     *
+     * @param primary  primary DataSource
+     * @param replica  replica DataSource
+     * @param tracker  ReadYourWritesTracker
+     * @param monitor  ReplicaLagMonitor
+     */
+    public ReplicationRoutingDataSource(final DataSource primary,
+                                        final DataSource replica,
+                                        final ReadYourWritesTracker tracker,
+                                        final ReplicaLagMonitor monitor) {
+        readYourWritesTracker = tracker;
+        replicaLagMonitor = monitor;
+        final Map<Object, Object> targets = new HashMap<>();
+        targets.put(Target.PRIMARY, primary);
+        targets.put(Target.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            readYourWritesTracker.recordWrite();
+            return Target.PRIMARY;
+        }
+        if (readYourWritesTracker.mustReadPrimary() || !replicaLagMonitor.isHealthy()) {
+            return Target.PRIMARY;
+        }
+        stopSecondLevelCachePuts();
+        return Target.REPLICA;
+    }
+
+    /**
+     * Stops the current transaction's Hibernate sessions from putting what they load into the second-level cache.
+     * They still read from it, and their own writes still update it.
+     */
+    private static void stopSecondLevelCachePuts() {
+        for (final Object resource : TransactionSynchronizationManager.getResourceMap().values()) {
+            if (resource instanceof EntityManagerHolder) {
+                ((EntityManagerHolder) resource).getEntityManager().unwrap(Session.class).setCacheMode(CacheMode.GET);
+            }
+        }
+    }
+}
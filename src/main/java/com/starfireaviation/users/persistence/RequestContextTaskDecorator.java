@@ -0,0 +1,58 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.persistence;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Carries the submitting thread's request attributes over to the thread which runs a task, so that asynchronously
+ * processed requests can still be attributed to their client (see ReadYourWritesTracker).
+ */
+public class RequestContextTaskDecorator implements TaskDecorator {
+
+    /**
+     * Decorator applied inside this one.
+     */
+    private final TaskDecorator delegate;
+
+    /**
+     * RequestContextTaskDecorator.
+     *
+     * @param decorator decorator applied inside this one
+     */
+    public RequestContextTaskDecorator(final TaskDecorator decorator) {
+        delegate = decorator;
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public Runnable decorate(final Runnable runnable) {
+        final RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        final Runnable decorated = delegate.decorate(runnable);
+        return () -> {
+            RequestContextHolder.setRequestAttributes(attributes);
+            try {
+                decorated.run();
+            } finally {
+                RequestContextHolder.resetRequestAttributes();
+            }
+        };
+    }
+}
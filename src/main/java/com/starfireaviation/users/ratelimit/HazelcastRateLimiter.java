@@ -0,0 +1,66 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.ratelimit;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RateLimiter whose buckets live in a Hazelcast map, so that limits apply across all replicas. Bucket memory is
+ * bounded by the map's eviction and max-idle configuration (see HazelcastConfig).
+ */
+public class HazelcastRateLimiter implements RateLimiter {
+
+    /**
+     * Name of the Hazelcast map holding rate limit buckets.
+     */
+    public static final String MAP_NAME = "users-rate-limits";
+
+    /**
+     * Buckets.
+     */
+    private final IMap<String, long[]> buckets;
+
+    /**
+     * Entry processor carrying this limiter's bucket settings.
+     */
+    private final TokenBucketEntryProcessor processor;
+
+    /**
+     * HazelcastRateLimiter.
+     *
+     * @param hazelcastInstance HazelcastInstance
+     * @param bucketCapacity    maximum number of tokens per key (burst size)
+     * @param tokensPerMinute   tokens added per key every minute
+     */
+    public HazelcastRateLimiter(final HazelcastInstance hazelcastInstance,
+                                final long bucketCapacity,
+                                final long tokensPerMinute) {
+        buckets = hazelcastInstance.getMap(MAP_NAME);
+        processor = new TokenBucketEntryProcessor(bucketCapacity, tokensPerMinute, TimeUnit.MINUTES.toMillis(1));
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public long tryAcquire(final String key) {
+        return TimeUnit.MILLISECONDS.toNanos(buckets.executeOnKey(key, processor));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.ratelimit;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process RateLimiter. Buckets are spread over a fixed number of stripes, each of which is a bounded LRU map, so
+ * memory stays bounded and idle keys are evicted first. Only the bucket lookup is guarded by the stripe's monitor;
+ * taking a token is lock-free.
+ */
+public class LocalRateLimiter implements RateLimiter {
+
+    /**
+     * Number of stripes. Must be a power of two.
+     */
+    private static final int STRIPES = 16;
+
+    /**
+     * Shift used to spread the high bits of a key's hash code over the stripe index.
+     */
+    private static final int HASH_SPREAD_SHIFT = 16;
+
+    /**
+     * Stripe map load factor.
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * Stripes.
+     */
+    private final Map<String, TokenBucket>[] stripes;
+
+    /**
+     * Maximum number of tokens per bucket.
+     */
+    private final long capacity;
+
+    /**
+     * Tokens added every refill period.
+     */
+    private final long refillTokens;
+
+    /**
+     * Refill period in nanoseconds.
+     */
+    private final long refillPeriodNanos;
+
+    /**
+     * LocalRateLimiter.
+     *
+     * @param bucketCapacity maximum number of tokens per key (burst size)
+     * @param tokensPerMinute tokens added per key every minute
+     * @param maxKeys        maximum number of keys tracked
+     */
+    @SuppressWarnings("unchecked")
+    public LocalRateLimiter(final long bucketCapacity, final long tokensPerMinute, final int maxKeys) {
+        capacity = bucketCapacity;
+        refillTokens = tokensPerMinute;
+        refillPeriodNanos = TimeUnit.MINUTES.toNanos(1);
+        final int maxKeysPerStripe = Math.max(1, maxKeys / STRIPES);
+        stripes = new Map[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new LinkedHashMap<>(maxKeysPerStripe, LOAD_FACTOR, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, TokenBucket> eldest) {
+                    return size() > maxKeysPerStripe;
+                }
+            };
+        }
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public long tryAcquire(final String key) {
+        final long now = System.nanoTime();
+        return bucket(key, now).tryConsume(now);
+    }
+
+    /**
+     * Gets (or creates) the bucket for a key.
+     *
+     * @param key key
+     * @param now current time in nanoseconds
+     * @return TokenBucket
+     */
+    private TokenBucket bucket(final String key, final long now) {
+        final int hash = key.hashCode();
+        final Map<String, TokenBucket> stripe = stripes[(hash ^ (hash >>> HASH_SPREAD_SHIFT)) & (STRIPES - 1)];
+        synchronized (stripe) {
+            return stripe.computeIfAbsent(key, k -> new TokenBucket(capacity, refillTokens, refillPeriodNanos, now));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.ratelimit;
+
+/**
+ * RateLimiter.
+ */
+public interface RateLimiter {
+
+    /**
+     * Attempts to take a single permit for the provided key.
+     *
+     * @param key client or target key
+     * @return 0 when a permit was granted, otherwise the number of nanoseconds until one will be available
+     */
+    long tryAcquire(String key);
+
+}
@@ -0,0 +1,105 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.ratelimit;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free token bucket. Tokens are refilled lazily, based on the time elapsed since the bucket was last used.
+ */
+public class TokenBucket {
+
+    /**
+     * Current bucket state.
+     */
+    private final AtomicReference<State> state;
+
+    /**
+     * Maximum number of tokens.
+     */
+    private final long capacity;
+
+    /**
+     * Tokens added per nanosecond.
+     */
+    private final double tokensPerNano;
+
+    /**
+     * TokenBucket.
+     *
+     * @param bucketCapacity     maximum number of tokens (burst size)
+     * @param refillTokens       tokens added every refill period
+     * @param refillPeriodNanos  refill period in nanoseconds
+     * @param nowNanos           current time in nanoseconds
+     */
+    public TokenBucket(final long bucketCapacity,
+                       final long refillTokens,
+                       final long refillPeriodNanos,
+                       final long nowNanos) {
+        capacity = bucketCapacity;
+        tokensPerNano = (double) refillTokens / refillPeriodNanos;
+        state = new AtomicReference<>(new State(bucketCapacity, nowNanos));
+    }
+
+    /**
+     * Attempts to take a single token.
+     *
+     * @param nowNanos current time in nanoseconds
+     * @return 0 when a token was taken, otherwise the number of nanoseconds until one will be available
+     */
+    public long tryConsume(final long nowNanos) {
+        while (true) {
+            final State current = state.get();
+            final long timestamp = Math.max(current.timestamp, nowNanos);
+            final double available = Math.min(capacity,
+                    current.tokens + (timestamp - current.timestamp) * tokensPerNano);
+            if (available < 1) {
+                return (long) Math.ceil((1 - available) / tokensPerNano);
+            }
+            if (state.compareAndSet(current, new State(available - 1, timestamp))) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Immutable bucket state.
+     */
+    private static final class State {
+
+        /**
+         * Available tokens.
+         */
+        private final double tokens;
+
+        /**
+         * Time of the last refill, in nanoseconds.
+         */
+        private final long timestamp;
+
+        /**
+         * State.
+         *
+         * @param availableTokens available tokens
+         * @param refillTimestamp time of the last refill
+         */
+        private State(final double availableTokens, final long refillTimestamp) {
+            tokens = availableTokens;
+            timestamp = refillTimestamp;
+        }
+    }
+}
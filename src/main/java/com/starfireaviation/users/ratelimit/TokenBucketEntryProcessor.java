@@ -0,0 +1,89 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.ratelimit;
+
+import com.hazelcast.map.EntryProcessor;
+
+import java.util.Map;
+
+/**
+ * Token bucket arithmetic executed on the Hazelcast member owning a key, so that concurrent requests from any replica
+ * are applied atomically. State is stored as {micro-tokens, last refill epoch millis}.
+ */
+public class TokenBucketEntryProcessor implements EntryProcessor<String, long[], Long> {
+
+    /**
+     * Default SerialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Micro-tokens per token.
+     */
+    private static final long SCALE = 1_000_000L;
+
+    /**
+     * Maximum number of tokens.
+     */
+    private final long capacity;
+
+    /**
+     * Tokens added every refill period.
+     */
+    private final long refillTokens;
+
+    /**
+     * Refill period in milliseconds.
+     */
+    private final long refillPeriodMillis;
+
+    /**
+     * TokenBucketEntryProcessor.
+     *
+     * @param bucketCapacity maximum number of tokens
+     * @param tokens         tokens added every refill period
+     * @param periodMillis   refill period in milliseconds
+     */
+    public TokenBucketEntryProcessor(final long bucketCapacity, final long tokens, final long periodMillis) {
+        capacity = bucketCapacity;
+        refillTokens = tokens;
+        refillPeriodMillis = periodMillis;
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     *
+     * @return 0 when a token was taken, otherwise the number of milliseconds until one will be available
+     */
+    @Override
+    public Long process(final Map.Entry<String, long[]> entry) {
+        final long now = System.currentTimeMillis();
+        final long max = capacity * SCALE;
+        long available = max;
+        final long[] state = entry.getValue();
+        if (state != null) {
+            final long elapsed = Math.min(Math.max(0, now - state[1]), refillPeriodMillis * capacity);
+            available = Math.min(max, state[0] + elapsed * refillTokens * SCALE / refillPeriodMillis);
+        }
+        if (available >= SCALE) {
+            entry.setValue(new long[] {available - SCALE, now});
+            return 0L;
+        }
+        entry.setValue(new long[] {available, now});
+        return (SCALE - available) * refillPeriodMillis / (refillTokens * SCALE) + 1;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent loads of the same key into a single call: the first caller executes the loader, and callers
+ * arriving while it runs wait for and share its result (or exception). Nothing is cached once the call completes.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class SingleFlight<K, V> {
+
+    /**
+     * In-flight calls by key.
+     */
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Calls which executed the loader.
+     */
+    private final LongAdder executed = new LongAdder();
+
+    /**
+     * Calls which shared another call's result.
+     */
+    private final LongAdder collapsed = new LongAdder();
+
+    /**
+     * Loads a value, sharing the result of an in-flight load of the same key if there is one.
+     *
+     * @param key    key
+     * @param loader loader, executed at most once per flight
+     * @return value
+     */
+    public V load(final K key, final Supplier<V> loader) {
+        CompletableFuture<V> flight = inFlight.get(key);
+        if (flight == null) {
+            final CompletableFuture<V> mine = new CompletableFuture<>();
+            flight = inFlight.putIfAbsent(key, mine);
+            if (flight == null) {
+                return execute(key, mine, loader);
+            }
+        }
+        collapsed.increment();
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Detaches the in-flight load of a key, if any, so that later callers start a new one. Callers already waiting
+     * still receive its result.
+     *
+     * @param key key
+     */
+    public void forget(final K key) {
+        inFlight.remove(key);
+    }
+
+    /**
+     * Gets the number of calls which executed the loader.
+     *
+     * @return count
+     */
+    public long getExecuted() {
+        return executed.sum();
+    }
+
+    /**
+     * Gets the number of calls which shared another call's result.
+     *
+     * @return count
+     */
+    public long getCollapsed() {
+        return collapsed.sum();
+    }
+
+    /**
+     * Executes the loader for a flight this caller owns.
+     *
+     * @param key    key
+     * @param flight CompletableFuture
+     * @param loader loader
+     * @return value
+     */
+    private V execute(final K key, final CompletableFuture<V> flight, final Supplier<V> loader) {
+        executed.increment();
+        try {
+            final V value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+}
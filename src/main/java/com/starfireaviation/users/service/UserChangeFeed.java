@@ -0,0 +1,351 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.service;
+
+import com.starfireaviation.users.model.UserChange;
+import com.starfireaviation.users.model.UserChangeEventEntity;
+import com.starfireaviation.users.model.UserChanges;
+import com.starfireaviation.users.model.UserOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Relays user outbox rows to a change feed. The relay periodically reads new outbox rows in batches and appends them
+ * to a bounded in-memory buffer, waking any long-polling consumers. Consumers resume from the last change ID they
+ * received; cursors older than the buffer are served from the outbox table.
+ *
+ * Rows are relayed strictly in ID order, so that a consumer's cursor never passes a row which has yet to commit. A
+ * missing ID holds the relay back until its row commits, or until the gap is older than the gap timeout, when the
+ * row is assumed to have been rolled back. No clock other than this instance's own is involved.
+ */
+@Slf4j
+public class UserChangeFeed implements ApplicationListener<ApplicationReadyEvent> {
+
+    /**
+     * UserOutboxRepository.
+     */
+    private final UserOutboxRepository userOutboxRepository;
+
+    /**
+     * Maximum number of rows relayed per batch.
+     */
+    private final int batchSize;
+
+    /**
+     * Maximum number of changes kept in memory.
+     */
+    private final int bufferSize;
+
+    /**
+     * Time a missing ID may hold the relay back before its row is assumed rolled back.
+     */
+    private final Duration gapTimeout;
+
+    /**
+     * Retention period for outbox rows.
+     */
+    private final Duration retention;
+
+    /**
+     * Recently relayed changes, oldest first. Guarded by itself.
+     */
+    private final Deque<UserChange> buffer = new ArrayDeque<>();
+
+    /**
+     * Cursor from which the buffer holds every change. Guarded by buffer.
+     */
+    private long bufferStart = Long.MAX_VALUE;
+
+    /**
+     * Missing IDs, each the first of a run of missing IDs, to the System.nanoTime() at which they were first seen.
+     * Guarded by this.
+     */
+    private final NavigableMap<Long, Long> gaps = new TreeMap<>();
+
+    /**
+     * Long-polling consumers waiting for changes.
+     */
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * ID of the last relayed row.
+     */
+    private volatile long lastRelayedId = -1;
+
+    /**
+     * UserChangeFeed.
+     *
+     * @param outboxRepository UserOutboxRepository
+     * @param batch            maximum number of rows relayed per batch
+     * @param buffered         maximum number of changes kept in memory
+     * @param gapPeriod        time a missing ID may hold the relay back before its row is assumed rolled back
+     * @param retentionPeriod  retention period for outbox rows
+     */
+    public UserChangeFeed(final UserOutboxRepository outboxRepository,
+                          final int batch,
+                          final int buffered,
+                          final Duration gapPeriod,
+                          final Duration retentionPeriod) {
+        userOutboxRepository = outboxRepository;
+        batchSize = batch;
+        bufferSize = buffered;
+        gapTimeout = gapPeriod;
+        retention = retentionPeriod;
+    }
+
+    /**
+     * Starts relaying once the application is ready.
+     *
+     * @param event ApplicationReadyEvent
+     */
+    @Override
+    public void onApplicationEvent(final ApplicationReadyEvent event) {
+        start();
+    }
+
+    /**
+     * Starts relaying, if not yet started, from the last row created more than the gap timeout ago, so that rows
+     * still committing at startup are not skipped.
+     *
+     * @return cursor up to which every change has been relayed
+     */
+    public synchronized long start() {
+        if (lastRelayedId < 0) {
+            final long from = userOutboxRepository.findMaxIdCreatedBefore(Instant.now().minus(gapTimeout));
+            synchronized (buffer) {
+                bufferStart = from;
+            }
+            lastRelayedId = from;
+        }
+        return lastRelayedId;
+    }
+
+    /**
+     * Relays new outbox rows to the change feed.
+     */
+    @Scheduled(fixedDelayString = "${groundschool.outbox-relay-interval-ms:250}")
+    public synchronized void relay() {
+        if (lastRelayedId < 0) {
+            return;
+        }
+        List<UserChangeEventEntity> batch;
+        List<UserChange> relayable;
+        do {
+            batch = userOutboxRepository.findByIdGreaterThanOrderByIdAsc(lastRelayedId, PageRequest.of(0, batchSize));
+            relayable = relayable(batch);
+            if (relayable.isEmpty()) {
+                break;
+            }
+            synchronized (buffer) {
+                for (final UserChange change : relayable) {
+                    buffer.addLast(change);
+                    if (buffer.size() > bufferSize) {
+                        bufferStart = buffer.removeFirst().getId();
+                    }
+                }
+            }
+            lastRelayedId = relayable.get(relayable.size() - 1).getId();
+            wakeWaiters();
+        } while (relayable.size() == batchSize);
+    }
+
+    /**
+     * Takes the rows of a batch which may be relayed: those before the first missing ID which is younger than the
+     * gap timeout.
+     *
+     * @param batch rows after lastRelayedId, oldest first
+     * @return changes to relay
+     */
+    private List<UserChange> relayable(final List<UserChangeEventEntity> batch) {
+        final long now = System.nanoTime();
+        long expected = lastRelayedId + 1;
+        for (final UserChangeEventEntity event : batch) {
+            if (event.getId() > expected) {
+                gaps.putIfAbsent(expected, now);
+            }
+            expected = event.getId() + 1;
+        }
+        final List<UserChange> changes = new ArrayList<>();
+        expected = lastRelayedId + 1;
+        for (final UserChangeEventEntity event : batch) {
+            if (event.getId() > expected) {
+                if (now - gaps.get(expected) < gapTimeout.toNanos()) {
+                    break;
+                }
+                log.warn(
+                        String.format(
+                                "User outbox IDs %s to %s did not commit within %s ms; assuming they were rolled back",
+                                expected,
+                                event.getId() - 1,
+                                gapTimeout.toMillis()));
+            }
+            changes.add(UserChange.from(event));
+            expected = event.getId() + 1;
+        }
+        gaps.headMap(expected).clear();
+        return changes;
+    }
+
+    /**
+     * Deletes outbox rows older than the retention period.
+     */
+    @Scheduled(cron = "${groundschool.outbox-purge-cron:0 0 3 * * *}")
+    @Transactional
+    public void purge() {
+        final int deleted = userOutboxRepository.deleteCreatedBefore(Instant.now().minus(retention));
+        log.info(String.format("Purged %s user outbox rows", deleted));
+    }
+
+    /**
+     * Gets the changes after a cursor, waiting up to the provided timeout when there are none yet.
+     *
+     * @param after   cursor (the last change ID received, or 0)
+     * @param limit   maximum number of changes
+     * @param timeout maximum time to wait
+     * @return DeferredResult
+     */
+    public DeferredResult<UserChanges> poll(final long after, final int limit, final Duration timeout) {
+        final UserChanges empty = new UserChanges(Collections.emptyList(), after);
+        final DeferredResult<UserChanges> result = new DeferredResult<>(timeout.toMillis(), empty);
+        final UserChanges available = changes(after, limit);
+        if (!available.getChanges().isEmpty() || timeout.isZero()) {
+            result.setResult(available);
+            return result;
+        }
+        final Waiter waiter = new Waiter(after, limit, result);
+        waiters.add(waiter);
+        result.onCompletion(() -> waiters.remove(waiter));
+        // A relay may have completed between reading the changes and registering the waiter
+        if (lastRelayedId > after) {
+            wakeWaiters();
+        }
+        return result;
+    }
+
+    /**
+     * Gets the changes after a cursor without waiting.
+     *
+     * @param after cursor (the last change ID received, or 0)
+     * @param limit maximum number of changes
+     * @return UserChanges
+     */
+    public UserChanges changes(final long after, final int limit) {
+        final List<UserChange> changes = new ArrayList<>();
+        synchronized (buffer) {
+            if (after >= bufferStart) {
+                for (final UserChange change : buffer) {
+                    if (change.getId() > after) {
+                        changes.add(change);
+                        if (changes.size() == limit) {
+                            break;
+                        }
+                    }
+                }
+                return new UserChanges(changes, cursor(changes, after));
+            }
+        }
+        final long end = lastRelayedId;
+        if (end < 0 || after >= end) {
+            return new UserChanges(changes, after);
+        }
+        for (final UserChangeEventEntity event : userOutboxRepository
+                .findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(after, end, PageRequest.of(0, limit))) {
+            changes.add(UserChange.from(event));
+        }
+        return new UserChanges(changes, cursor(changes, after));
+    }
+
+    /**
+     * Completes the waiters for which changes are now available.
+     */
+    private void wakeWaiters() {
+        final Iterator<Waiter> iterator = waiters.iterator();
+        while (iterator.hasNext()) {
+            final Waiter waiter = iterator.next();
+            if (lastRelayedId > waiter.after) {
+                iterator.remove();
+                waiter.result.setResult(changes(waiter.after, waiter.limit));
+            }
+        }
+    }
+
+    /**
+     * Determines the cursor following a list of changes.
+     *
+     * @param changes changes
+     * @param after   previous cursor
+     * @return cursor
+     */
+    private static long cursor(final List<UserChange> changes, final long after) {
+        if (changes.isEmpty()) {
+            return after;
+        }
+        return changes.get(changes.size() - 1).getId();
+    }
+
+    /**
+     * A long-polling consumer.
+     */
+    private static final class Waiter {
+
+        /**
+         * Cursor.
+         */
+        private final long after;
+
+        /**
+         * Maximum number of changes.
+         */
+        private final int limit;
+
+        /**
+         * Pending result.
+         */
+        private final DeferredResult<UserChanges> result;
+
+        /**
+         * Waiter.
+         *
+         * @param cursor   cursor
+         * @param max      maximum number of changes
+         * @param deferred pending result
+         */
+        private Waiter(final long cursor, final int max, final DeferredResult<UserChanges> deferred) {
+            after = cursor;
+            limit = max;
+            result = deferred;
+        }
+    }
+}
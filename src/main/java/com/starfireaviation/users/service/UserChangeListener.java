@@ -0,0 +1,34 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.service;
+
+import com.starfireaviation.users.model.UserEntity;
+
+/**
+ * Notified by UserService whenever a user is stored, so that in-memory views of the user table stay current.
+ */
+public interface UserChangeListener {
+
+    /**
+     * Invoked after a user has been stored and, when stored within a transaction, after that transaction commits.
+     *
+     * @param previous user as it was before the change, or null for a new user
+     * @param stored   user as stored
+     */
+    void userStored(UserEntity previous, UserEntity stored);
+
+}
@@ -0,0 +1,291 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.service;
+
+import com.starfireaviation.users.model.UserFlagUpdate;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind queue for low-value user flag updates (verified flags, verification codes). Updates are coalesced per
+ * user, so repeated updates of one user cost a single write, and are flushed through UserService.storeFlags() as one
+ * batched transaction, either on a short interval or as soon as a full batch is queued.
+ *
+ * Note: when the queue already holds maxPending users, an update for another user is written synchronously instead.
+ * Queued updates are flushed on shutdown; updates which arrive after that are written synchronously.
+ */
+@Slf4j
+public class UserFlagWriteBehind implements MeterBinder, DisposableBean {
+
+    /**
+     * Maximum time to wait for an in-progress flush on shutdown.
+     */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    /**
+     * UserService.
+     */
+    private final UserService userService;
+
+    /**
+     * Maximum number of users written per flush.
+     */
+    private final int batchSize;
+
+    /**
+     * Maximum number of users with queued updates.
+     */
+    private final int maxPending;
+
+    /**
+     * Queued updates by user ID.
+     */
+    private final ConcurrentMap<Long, UserFlagUpdate> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Runs flushes triggered by a full batch, off the caller's thread.
+     */
+    private final ExecutorService flusher =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("user-flag-write-behind-"));
+
+    /**
+     * Set while a size-triggered flush is waiting to run.
+     */
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    /**
+     * Serializes flushes.
+     */
+    private final Object flushLock = new Object();
+
+    /**
+     * Updates queued for a user without queued updates.
+     */
+    private final LongAdder queued = new LongAdder();
+
+    /**
+     * Updates merged into a user's queued update.
+     */
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Updates written synchronously.
+     */
+    private final LongAdder synchronous = new LongAdder();
+
+    /**
+     * Users written by flushes.
+     */
+    private final LongAdder flushed = new LongAdder();
+
+    /**
+     * Flushes which failed and were requeued.
+     */
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * Set once shutdown has begun.
+     */
+    private volatile boolean closed;
+
+    /**
+     * UserFlagWriteBehind.
+     *
+     * @param uService UserService
+     * @param batch    maximum number of users written per flush
+     * @param max      maximum number of users with queued updates; 0 writes every update synchronously
+     */
+    public UserFlagWriteBehind(final UserService uService, final int batch, final int max) {
+        userService = uService;
+        batchSize = Math.max(1, batch);
+        maxPending = max;
+    }
+
+    /**
+     * Queues a flag update for a user, or writes it synchronously when the queue is full.
+     *
+     * @param userId user ID
+     * @param update UserFlagUpdate
+     */
+    public void update(final long userId, final UserFlagUpdate update) {
+        if (closed || (pending.size() >= maxPending && !pending.containsKey(userId))) {
+            synchronous.increment();
+            userService.storeFlags(Map.of(userId, update));
+            return;
+        }
+        // merge() returns the provided instance only when nothing was queued for the user yet
+        if (pending.merge(userId, update, UserFlagUpdate::merge) == update) {
+            queued.increment();
+        } else {
+            coalesced.increment();
+        }
+        if (pending.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(() -> {
+                    flushRequested.set(false);
+                    flush();
+                });
+            } catch (RejectedExecutionException ree) {
+                // Shutting down; destroy() flushes the queue
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * Flushes queued updates. Further full batches queued meanwhile are flushed too; a partial batch queued meanwhile
+     * waits for the next interval.
+     */
+    @Scheduled(fixedDelayString = "${groundschool.flag-write-behind-interval-ms:200}")
+    public void flush() {
+        synchronized (flushLock) {
+            int written;
+            do {
+                written = flushBatch();
+            } while (written == batchSize && pending.size() >= batchSize);
+        }
+    }
+
+    /**
+     * Gets the number of users with queued updates.
+     *
+     * @return queued users
+     */
+    public int getPending() {
+        return pending.size();
+    }
+
+    /**
+     * Flushes every queued update, then writes later updates synchronously.
+     *
+     * @throws InterruptedException when interrupted while waiting for an in-progress flush
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        closed = true;
+        flusher.shutdown();
+        flusher.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        synchronized (flushLock) {
+            while (!pending.isEmpty()) {
+                if (flushBatch() < 0) {
+                    log.warn(String.format("Discarding queued flag updates for %s users on shutdown", pending.size()));
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes one batch of queued updates. A batch which fails is requeued beneath any updates queued meanwhile.
+     *
+     * @return number of users drained, or -1 when the write failed
+     */
+    private int flushBatch() {
+        final Map<Long, UserFlagUpdate> batch = drain();
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            flushed.add(userService.storeFlags(batch));
+            return batch.size();
+        } catch (RuntimeException e) {
+            failures.increment();
+            for (final Map.Entry<Long, UserFlagUpdate> entry : batch.entrySet()) {
+                pending.merge(entry.getKey(), entry.getValue(), (later, earlier) -> earlier.merge(later));
+            }
+            log.warn(
+                    String.format(
+                            "Unable to write queued flag updates for %s users; will retry: %s",
+                            batch.size(),
+                            e.getMessage()));
+            return -1;
+        }
+    }
+
+    /**
+     * Removes up to batchSize users' updates from the queue.
+     *
+     * @return UserFlagUpdates by user ID
+     */
+    private Map<Long, UserFlagUpdate> drain() {
+        final Map<Long, UserFlagUpdate> batch = new HashMap<>();
+        final Iterator<Long> ids = pending.keySet().iterator();
+        while (ids.hasNext() && batch.size() < batchSize) {
+            final Long id = ids.next();
+            final UserFlagUpdate update = pending.remove(id);
+            if (update != null) {
+                batch.put(id, update);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge
+                .builder("users.flags.pending", pending, Map::size)
+                .description("Users with queued flag updates")
+                .register(registry);
+        bindUpdates(registry, "queued", queued);
+        bindUpdates(registry, "coalesced", coalesced);
+        bindUpdates(registry, "synchronous", synchronous);
+        FunctionCounter
+                .builder("users.flags.flushed", flushed, LongAdder::sum)
+                .description("Users written by write-behind flushes")
+                .register(registry);
+        FunctionCounter
+                .builder("users.flags.flush.failures", failures, LongAdder::sum)
+                .description("Write-behind flushes which failed and were requeued")
+                .register(registry);
+    }
+
+    /**
+     * Registers a counter of flag updates by how they were handled.
+     *
+     * @param registry MeterRegistry
+     * @param outcome  outcome tag
+     * @param count    LongAdder
+     */
+    private static void bindUpdates(final MeterRegistry registry, final String outcome, final LongAdder count) {
+        FunctionCounter
+                .builder("users.flags.updates", count, LongAdder::sum)
+                .description("User flag updates")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.service;
+
+import com.starfireaviation.users.model.UserEntity;
+import com.starfireaviation.users.model.UserRepository;
+import com.starfireaviation.users.model.UserView;
+import com.starfireaviation.users.persistence.ReadYourWritesTracker;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent reads of the same user, by ID or by username, into one database call whose UserView is shared
+ * by every caller. Each flight runs in its own read-only transaction, so waiting callers do not hold a connection.
+ *
+ * Note: a user's in-flight reads are detached when it is stored, so a caller never receives a read which started before
+ * its own write committed. Callers already inside a transaction, or which must read the primary after their own write,
+ * read directly.
+ */
+public class UserReadCoalescer implements MeterBinder, UserChangeListener {
+
+    /**
+     * UserRepository.
+     */
+    private final UserRepository userRepository;
+
+    /**
+     * Read-only TransactionTemplate.
+     */
+    private final TransactionTemplate readOnly;
+
+    /**
+     * ReadYourWritesTracker, when reads are routed to a replica.
+     */
+    private final ReadYourWritesTracker readYourWritesTracker;
+
+    /**
+     * Reads by ID.
+     */
+    private final SingleFlight<Long, UserView> byId = new SingleFlight<>();
+
+    /**
+     * Reads by username.
+     */
+    private final SingleFlight<String, UserView> byUsername = new SingleFlight<>();
+
+    /**
+     * UserReadCoalescer.
+     *
+     * @param uRepository        UserRepository
+     * @param transactionManager PlatformTransactionManager
+     * @param tracker            ReadYourWritesTracker, or null when reads are not routed to a replica
+     */
+    public UserReadCoalescer(final UserRepository uRepository,
+                             final PlatformTransactionManager transactionManager,
+                             final ReadYourWritesTracker tracker) {
+        userRepository = uRepository;
+        readYourWritesTracker = tracker;
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    /**
+     * Gets a user by ID.
+     *
+     * @param id user ID
+     * @return UserView, or null when no user is found
+     */
+    public UserView get(final long id) {
+        final Supplier<UserView> read = () -> readOnly.execute(status -> UserView.from(userRepository.findById(id)));
+        if (!coalesce()) {
+            return read.get();
+        }
+        return byId.load(id, read);
+    }
+
+    /**
+     * Gets a user by username.
+     *
+     * @param username username
+     * @return UserView, or null when no user is found
+     */
+    public UserView findByUsername(final String username) {
+        if (username == null) {
+            return null;
+        }
+        final Supplier<UserView> read =
+                () -> readOnly.execute(status -> UserView.from(userRepository.findByUsername(username)));
+        if (!coalesce()) {
+            return read.get();
+        }
+        return byUsername.load(username, read);
+    }
+
+    /**
+     * Determines if the current caller may share another caller's read.
+     *
+     * @return coalesce?
+     */
+    private boolean coalesce() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return false;
+        }
+        return readYourWritesTracker == null || !readYourWritesTracker.mustReadPrimary();
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public void userStored(final UserEntity previous, final UserEntity stored) {
+        if (previous != null) {
+            byUsername.forget(previous.getUsername());
+        }
+        if (stored != null) {
+            byId.forget(stored.getId());
+            byUsername.forget(stored.getUsername());
+        }
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        bind(registry, "id", byId);
+        bind(registry, "username", byUsername);
+    }
+
+    /**
+     * Registers the executed and collapsed counters of a SingleFlight.
+     *
+     * @param registry MeterRegistry
+     * @param lookup   lookup tag
+     * @param flight   SingleFlight
+     */
+    private static void bind(final MeterRegistry registry, final String lookup, final SingleFlight<?, ?> flight) {
+        FunctionCounter
+                .builder("users.reads.coalesced", flight, SingleFlight::getCollapsed)
+                .description("User reads which shared another read's database call")
+                .tag("lookup", lookup)
+                .register(registry);
+        FunctionCounter
+                .builder("users.reads.executed", flight, SingleFlight::getExecuted)
+                .description("User reads which made their own database call")
+                .tag("lookup", lookup)
+                .register(registry);
+    }
+}
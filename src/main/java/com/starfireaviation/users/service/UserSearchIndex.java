@@ -0,0 +1,620 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.service;
+
+import com.starfireaviation.users.model.UserChange;
+import com.starfireaviation.users.model.UserChanges;
+import com.starfireaviation.users.model.UserEntity;
+import com.starfireaviation.users.model.UserRepository;
+import com.starfireaviation.users.model.UserSearchResult;
+import com.starfireaviation.users.model.UserSearchResults;
+import com.starfireaviation.users.model.UserView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory typeahead index over usernames, names and email addresses.
+ *
+ * Terms are kept in a sorted map so that prefix matches are a range scan, and every term is also indexed by its
+ * trigrams so that misspelled queries can be matched within a small edit distance. The index is built once the
+ * application is ready and updated incrementally as users are stored, both by this instance and (through the change
+ * feed) by every other replica. Users stored while the index is being built keep their newer entries.
+ *
+ * Note: updates are serialized by a single lock, so that removing a user's last posting for a term cannot race with
+ * another user's posting being added to it. Searches read the concurrent maps without locking.
+ */
+@Slf4j
+public class UserSearchIndex implements UserChangeListener, ApplicationListener<ApplicationReadyEvent> {
+
+    /**
+     * Maximum page size.
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Username field weight.
+     */
+    private static final int USERNAME_WEIGHT = 3;
+
+    /**
+     * First and last name field weight.
+     */
+    private static final int NAME_WEIGHT = 2;
+
+    /**
+     * Email field weight.
+     */
+    private static final int EMAIL_WEIGHT = 1;
+
+    /**
+     * Score for a query token equal to a term.
+     */
+    private static final int EXACT_SCORE = 10;
+
+    /**
+     * Score for a query token which is a prefix of a term.
+     */
+    private static final int PREFIX_SCORE = 5;
+
+    /**
+     * Score for a query token within the allowed edit distance of a term prefix.
+     */
+    private static final int FUZZY_SCORE = 2;
+
+    /**
+     * N-gram length used for fuzzy matching.
+     */
+    private static final int GRAM_LENGTH = 3;
+
+    /**
+     * Query tokens at least this long tolerate two edits rather than one.
+     */
+    private static final int TWO_EDIT_TOKEN_LENGTH = 6;
+
+    /**
+     * Characters which separate the tokens of a field or query.
+     */
+    private static final Pattern TOKEN_SEPARATORS = Pattern.compile("[\\s\\-_.@+']+");
+
+    /**
+     * Best results first; ties broken by username.
+     */
+    private static final Comparator<UserSearchResult> BEST_FIRST = Comparator
+            .comparingInt(UserSearchResult::getScore)
+            .reversed()
+            .thenComparing(UserSearchResult::getUsername, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    /**
+     * UserRepository.
+     */
+    private final UserRepository userRepository;
+
+    /**
+     * UserChangeFeed.
+     */
+    private final UserChangeFeed userChangeFeed;
+
+    /**
+     * Maximum number of changes read from the change feed at a time.
+     */
+    private final int syncBatchSize;
+
+    /**
+     * Maximum number of postings scanned per query token, which bounds the cost of very short queries.
+     */
+    private final int maxCandidates;
+
+    /**
+     * Indexed documents by user ID.
+     */
+    private final Map<Long, Document> documents = new ConcurrentHashMap<>();
+
+    /**
+     * Term postings: term to (user ID to best field weight).
+     */
+    private final ConcurrentSkipListMap<String, Map<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+
+    /**
+     * Trigram to terms containing it.
+     */
+    private final Map<String, Set<String>> trigrams = new ConcurrentHashMap<>();
+
+    /**
+     * Guards documents, postings and trigrams against concurrent updates.
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * IDs of users indexed or removed while a build is running, which the build must not overwrite; null when no
+     * build is running. Guarded by writeLock.
+     */
+    private Set<Long> changedDuringBuild;
+
+    /**
+     * Change feed cursor up to which changes have been applied, or -1 before the index is built. Guarded by this.
+     */
+    private long cursor = -1;
+
+    /**
+     * UserSearchIndex.
+     *
+     * @param uRepository UserRepository
+     * @param changeFeed  UserChangeFeed
+     * @param candidates  maximum number of postings scanned per query token
+     * @param syncBatch   maximum number of changes read from the change feed at a time
+     */
+    public UserSearchIndex(final UserRepository uRepository,
+                           final UserChangeFeed changeFeed,
+                           final int candidates,
+                           final int syncBatch) {
+        userRepository = uRepository;
+        userChangeFeed = changeFeed;
+        maxCandidates = candidates;
+        syncBatchSize = syncBatch;
+    }
+
+    /**
+     * Builds the index from the database once the application is ready.
+     *
+     * @param event ApplicationReadyEvent
+     */
+    @Override
+    public void onApplicationEvent(final ApplicationReadyEvent event) {
+        build();
+    }
+
+    /**
+     * Builds the index from the database. Reads views, so no passwords or verification codes are loaded. Users
+     * indexed while the build runs are not overwritten by the (possibly older) rows it read, and changes relayed
+     * after the current change feed position are applied by sync().
+     */
+    public synchronized void build() {
+        final long from = userChangeFeed.start();
+        synchronized (writeLock) {
+            changedDuringBuild = new HashSet<>();
+        }
+        final List<UserView> users = userRepository.findAllViews();
+        for (final UserView user : users) {
+            if (user.getId() == null) {
+                continue;
+            }
+            final Document document = new Document(user);
+            synchronized (writeLock) {
+                if (!changedDuringBuild.contains(document.id)) {
+                    put(document);
+                }
+            }
+        }
+        synchronized (writeLock) {
+            changedDuringBuild = null;
+        }
+        cursor = from;
+        log.info(String.format("User search index built with %s users and %s terms", users.size(), postings.size()));
+    }
+
+    /**
+     * Re-reads the users created or changed on any replica since the last sync, as relayed by the change feed.
+     */
+    @Scheduled(fixedDelayString = "${groundschool.search-index-sync-interval-ms:1000}")
+    public synchronized void sync() {
+        if (cursor < 0) {
+            return;
+        }
+        UserChanges changes;
+        do {
+            changes = userChangeFeed.changes(cursor, syncBatchSize);
+            final Set<Long> userIds = changes
+                    .getChanges()
+                    .stream()
+                    .map(UserChange::getUserId)
+                    .collect(Collectors.toSet());
+            if (!userIds.isEmpty()) {
+                final List<UserView> users = userRepository.findViewsByIdIn(userIds);
+                for (final UserView user : users) {
+                    index(user);
+                    userIds.remove(user.getId());
+                }
+                userIds.forEach(this::remove);
+            }
+            cursor = changes.getCursor();
+        } while (changes.getChanges().size() == syncBatchSize);
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public void userStored(final UserEntity previous, final UserEntity stored) {
+        index(UserView.from(stored));
+    }
+
+    /**
+     * Adds or replaces a user in the index.
+     *
+     * @param user UserView
+     */
+    public void index(final UserView user) {
+        if (user == null || user.getId() == null) {
+            return;
+        }
+        final Document document = new Document(user);
+        synchronized (writeLock) {
+            if (changedDuringBuild != null) {
+                changedDuringBuild.add(document.id);
+            }
+            put(document);
+        }
+    }
+
+    /**
+     * Removes a user from the index.
+     *
+     * @param userId user ID
+     */
+    public void remove(final Long userId) {
+        synchronized (writeLock) {
+            if (changedDuringBuild != null) {
+                changedDuringBuild.add(userId);
+            }
+            final Document old = documents.remove(userId);
+            if (old != null) {
+                unindex(old);
+            }
+        }
+    }
+
+    /**
+     * Adds or replaces a document. Callers must hold writeLock.
+     *
+     * @param document Document
+     */
+    private void put(final Document document) {
+        final Document old = documents.put(document.id, document);
+        if (old != null) {
+            unindex(old);
+        }
+        for (final Map.Entry<String, Integer> term : document.terms.entrySet()) {
+            Map<Long, Integer> ids = postings.get(term.getKey());
+            if (ids == null) {
+                ids = new ConcurrentHashMap<>();
+                postings.put(term.getKey(), ids);
+                for (final String gram : grams(term.getKey())) {
+                    trigrams.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(term.getKey());
+                }
+            }
+            ids.merge(document.id, term.getValue(), Math::max);
+        }
+    }
+
+    /**
+     * Searches for users matching every token of the query, by prefix or (for longer tokens) approximately.
+     *
+     * @param query search text
+     * @param page  page number (zero based)
+     * @param size  page size
+     * @return UserSearchResults
+     */
+    public UserSearchResults search(final String query, final int page, final int size) {
+        final int pageNumber = Math.max(0, page);
+        final int pageSize = Math.max(1, Math.min(MAX_PAGE_SIZE, size));
+        final Map<Long, Integer> scores = score(tokenize(query));
+        final int limit = (pageNumber + 1) * pageSize;
+        final PriorityQueue<UserSearchResult> top = new PriorityQueue<>(BEST_FIRST.reversed());
+        for (final Map.Entry<Long, Integer> entry : scores.entrySet()) {
+            final Document document = documents.get(entry.getKey());
+            if (document == null) {
+                continue;
+            }
+            top.add(document.toResult(entry.getValue()));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        final List<UserSearchResult> ranked = new ArrayList<>(top);
+        ranked.sort(BEST_FIRST);
+        List<UserSearchResult> results = Collections.emptyList();
+        if (ranked.size() > pageNumber * pageSize) {
+            results = ranked.subList(pageNumber * pageSize, ranked.size());
+        }
+        return new UserSearchResults(pageNumber, pageSize, scores.size(), new ArrayList<>(results));
+    }
+
+    /**
+     * Scores users matching every query token.
+     *
+     * @param tokens query tokens
+     * @return user ID to score
+     */
+    private Map<Long, Integer> score(final List<String> tokens) {
+        Map<Long, Integer> scores = null;
+        for (final String token : tokens) {
+            final Map<Long, Integer> tokenScores = match(token);
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                scores.keySet().retainAll(tokenScores.keySet());
+                scores.replaceAll((id, score) -> score + tokenScores.get(id));
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+        if (scores == null) {
+            return Collections.emptyMap();
+        }
+        return scores;
+    }
+
+    /**
+     * Scores users matching a single query token.
+     *
+     * @param token query token
+     * @return user ID to score
+     */
+    private Map<Long, Integer> match(final String token) {
+        final Map<Long, Integer> scores = new HashMap<>();
+        int scanned = 0;
+        final Map<String, Map<Long, Integer>> prefixed =
+                postings.subMap(token, true, token + Character.MAX_VALUE, false);
+        for (final Map.Entry<String, Map<Long, Integer>> term : prefixed.entrySet()) {
+            int base = PREFIX_SCORE;
+            if (token.equals(term.getKey())) {
+                base = EXACT_SCORE;
+            }
+            for (final Map.Entry<Long, Integer> posting : term.getValue().entrySet()) {
+                scores.merge(posting.getKey(), base * posting.getValue(), Math::max);
+                scanned++;
+                if (scanned >= maxCandidates) {
+                    return scores;
+                }
+            }
+        }
+        if (token.length() >= GRAM_LENGTH) {
+            fuzzy(token, scores);
+        }
+        return scores;
+    }
+
+    /**
+     * Adds users with a term whose prefix is within the allowed edit distance of the token.
+     *
+     * @param token  query token
+     * @param scores user ID to score
+     */
+    private void fuzzy(final String token, final Map<Long, Integer> scores) {
+        int maxEdits = 1;
+        if (token.length() >= TWO_EDIT_TOKEN_LENGTH) {
+            maxEdits = 2;
+        }
+        final Set<String> tokenGrams = grams(token);
+        final Map<String, Integer> shared = new HashMap<>();
+        for (final String gram : tokenGrams) {
+            final Set<String> terms = trigrams.get(gram);
+            if (terms != null) {
+                for (final String term : terms) {
+                    shared.merge(term, 1, Integer::sum);
+                }
+            }
+        }
+        // Every edit destroys at most GRAM_LENGTH of the token's n-grams
+        final int threshold = Math.max(1, tokenGrams.size() - GRAM_LENGTH * maxEdits);
+        for (final Map.Entry<String, Integer> candidate : shared.entrySet()) {
+            final String term = candidate.getKey();
+            if (candidate.getValue() < threshold || term.startsWith(token)
+                    || prefixDistance(token, term, maxEdits) > maxEdits) {
+                continue;
+            }
+            final Map<Long, Integer> ids = postings.get(term);
+            if (ids != null) {
+                for (final Map.Entry<Long, Integer> posting : ids.entrySet()) {
+                    scores.merge(posting.getKey(), FUZZY_SCORE * posting.getValue(), Math::max);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes a document's postings. Callers must hold writeLock.
+     *
+     * @param document Document
+     */
+    private void unindex(final Document document) {
+        for (final String term : document.terms.keySet()) {
+            final Map<Long, Integer> ids = postings.get(term);
+            if (ids == null) {
+                continue;
+            }
+            ids.remove(document.id);
+            if (!ids.isEmpty()) {
+                continue;
+            }
+            postings.remove(term);
+            for (final String gram : grams(term)) {
+                final Set<String> terms = trigrams.get(gram);
+                if (terms != null) {
+                    terms.remove(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * Smallest edit distance between a token and any prefix of a term whose length is within maxEdits of the
+     * token's length.
+     *
+     * @param token    query token
+     * @param term     indexed term
+     * @param maxEdits maximum edits of interest
+     * @return edit distance (maxEdits + 1 when greater than maxEdits)
+     */
+    private static int prefixDistance(final String token, final String term, final int maxEdits) {
+        final int n = token.length();
+        final int m = Math.min(term.length(), n + maxEdits);
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            for (int j = 1; j <= m; j++) {
+                int cost = 1;
+                if (token.charAt(i - 1) == term.charAt(j - 1)) {
+                    cost = 0;
+                }
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            final int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        int best = maxEdits + 1;
+        for (int j = Math.max(0, n - maxEdits); j <= m; j++) {
+            best = Math.min(best, previous[j]);
+        }
+        return best;
+    }
+
+    /**
+     * Splits text into normalized tokens.
+     *
+     * @param text text
+     * @return tokens
+     */
+    private static List<String> tokenize(final String text) {
+        final List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (final String token : TOKEN_SEPARATORS.split(text.trim().toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Gets the n-grams of a term.
+     *
+     * @param term term
+     * @return n-grams
+     */
+    private static Set<String> grams(final String term) {
+        final Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= term.length(); i++) {
+            result.add(term.substring(i, i + GRAM_LENGTH));
+        }
+        return result;
+    }
+
+    /**
+     * Indexed view of a user.
+     */
+    private static final class Document {
+
+        /**
+         * User ID.
+         */
+        private final long id;
+
+        /**
+         * Username.
+         */
+        private final String username;
+
+        /**
+         * First name.
+         */
+        private final String firstName;
+
+        /**
+         * Last name.
+         */
+        private final String lastName;
+
+        /**
+         * Email.
+         */
+        private final String email;
+
+        /**
+         * Terms to best field weight.
+         */
+        private final Map<String, Integer> terms = new HashMap<>();
+
+        /**
+         * Document.
+         *
+         * @param user UserView
+         */
+        private Document(final UserView user) {
+            id = user.getId();
+            username = user.getUsername();
+            firstName = user.getFirstName();
+            lastName = user.getLastName();
+            email = user.getEmail();
+            addTerms(username, USERNAME_WEIGHT);
+            addTerms(firstName, NAME_WEIGHT);
+            addTerms(lastName, NAME_WEIGHT);
+            addTerms(email, EMAIL_WEIGHT);
+        }
+
+        /**
+         * Adds a field's value and tokens as terms.
+         *
+         * @param value  field value
+         * @param weight field weight
+         */
+        private void addTerms(final String value, final int weight) {
+            if (value == null || value.isBlank()) {
+                return;
+            }
+            terms.merge(value.trim().toLowerCase(Locale.ROOT), weight, Math::max);
+            for (final String token : tokenize(value)) {
+                terms.merge(token, weight, Math::max);
+            }
+        }
+
+        /**
+         * Creates a search result for this document.
+         *
+         * @param score score
+         * @return UserSearchResult
+         */
+        private UserSearchResult toResult(final int score) {
+            return new UserSearchResult(id, username, firstName, lastName, email, score);
+        }
+    }
+}
@@ -16,29 +16,38 @@
 
 package com.starfireaviation.users.service;
 
-import com.starfireaviation.common.CommonConstants;
 import com.starfireaviation.common.exception.ResourceNotFoundException;
+import com.starfireaviation.common.model.NotificationType;
 import com.starfireaviation.common.model.Role;
+import com.starfireaviation.users.client.PwnedPasswordsClient;
+import com.starfireaviation.users.exception.StacklessResourceNotFoundException;
+import com.starfireaviation.users.model.NotificationAddress;
+import com.starfireaviation.users.model.UserChangeEventEntity;
+import com.starfireaviation.users.model.UserChangeType;
 import com.starfireaviation.users.model.UserEntity;
+import com.starfireaviation.users.model.UserFlagUpdate;
 import com.starfireaviation.users.model.UserModel;
+import com.starfireaviation.users.model.UserOutboxRepository;
 import com.starfireaviation.users.model.UserRepository;
+import com.starfireaviation.users.model.UserSearchResults;
+import com.starfireaviation.users.model.UserView;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.util.StringUtils;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.net.URI;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * UserService.
@@ -46,15 +55,25 @@ import java.util.UUID;
 @Slf4j
 public class UserService {
 
+    /**
+     * Message for lookups of unknown users.
+     */
+    private static final String USER_NOT_FOUND = "User not found";
+
+    /**
+     * Notification addresses read per page.
+     */
+    private static final int ADDRESS_PAGE_SIZE = 1_000;
+
     /**
      * UserRepository.
      */
     private final UserRepository userRepository;
 
     /**
-     * Synchronous rest template.
+     * PwnedPasswordsClient.
      */
-    private final RestTemplate restTemplate;
+    private final PwnedPasswordsClient pwnedPasswordsClient;
 
     /**
      * VerificationTokenRepository.
@@ -68,22 +87,52 @@ public class UserService {
     @Autowired
     private PasswordResetTokenRepository passwordResetTokenRepository;
 
+    /**
+     * UserOutboxRepository.
+     */
+    @Autowired
+    private UserOutboxRepository userOutboxRepository;
+
     /**
      * PasswordEncoder.
      */
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    /**
+     * UsernameBloomFilter.
+     */
+    @Autowired
+    private UsernameBloomFilter usernameBloomFilter;
+
+    /**
+     * UserSearchIndex.
+     */
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
+    /**
+     * UserReadCoalescer.
+     */
+    @Autowired
+    private UserReadCoalescer userReadCoalescer;
+
+    /**
+     * UserChangeListeners.
+     */
+    @Autowired(required = false)
+    private List<UserChangeListener> userChangeListeners = new ArrayList<>();
+
     /**
      * UserService.
      *
      * @param uRepository UserRepository
-     * @param template    RestTemplate
+     * @param hibpClient  PwnedPasswordsClient
      */
     public UserService(final UserRepository uRepository,
-            final RestTemplate template) {
+            final PwnedPasswordsClient hibpClient) {
         userRepository = uRepository;
-        restTemplate = template;
+        pwnedPasswordsClient = hibpClient;
     }
 
     /**
@@ -94,11 +143,13 @@ public class UserService {
      * @throws ResourceNotFoundException when no user is found for the provided user
      *                                   ID
      */
+    @Transactional
     public UserEntity store(final UserEntity user) throws ResourceNotFoundException {
         if (user == null) {
             return user;
         }
         final Long userId = user.getId();
+        UserEntity previous = null;
         if (userId != null) {
             final UserEntity existingUser = findByIdWithPassword(userId);
             if (existingUser == null) {
@@ -106,6 +157,8 @@ public class UserService {
                 log.warn(msg);
                 throw new ResourceNotFoundException(msg);
             }
+            previous = new UserEntity(existingUser);
+            previous.setId(userId);
             if (existingUser.getEmail() != null && !existingUser.getEmail().equals(user.getEmail())) {
                 user.setEmailVerified(false);
             }
@@ -121,52 +174,176 @@ public class UserService {
             log.info(String.format("store() Setting role to %s", Role.STUDENT));
             user.setRole(Role.STUDENT);
         }
-        return userRepository.save(user);
+        final UserEntity stored = userRepository.save(user);
+        if (previous == null) {
+            recordChange(stored.getId(), UserChangeType.CREATED);
+        } else {
+            recordChange(stored.getId(), UserChangeType.UPDATED);
+        }
+        userStored(previous, stored);
+        return stored;
+    }
+
+    /**
+     * Applies flag updates to many users in one transaction. The changed rows are written as one JDBC batch (when
+     * hibernate.jdbc.batch_size is set), and each user gets an outbox row and a UserChangeListener notification exactly
+     * as with store(). Users which no longer exist, and updates which no longer apply (see UserFlagUpdate), are
+     * skipped.
+     *
+     * Rows are read with a write lock, so a concurrent store() or changePassword() either commits first and is seen
+     * here, or waits for this transaction. Only the changed columns are written (UserEntity uses dynamic updates), so
+     * a flush never writes back other fields.
+     *
+     * @param updates UserFlagUpdates by user ID
+     * @return number of users updated
+     */
+    @Transactional
+    public int storeFlags(final Map<Long, UserFlagUpdate> updates) {
+        if (updates.isEmpty()) {
+            return 0;
+        }
+        int updated = 0;
+        for (final UserEntity user : userRepository.lockByIdIn(updates.keySet())) {
+            final UserEntity previous = new UserEntity(user);
+            previous.setId(user.getId());
+            if (updates.get(user.getId()).applyTo(user)) {
+                recordChange(user.getId(), UserChangeType.UPDATED);
+                userStored(previous, detachedCopy(user));
+                updated++;
+            }
+        }
+        return updated;
     }
 
     /**
      * Gets all users.
      *
      * @return list of Users
-     * @throws ResourceNotFoundException when no user is found
-     */
-    public List<UserEntity> getAll() throws ResourceNotFoundException {
-        final List<UserEntity> users = new ArrayList<>();
-        final List<UserEntity> userEntities = userRepository.findAll();
-        for (final UserEntity userEntity : userEntities) {
-            final UserEntity user = get(userEntity.getId());
-            users.add(user);
+     */
+    @Transactional(readOnly = true)
+    public List<UserView> getAll() {
+        return userRepository.findAllViews();
+    }
+
+    /**
+     * Passes every user who can be reached on a notification channel to a consumer, in order of ID. Addresses are
+     * read a page at a time, each page in its own short read-only transaction, so that no transaction or connection
+     * is held while the consumer writes to a slow client. Not transactional itself for the same reason.
+     *
+     * @param type     NotificationType
+     * @param role     Role, or null for all roles
+     * @param consumer receives each NotificationAddress
+     * @return number of addresses
+     */
+    public long forEachDeliverableAddress(final NotificationType type,
+                                          final Role role,
+                                          final Consumer<NotificationAddress> consumer) {
+        long count = 0;
+        long afterId = Long.MIN_VALUE;
+        List<NotificationAddress> page;
+        do {
+            page = findAddresses(type, role, afterId);
+            for (final NotificationAddress address : page) {
+                consumer.accept(address);
+                count++;
+            }
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == ADDRESS_PAGE_SIZE);
+        return count;
+    }
+
+    /**
+     * Gets a page of addresses for a notification channel.
+     *
+     * @param type    NotificationType
+     * @param role    Role, or null for all roles
+     * @param afterId ID of the last address of the previous page
+     * @return NotificationAddresses
+     */
+    private List<NotificationAddress> findAddresses(final NotificationType type, final Role role, final long afterId) {
+        final Pageable page = PageRequest.of(0, ADDRESS_PAGE_SIZE);
+        switch (type) {
+            case EMAIL:
+                return userRepository.findEmailAddresses(role, afterId, page);
+            case SMS:
+                return userRepository.findSmsAddresses(role, afterId, page);
+            case SLACK:
+                return userRepository.findSlackAddresses(role, afterId, page);
+            default:
+                return List.of();
         }
-        return users;
     }
 
     /**
-     * Gets a user.
+     * Gets a user. Concurrent reads of the same user share one database call.
      *
      * @param id Long
      * @return User
      * @throws ResourceNotFoundException when no user is found for the provided user
      *                                   ID
      */
-    public UserEntity get(final long id) throws ResourceNotFoundException {
-        final UserEntity user = userRepository.findById(id);
+    public UserView get(final long id) throws ResourceNotFoundException {
+        final UserView user = userReadCoalescer.get(id);
         if (user == null) {
-            throw new ResourceNotFoundException();
+            throw new StacklessResourceNotFoundException(USER_NOT_FOUND);
         }
-        user.setPassword(null);
         return user;
     }
 
     /**
-     * Gets a user by username.
+     * Gets a detached copy of a user, without its password, to be modified and passed to store().
+     *
+     * @param id Long
+     * @return User
+     * @throws ResourceNotFoundException when no user is found for the provided user
+     *                                   ID
+     */
+    @Transactional(readOnly = true)
+    public UserEntity getForUpdate(final long id) throws ResourceNotFoundException {
+        final UserEntity user = userRepository.findById(id);
+        if (user == null) {
+            throw new StacklessResourceNotFoundException(USER_NOT_FOUND);
+        }
+        return detachedCopy(user);
+    }
+
+    /**
+     * Gets a user by username. Concurrent reads of the same user share one database call.
      *
      * @param username username
      * @return User
      */
-    public UserEntity findByUsername(final String username) {
-        final UserEntity user = userRepository.findByUsername(username);
-        user.setPassword(null);
-        return user;
+    public UserView findByUsername(final String username) {
+        return userReadCoalescer.findByUsername(username);
+    }
+
+    /**
+     * Determines if a username is available. The database is only consulted when the username filter reports a
+     * possible hit.
+     *
+     * @param username username
+     * @return username available?
+     */
+    @Transactional(readOnly = true)
+    public boolean isUsernameAvailable(final String username) {
+        if (!usernameBloomFilter.mightContain(username)) {
+            return true;
+        }
+        return !userRepository.existsByUsername(username);
+    }
+
+    /**
+     * Searches users by username, first name, last name and email address.
+     *
+     * @param query search text
+     * @param page  page number (zero based)
+     * @param size  page size
+     * @return UserSearchResults
+     */
+    public UserSearchResults search(final String query, final int page, final int size) {
+        return userSearchIndex.search(query, page, size);
     }
 
     /**
@@ -175,56 +352,34 @@ public class UserService {
      * @param email User's email address
      * @return User
      */
-    public UserEntity findByEmail(final String email) {
+    @Transactional(readOnly = true)
+    public UserView findByEmail(final String email) {
+        return UserView.from(userRepository.findByEmail(email));
+    }
+
+    /**
+     * Gets a detached copy of a user by email, without its password, to be modified and passed to store().
+     *
+     * @param email User's email address
+     * @return User, or null when no user has the provided email address
+     */
+    @Transactional(readOnly = true)
+    public UserEntity findByEmailForUpdate(final String email) {
         final UserEntity user = userRepository.findByEmail(email);
-        user.setPassword(null);
-        return user;
+        if (user == null) {
+            return null;
+        }
+        return detachedCopy(user);
     }
 
     /**
-     * Checks database for compromised password.
+     * Checks the Pwned Passwords database for a compromised password.
      *
      * @param sha1Hash SHA-1 hashed password
-     * @return number of times password has been found
+     * @return number of times password has been found, or -1 when it could not be determined
      */
     public int checkIfPasswordIsCompromised(final String sha1Hash) {
-        int count = 0;
-        log.info(String.format("Checking password hash [%s]", sha1Hash));
-        if (StringUtils.isEmpty(sha1Hash)) {
-            return 0;
-        }
-        try {
-            final String prefix = sha1Hash.substring(0, 5);
-            final URI builtUri = UriComponentsBuilder
-                    .fromHttpUrl("https://api.pwnedpasswords.com/range/" + prefix)
-                    .build()
-                    .encode()
-                    .toUri();
-
-            final ResponseEntity<String> responseResponseEntity = restTemplate.exchange(builtUri, HttpMethod.GET, null,
-                    String.class);
-            if (responseResponseEntity.getStatusCode() == HttpStatus.OK) {
-                String[] rows = responseResponseEntity.getBody().split("\n");
-                for (String row : rows) {
-                    String[] record = row.split(":");
-                    if (record.length == 2 && sha1Hash.equalsIgnoreCase(prefix + record[0])) {
-                        count = Integer.parseInt(record[1].trim());
-                        break;
-                    }
-                }
-            } else if (responseResponseEntity.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
-                try {
-                    int seconds = Integer
-                            .parseInt(responseResponseEntity.getHeaders().get("Retry-After").get(0).trim());
-                    Thread.sleep((long) seconds * CommonConstants.ONE_THOUSAND);
-                    return checkIfPasswordIsCompromised(sha1Hash);
-                } catch (InterruptedException | NumberFormatException ignored) {
-                }
-            }
-        } catch (HttpClientErrorException e) {
-            // A 404 response means the password has not been compromised
-        }
-        return count;
+        return pwnedPasswordsClient.count(sha1Hash);
     }
 
     /**
@@ -233,6 +388,7 @@ public class UserService {
      * @param userModel UserModel
      * @return User
      */
+    @Transactional
     public UserEntity registerUser(final UserModel userModel) {
         final UserEntity user = new UserEntity();
         user.setEmail(userModel.getEmail());
@@ -241,7 +397,9 @@ public class UserService {
         user.setRole(Role.STUDENT);
         user.setPassword(passwordEncoder.encode(userModel.getPassword()));
 
-        userRepository.save(user);
+        final UserEntity stored = userRepository.save(user);
+        recordChange(stored.getId(), UserChangeType.CREATED);
+        userStored(null, stored);
         return user;
     }
 
@@ -263,6 +421,7 @@ public class UserService {
      * @param token token
      * @return success
      */
+    @Transactional
     public String validateVerificationToken(final String token) {
         final VerificationToken verificationToken = verificationTokenRepository.findByToken(token);
 
@@ -281,6 +440,7 @@ public class UserService {
 
         user.setEnabled(true);
         userRepository.save(user);
+        recordChange(user.getId(), UserChangeType.ENABLED);
         return "valid";
     }
 
@@ -303,6 +463,7 @@ public class UserService {
      * @param email address
      * @return User
      */
+    @Transactional(readOnly = true)
     public UserEntity findUserByEmail(final String email) {
         return userRepository.findByEmail(email);
     }
@@ -324,6 +485,7 @@ public class UserService {
      * @param token token
      * @return success
      */
+    @Transactional
     public String validatePasswordResetToken(final String token) {
         final PasswordResetToken passwordResetToken = passwordResetTokenRepository.findByToken(token);
 
@@ -354,14 +516,16 @@ public class UserService {
     }
 
     /**
-     * Change password.
+     * Change password. The user may be a detached copy from getForUpdate(); its other fields are stored as well.
      *
      * @param user User
-     * @param newPassword new password
+     * @param newPassword new password, not yet encoded
      */
+    @Transactional
     public void changePassword(final UserEntity user, final String newPassword) {
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        recordChange(user.getId(), UserChangeType.PASSWORD_CHANGED);
     }
 
     /**
@@ -375,6 +539,64 @@ public class UserService {
         return passwordEncoder.matches(oldPassword, user.getPassword());
     }
 
+    /**
+     * Appends a change to the user outbox. Must be called within the transaction making the change.
+     *
+     * @param userId user ID
+     * @param type   UserChangeType
+     */
+    private void recordChange(final Long userId, final UserChangeType type) {
+        final UserChangeEventEntity event = new UserChangeEventEntity();
+        event.setUserId(userId);
+        event.setChangeType(type);
+        event.setCreatedAt(Instant.now());
+        userOutboxRepository.save(event);
+    }
+
+    /**
+     * Notifies UserChangeListeners that a user has been stored, once the surrounding transaction (if any) commits.
+     *
+     * @param previous user as it was before the change, or null for a new user
+     * @param stored   user as stored
+     */
+    private void userStored(final UserEntity previous, final UserEntity stored) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            notifyListeners(previous, stored);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                notifyListeners(previous, stored);
+            }
+        });
+    }
+
+    /**
+     * Notifies UserChangeListeners that a user has been stored.
+     *
+     * @param previous user as it was before the change, or null for a new user
+     * @param stored   user as stored
+     */
+    private void notifyListeners(final UserEntity previous, final UserEntity stored) {
+        for (final UserChangeListener listener : userChangeListeners) {
+            listener.userStored(previous, stored);
+        }
+    }
+
+    /**
+     * Copies a user so that callers never modify an instance tracked by the persistence context.
+     *
+     * @param user UserEntity
+     * @return copy of the user, without its password
+     */
+    private static UserEntity detachedCopy(final UserEntity user) {
+        final UserEntity copy = new UserEntity(user);
+        copy.setId(user.getId());
+        copy.setPassword(null);
+        return copy;
+    }
+
     /**
      * Gets UserEntity including the user's password.
      *
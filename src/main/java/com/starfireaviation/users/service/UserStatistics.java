@@ -0,0 +1,331 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.service;
+
+import com.starfireaviation.common.model.NotificationPreference;
+import com.starfireaviation.common.model.Role;
+import com.starfireaviation.users.model.UserCount;
+import com.starfireaviation.users.model.UserEntity;
+import com.starfireaviation.users.model.UserRepository;
+import com.starfireaviation.users.model.UserStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * User counts by role, notification preference and verification status, maintained incrementally as users are
+ * stored so that reading them costs no database access. The counts are built once the application is ready and
+ * periodically reconciled against a single GROUP BY query, which corrects any drift (e.g. from changes made by other
+ * nodes or directly in the database).
+ */
+@Slf4j
+public class UserStatistics implements UserChangeListener, ApplicationListener<ApplicationReadyEvent>, MeterBinder {
+
+    /**
+     * Attempts made to build the counts at startup while users are being stored concurrently.
+     */
+    private static final int BUILD_ATTEMPTS = 3;
+
+    /**
+     * UserRepository.
+     */
+    private final UserRepository userRepository;
+
+    /**
+     * Live counts.
+     */
+    private final Counts counts = new Counts();
+
+    /**
+     * Number of changes applied, used to detect changes made while reconciling.
+     */
+    private final LongAdder changes = new LongAdder();
+
+    /**
+     * Reconciliations which found and corrected drift.
+     */
+    private final LongAdder corrections = new LongAdder();
+
+    /**
+     * Ready flag. Set once the counts have been built from the database.
+     */
+    private volatile boolean ready;
+
+    /**
+     * UserStatistics.
+     *
+     * @param uRepository UserRepository
+     */
+    public UserStatistics(final UserRepository uRepository) {
+        userRepository = uRepository;
+    }
+
+    /**
+     * Builds the counts from the database once the application is ready.
+     *
+     * @param event ApplicationReadyEvent
+     */
+    @Override
+    public void onApplicationEvent(final ApplicationReadyEvent event) {
+        for (int attempt = 0; attempt < BUILD_ATTEMPTS && !ready; attempt++) {
+            reconcile();
+        }
+    }
+
+    /**
+     * Gets the current counts, building them first if that has not happened yet.
+     *
+     * @return UserStats
+     */
+    public UserStats getStats() {
+        if (!ready) {
+            reconcile();
+        }
+        return counts.toStats();
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public void userStored(final UserEntity previous, final UserEntity stored) {
+        counts.add(previous, -1);
+        counts.add(stored, 1);
+        changes.increment();
+    }
+
+    /**
+     * Compares the counts with the database and corrects them. Skipped when users were stored while the database was
+     * being counted, since the result could not be attributed; the next run picks it up.
+     *
+     * @return whether the counts were reconciled
+     */
+    @Scheduled(
+            initialDelayString = "${groundschool.stats-reconcile-interval-ms:60000}",
+            fixedDelayString = "${groundschool.stats-reconcile-interval-ms:60000}")
+    public boolean reconcile() {
+        final long before = changes.sum();
+        final List<UserCount> rows;
+        try {
+            rows = userRepository.countUsers();
+        } catch (RuntimeException e) {
+            log.warn(String.format("Unable to reconcile user statistics: %s", e.getMessage()));
+            return false;
+        }
+        if (changes.sum() != before) {
+            return false;
+        }
+        final Counts expected = new Counts();
+        for (final UserCount row : rows) {
+            expected.add(row);
+        }
+        final UserStats actual = counts.toStats();
+        final UserStats wanted = expected.toStats();
+        if (!actual.equals(wanted)) {
+            counts.correct(expected);
+            if (ready) {
+                corrections.increment();
+                log.warn(String.format("User statistics drifted from %s to %s; corrected", actual, wanted));
+            }
+        }
+        ready = true;
+        return true;
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        FunctionCounter
+                .builder("users.stats.corrections", corrections, LongAdder::sum)
+                .description("Reconciliations which found the incremental user statistics had drifted")
+                .register(registry);
+    }
+
+    /**
+     * A set of user counts.
+     */
+    private static final class Counts {
+
+        /**
+         * Total users.
+         */
+        private final LongAdder total = new LongAdder();
+
+        /**
+         * Enabled users.
+         */
+        private final LongAdder enabled = new LongAdder();
+
+        /**
+         * Users with a verified email address.
+         */
+        private final LongAdder emailVerified = new LongAdder();
+
+        /**
+         * Users with a verified SMS number.
+         */
+        private final LongAdder smsVerified = new LongAdder();
+
+        /**
+         * Users with a verified Slack name.
+         */
+        private final LongAdder slackVerified = new LongAdder();
+
+        /**
+         * Users by role. Populated for every role up front and never modified afterwards.
+         */
+        private final Map<Role, LongAdder> byRole = new EnumMap<>(Role.class);
+
+        /**
+         * Users by notification preference. Populated for every preference up front and never modified afterwards.
+         */
+        private final Map<NotificationPreference, LongAdder> byPreference = new EnumMap<>(NotificationPreference.class);
+
+        /**
+         * Counts.
+         */
+        private Counts() {
+            for (final Role role : Role.values()) {
+                byRole.put(role, new LongAdder());
+            }
+            for (final NotificationPreference preference : NotificationPreference.values()) {
+                byPreference.put(preference, new LongAdder());
+            }
+        }
+
+        /**
+         * Adds (or, with a negative delta, removes) a user.
+         *
+         * @param user  UserEntity, ignored when null
+         * @param delta 1 or -1
+         */
+        private void add(final UserEntity user, final long delta) {
+            if (user == null) {
+                return;
+            }
+            add(user.getRole(), user.getNotificationPreference(), user.isEnabled(), user.isEmailVerified(),
+                    user.isSmsVerified(), user.isSlackVerified(), delta);
+        }
+
+        /**
+         * Adds a row of the reconciliation query.
+         *
+         * @param row UserCount
+         */
+        private void add(final UserCount row) {
+            add(row.getRole(), row.getNotificationPreference(), row.isEnabled(), row.isEmailVerified(),
+                    row.isSmsVerified(), row.isSlackVerified(), row.getCount());
+        }
+
+        /**
+         * Adds users sharing the same attributes.
+         *
+         * @param role            Role
+         * @param preference      NotificationPreference
+         * @param isEnabled       enabled?
+         * @param isEmailVerified email verified?
+         * @param isSmsVerified   SMS verified?
+         * @param isSlackVerified Slack verified?
+         * @param delta           number of users (negative to remove)
+         */
+        @SuppressWarnings("checkstyle:ParameterNumber")
+        private void add(final Role role,
+                         final NotificationPreference preference,
+                         final boolean isEnabled,
+                         final boolean isEmailVerified,
+                         final boolean isSmsVerified,
+                         final boolean isSlackVerified,
+                         final long delta) {
+            total.add(delta);
+            if (isEnabled) {
+                enabled.add(delta);
+            }
+            if (isEmailVerified) {
+                emailVerified.add(delta);
+            }
+            if (isSmsVerified) {
+                smsVerified.add(delta);
+            }
+            if (isSlackVerified) {
+                slackVerified.add(delta);
+            }
+            if (role != null) {
+                byRole.get(role).add(delta);
+            }
+            if (preference != null) {
+                byPreference.get(preference).add(delta);
+            }
+        }
+
+        /**
+         * Adjusts every count to match another set of counts.
+         *
+         * @param expected Counts
+         */
+        private void correct(final Counts expected) {
+            correct(total, expected.total);
+            correct(enabled, expected.enabled);
+            correct(emailVerified, expected.emailVerified);
+            correct(smsVerified, expected.smsVerified);
+            correct(slackVerified, expected.slackVerified);
+            for (final Map.Entry<Role, LongAdder> entry : byRole.entrySet()) {
+                correct(entry.getValue(), expected.byRole.get(entry.getKey()));
+            }
+            for (final Map.Entry<NotificationPreference, LongAdder> entry : byPreference.entrySet()) {
+                correct(entry.getValue(), expected.byPreference.get(entry.getKey()));
+            }
+        }
+
+        /**
+         * Adjusts a count to match an expected value.
+         *
+         * @param actual   LongAdder to adjust
+         * @param expected LongAdder holding the expected value
+         */
+        private static void correct(final LongAdder actual, final LongAdder expected) {
+            actual.add(expected.sum() - actual.sum());
+        }
+
+        /**
+         * Reads the counts.
+         *
+         * @return UserStats
+         */
+        private UserStats toStats() {
+            final Map<Role, Long> roles = new EnumMap<>(Role.class);
+            for (final Map.Entry<Role, LongAdder> entry : byRole.entrySet()) {
+                roles.put(entry.getKey(), entry.getValue().sum());
+            }
+            final Map<NotificationPreference, Long> preferences = new EnumMap<>(NotificationPreference.class);
+            for (final Map.Entry<NotificationPreference, LongAdder> entry : byPreference.entrySet()) {
+                preferences.put(entry.getKey(), entry.getValue().sum());
+            }
+            return new UserStats(total.sum(), enabled.sum(), emailVerified.sum(), smsVerified.sum(),
+                    slackVerified.sum(), roles, preferences);
+        }
+    }
+}
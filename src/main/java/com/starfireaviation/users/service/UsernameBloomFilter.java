@@ -0,0 +1,322 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.service;
+
+import com.starfireaviation.users.model.UserChange;
+import com.starfireaviation.users.model.UserChangeType;
+import com.starfireaviation.users.model.UserChanges;
+import com.starfireaviation.users.model.UserEntity;
+import com.starfireaviation.users.model.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+
+/**
+ * Bloom filter over normalized usernames. A negative answer is definitive, so most username availability checks
+ * never reach the database; only a possible hit is confirmed against the database. The filter is built once the
+ * application is ready and kept current as users are stored, both by this instance and (through the change feed) by
+ * every other replica. Usernames which are changed or removed are not cleared from the filter; they can only cause a
+ * (harmless) database lookup.
+ */
+@Slf4j
+public class UsernameBloomFilter implements UserChangeListener, ApplicationListener<ApplicationReadyEvent> {
+
+    /**
+     * Bits per long word.
+     */
+    private static final int BITS_PER_WORD = 64;
+
+    /**
+     * Shift from a bit index to its word index.
+     */
+    private static final int WORD_SHIFT = 6;
+
+    /**
+     * FNV-1a 64-bit offset basis.
+     */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    /**
+     * FNV-1a 64-bit prime.
+     */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Seed used to derive the second hash.
+     */
+    private static final long SECOND_HASH_SEED = 0x9e3779b97f4a7c15L;
+
+    /**
+     * Mask for an unsigned byte.
+     */
+    private static final int BYTE_MASK = 0xff;
+
+    /**
+     * UserRepository.
+     */
+    private final UserRepository userRepository;
+
+    /**
+     * UserChangeFeed.
+     */
+    private final UserChangeFeed userChangeFeed;
+
+    /**
+     * Maximum number of changes read from the change feed at a time.
+     */
+    private final int syncBatchSize;
+
+    /**
+     * Number of bits.
+     */
+    private final long bitCount;
+
+    /**
+     * Number of hash functions.
+     */
+    private final int hashCount;
+
+    /**
+     * Filter bits.
+     */
+    private volatile AtomicLongArray bits;
+
+    /**
+     * Bits being built by a rebuild in progress, if any.
+     */
+    private volatile AtomicLongArray building;
+
+    /**
+     * Ready flag. Until the filter has been built every username is a possible hit.
+     */
+    private volatile boolean ready;
+
+    /**
+     * Change feed cursor up to which other replicas' changes have been added. Guarded by this.
+     */
+    private long cursor = -1;
+
+    /**
+     * UsernameBloomFilter.
+     *
+     * @param uRepository        UserRepository
+     * @param changeFeed         UserChangeFeed
+     * @param expectedInsertions expected number of usernames
+     * @param falsePositiveRate  desired false positive rate
+     * @param syncBatch          maximum number of changes read from the change feed at a time
+     */
+    public UsernameBloomFilter(final UserRepository uRepository,
+                               final UserChangeFeed changeFeed,
+                               final long expectedInsertions,
+                               final double falsePositiveRate,
+                               final int syncBatch) {
+        userRepository = uRepository;
+        userChangeFeed = changeFeed;
+        syncBatchSize = syncBatch;
+        final double n = Math.max(1, expectedInsertions);
+        final long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        bitCount = Math.max(BITS_PER_WORD, m);
+        hashCount = Math.max(1, (int) Math.round(bitCount / n * Math.log(2)));
+        bits = newBits();
+    }
+
+    /**
+     * Builds the filter from the database once the application is ready.
+     *
+     * @param event ApplicationReadyEvent
+     */
+    @Override
+    public void onApplicationEvent(final ApplicationReadyEvent event) {
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the filter from the database. Changes relayed after the current change feed position are added by
+     * sync().
+     */
+    public synchronized void rebuild() {
+        final long from = userChangeFeed.start();
+        final AtomicLongArray fresh = newBits();
+        building = fresh;
+        final List<String> usernames = userRepository.findAllUsernames();
+        for (final String username : usernames) {
+            set(fresh, username);
+        }
+        bits = fresh;
+        building = null;
+        cursor = from;
+        ready = true;
+        log.info(String.format("Username filter built with %s usernames (%s bits, %s hashes)",
+                usernames.size(), bitCount, hashCount));
+    }
+
+    /**
+     * Adds the usernames of users created or updated on any replica since the last sync, as relayed by the change
+     * feed.
+     */
+    @Scheduled(fixedDelayString = "${groundschool.username-filter-sync-interval-ms:1000}")
+    public synchronized void sync() {
+        if (cursor < 0) {
+            return;
+        }
+        UserChanges changes;
+        do {
+            changes = userChangeFeed.changes(cursor, syncBatchSize);
+            final List<Long> userIds = changes
+                    .getChanges()
+                    .stream()
+                    .filter(change -> change.getType() == UserChangeType.CREATED
+                            || change.getType() == UserChangeType.UPDATED)
+                    .map(UserChange::getUserId)
+                    .distinct()
+                    .collect(Collectors.toList());
+            if (!userIds.isEmpty()) {
+                for (final String username : userRepository.findUsernamesByIdIn(userIds)) {
+                    add(username);
+                }
+            }
+            cursor = changes.getCursor();
+        } while (changes.getChanges().size() == syncBatchSize);
+    }
+
+    /**
+     * Determines if a username might have been taken.
+     *
+     * @param username username
+     * @return false when the username has definitely not been taken
+     */
+    public boolean mightContain(final String username) {
+        if (!ready) {
+            return true;
+        }
+        if (username == null) {
+            return false;
+        }
+        final AtomicLongArray current = bits;
+        final long h1 = hash(normalize(username));
+        final long h2 = mix(h1 ^ SECOND_HASH_SEED);
+        for (int i = 0; i < hashCount; i++) {
+            final long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((current.get((int) (bit >>> WORD_SHIFT)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a username to the filter.
+     *
+     * @param username username
+     */
+    public void add(final String username) {
+        if (username == null) {
+            return;
+        }
+        set(bits, username);
+        final AtomicLongArray inProgress = building;
+        if (inProgress != null) {
+            set(inProgress, username);
+        }
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public void userStored(final UserEntity previous, final UserEntity stored) {
+        add(stored.getUsername());
+    }
+
+    /**
+     * Sets the bits for a username.
+     *
+     * @param target   bits to update
+     * @param username username
+     */
+    private void set(final AtomicLongArray target, final String username) {
+        final long h1 = hash(normalize(username));
+        final long h2 = mix(h1 ^ SECOND_HASH_SEED);
+        for (int i = 0; i < hashCount; i++) {
+            final long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            final int word = (int) (bit >>> WORD_SHIFT);
+            final long mask = 1L << bit;
+            long value = target.get(word);
+            while ((value & mask) == 0 && !target.compareAndSet(word, value, value | mask)) {
+                value = target.get(word);
+            }
+        }
+    }
+
+    /**
+     * Allocates an empty bit array.
+     *
+     * @return AtomicLongArray
+     */
+    private AtomicLongArray newBits() {
+        return new AtomicLongArray((int) ((bitCount + BITS_PER_WORD - 1) / BITS_PER_WORD));
+    }
+
+    /**
+     * Normalizes a username.
+     *
+     * @param username username
+     * @return normalized username
+     */
+    private static String normalize(final String username) {
+        return username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * FNV-1a hash of the UTF-8 bytes of a String, finalized with mix().
+     *
+     * @param value String
+     * @return 64-bit hash
+     */
+    private static long hash(final String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (final byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & BYTE_MASK;
+            hash *= FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * MurmurHash3 64-bit finalizer.
+     *
+     * @param value value
+     * @return mixed value
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    private static long mix(final long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.session;
+
+import org.springframework.session.web.http.HttpSessionIdResolver;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * HttpSessionIdResolver which neither reads nor issues session IDs, so no session cookie is ever sent.
+ */
+public class NoSessionIdResolver implements HttpSessionIdResolver {
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public List<String> resolveSessionIds(final HttpServletRequest request) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public void setSessionId(final HttpServletRequest request,
+                             final HttpServletResponse response,
+                             final String sessionId) {
+        // No session cookie
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public void expireSession(final HttpServletRequest request, final HttpServletResponse response) {
+        // No session cookie
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.session;
+
+/**
+ * Where HTTP sessions are kept.
+ */
+public enum SessionStore {
+
+    /**
+     * In the servlet container of each replica. Requires sticky routing beyond one replica.
+     */
+    LOCAL,
+
+    /**
+     * In a Hazelcast map shared by all replicas, so any replica can serve any request.
+     */
+    HAZELCAST,
+
+    /**
+     * Nowhere. Every request authenticates itself; sessions last for a single request and no cookie is issued.
+     */
+    STATELESS
+}
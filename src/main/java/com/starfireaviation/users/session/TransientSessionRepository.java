@@ -0,0 +1,57 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.session;
+
+import org.springframework.session.MapSession;
+import org.springframework.session.SessionRepository;
+
+/**
+ * SessionRepository which never stores anything, so a session only lives for the request which created it.
+ */
+public class TransientSessionRepository implements SessionRepository<MapSession> {
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public MapSession createSession() {
+        return new MapSession();
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public void save(final MapSession session) {
+        // Not kept beyond the request
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public MapSession findById(final String id) {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public void deleteById(final String id) {
+        // Nothing stored
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.validation;
+
+/**
+ * Outcome of an authorization check: allowed or denied, with the reason and, when known, the logged in user's ID.
+ */
+public final class AccessDecision {
+
+    /**
+     * Reason for a decision.
+     */
+    public enum Reason {
+
+        /**
+         * Access granted.
+         */
+        GRANTED,
+
+        /**
+         * No principal was provided.
+         */
+        NO_PRINCIPAL,
+
+        /**
+         * The principal does not match a user.
+         */
+        UNKNOWN_USER,
+
+        /**
+         * The user's role does not permit the operation.
+         */
+        ROLE_NOT_PERMITTED,
+
+        /**
+         * The operation is restricted to another user.
+         */
+        NOT_SPECIFIC_USER
+    }
+
+    /**
+     * Denied because no principal was provided.
+     */
+    private static final AccessDecision NO_PRINCIPAL = new AccessDecision(Reason.NO_PRINCIPAL, null);
+
+    /**
+     * Denied because the principal does not match a user.
+     */
+    private static final AccessDecision UNKNOWN_USER = new AccessDecision(Reason.UNKNOWN_USER, null);
+
+    /**
+     * Reason.
+     */
+    private final Reason reason;
+
+    /**
+     * Logged in user's ID.
+     */
+    private final Long userId;
+
+    /**
+     * AccessDecision.
+     *
+     * @param aReason Reason
+     * @param id      logged in user's ID
+     */
+    private AccessDecision(final Reason aReason, final Long id) {
+        reason = aReason;
+        userId = id;
+    }
+
+    /**
+     * Access granted.
+     *
+     * @param userId logged in user's ID
+     * @return AccessDecision
+     */
+    public static AccessDecision allow(final Long userId) {
+        return new AccessDecision(Reason.GRANTED, userId);
+    }
+
+    /**
+     * Access denied.
+     *
+     * @param reason Reason
+     * @param userId logged in user's ID, if known
+     * @return AccessDecision
+     */
+    public static AccessDecision deny(final Reason reason, final Long userId) {
+        if (reason == Reason.GRANTED) {
+            throw new IllegalArgumentException("A denial requires a reason");
+        }
+        if (reason == Reason.NO_PRINCIPAL) {
+            return NO_PRINCIPAL;
+        }
+        if (reason == Reason.UNKNOWN_USER) {
+            return UNKNOWN_USER;
+        }
+        return new AccessDecision(reason, userId);
+    }
+
+    /**
+     * Determines if access is allowed.
+     *
+     * @return allowed?
+     */
+    public boolean isAllowed() {
+        return reason == Reason.GRANTED;
+    }
+
+    /**
+     * Gets the reason for the decision.
+     *
+     * @return Reason
+     */
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * Gets the logged in user's ID.
+     *
+     * @return user ID, or null when the user is unknown
+     */
+    public Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "AccessDecision[" + reason + ", userId=" + userId + "]";
+    }
+}
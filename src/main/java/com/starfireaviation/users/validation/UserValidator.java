@@ -16,15 +16,23 @@
 
 package com.starfireaviation.users.validation;
 
+import com.starfireaviation.common.exception.AccessDeniedException;
 import com.starfireaviation.common.exception.ConflictException;
 import com.starfireaviation.common.exception.InvalidPayloadException;
+import com.starfireaviation.common.exception.ResourceNotFoundException;
 import com.starfireaviation.common.model.User;
+import com.starfireaviation.users.exception.StacklessAccessDeniedException;
+import com.starfireaviation.users.exception.StacklessConflictException;
+import com.starfireaviation.users.exception.StacklessInvalidPayloadException;
 import com.starfireaviation.users.model.UserRepository;
+import com.starfireaviation.users.model.UserView;
 import com.starfireaviation.users.service.UserService;
 import com.starfireaviation.common.model.Role;
 import lombok.extern.slf4j.Slf4j;
 
 import java.security.Principal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * UserValidator.
@@ -32,6 +40,21 @@ import java.security.Principal;
 @Slf4j
 public class UserValidator extends BaseValidator {
 
+    /**
+     * Minimum time (ns) between logged access denials. Denials in between are counted and reported with the next one.
+     */
+    private static final long DENIAL_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Earliest time (System.nanoTime()) at which the next access denial is logged.
+     */
+    private static final AtomicLong NEXT_DENIAL_LOG = new AtomicLong(System.nanoTime());
+
+    /**
+     * Access denials not logged since the last one that was.
+     */
+    private static final AtomicLong SUPPRESSED_DENIALS = new AtomicLong();
+
     /**
      * UserRepository.
      */
@@ -71,7 +94,7 @@ public class UserValidator extends BaseValidator {
         if (user == null) {
             String msg = "No user information was provided";
             log.warn(msg);
-            throw new InvalidPayloadException(msg);
+            throw new StacklessInvalidPayloadException(msg);
         }
     }
 
@@ -102,7 +125,7 @@ public class UserValidator extends BaseValidator {
         if (user.getUsername() == null) {
             String msg = "Username is a required value";
             log.warn(msg);
-            throw new InvalidPayloadException(msg);
+            throw new StacklessInvalidPayloadException(msg);
         }
         User existingUser = userRepository.findByUsername(user.getUsername());
         if (existingUser != null && existingUser.getId() != user.getId()) {
@@ -114,7 +137,7 @@ public class UserValidator extends BaseValidator {
                             + "] has already taken username [%s]",
                     user.getUsername());
             log.warn(msg);
-            throw new ConflictException(msg);
+            throw new StacklessConflictException(msg);
         }
     }
 
@@ -136,7 +159,7 @@ public class UserValidator extends BaseValidator {
                                 + "] has already taken number [%s]",
                         user.getSms());
                 log.warn(msg);
-                throw new ConflictException(msg);
+                throw new StacklessConflictException(msg);
             }
         }
     }
@@ -159,7 +182,7 @@ public class UserValidator extends BaseValidator {
                                 + "] has already taken slack name [%s]",
                         user.getSlack());
                 log.warn(msg);
-                throw new ConflictException(msg);
+                throw new StacklessConflictException(msg);
             }
         }
     }
@@ -182,7 +205,7 @@ public class UserValidator extends BaseValidator {
                                 + "] has already taken email address [%s]",
                         user.getEmail());
                 log.warn(msg);
-                throw new ConflictException(msg);
+                throw new StacklessConflictException(msg);
             }
         }
     }
@@ -192,6 +215,96 @@ public class UserValidator extends BaseValidator {
      */
     private final UserService userService;
 
+    /**
+     * Decides whether the principal is an admin or instructor.
+     *
+     * @param principal Principal
+     * @return AccessDecision
+     */
+    public AccessDecision decideAdminOrInstructor(final Principal principal) {
+        final UserView loggedInUser = loggedInUser(principal);
+        if (loggedInUser == null) {
+            return unknown(principal);
+        }
+        final Role role = loggedInUser.getRole();
+        if (role != Role.ADMIN && role != Role.INSTRUCTOR) {
+            return AccessDecision.deny(AccessDecision.Reason.ROLE_NOT_PERMITTED, loggedInUser.getId());
+        }
+        return AccessDecision.allow(loggedInUser.getId());
+    }
+
+    /**
+     * Decides whether the principal is an admin.
+     *
+     * @param principal Principal
+     * @return AccessDecision
+     */
+    public AccessDecision decideAdmin(final Principal principal) {
+        final UserView loggedInUser = loggedInUser(principal);
+        if (loggedInUser == null) {
+            return unknown(principal);
+        }
+        if (loggedInUser.getRole() != Role.ADMIN) {
+            return AccessDecision.deny(AccessDecision.Reason.ROLE_NOT_PERMITTED, loggedInUser.getId());
+        }
+        return AccessDecision.allow(loggedInUser.getId());
+    }
+
+    /**
+     * Decides whether the principal is any authenticated user.
+     *
+     * @param principal Principal
+     * @return AccessDecision
+     */
+    public AccessDecision decideAnyAuthenticated(final Principal principal) {
+        final UserView loggedInUser = loggedInUser(principal);
+        if (loggedInUser == null) {
+            return unknown(principal);
+        }
+        final Role role = loggedInUser.getRole();
+        if (role != Role.ADMIN && role != Role.INSTRUCTOR && role != Role.STUDENT) {
+            return AccessDecision.deny(AccessDecision.Reason.ROLE_NOT_PERMITTED, loggedInUser.getId());
+        }
+        return AccessDecision.allow(loggedInUser.getId());
+    }
+
+    /**
+     * Decides whether the principal is an admin, instructor, or the specified user.
+     *
+     * @param userId    User ID
+     * @param principal Principal
+     * @return AccessDecision
+     */
+    public AccessDecision decideAdminInstructorOrSpecificUser(final Long userId, final Principal principal) {
+        final UserView loggedInUser = loggedInUser(principal);
+        if (loggedInUser == null) {
+            return unknown(principal);
+        }
+        final Role role = loggedInUser.getRole();
+        if (role != Role.ADMIN && role != Role.INSTRUCTOR && !loggedInUser.getId().equals(userId)) {
+            return AccessDecision.deny(AccessDecision.Reason.NOT_SPECIFIC_USER, loggedInUser.getId());
+        }
+        return AccessDecision.allow(loggedInUser.getId());
+    }
+
+    /**
+     * Decides whether the principal is the specified user.
+     *
+     * @param userId    User ID
+     * @param principal Principal
+     * @return AccessDecision
+     */
+    public AccessDecision decideSpecificUser(final Long userId, final Principal principal) {
+        final UserView loggedInUser = loggedInUser(principal);
+        if (loggedInUser == null) {
+            return unknown(principal);
+        }
+        if (!loggedInUser.getId().equals(userId)) {
+            return AccessDecision.deny(AccessDecision.Reason.NOT_SPECIFIC_USER, loggedInUser.getId());
+        }
+        return AccessDecision.allow(loggedInUser.getId());
+    }
+
     /**
      * Validates access by an admin or instructor.
      *
@@ -201,18 +314,7 @@ public class UserValidator extends BaseValidator {
      *                               user info
      */
     public Long accessAdminOrInstructor(final Principal principal) throws AccessDeniedException {
-        empty(principal);
-        final User loggedInUser = userService.findByUsername(principal.getName());
-        final Role role = loggedInUser.getRole();
-        if (role != Role.ADMIN && role != Role.INSTRUCTOR) {
-            log.warn(
-                    String.format(
-                            "%s throwing AccessDeniedException because role is [%s]",
-                            "accessAdminOrInstructor()",
-                            role));
-            throw new AccessDeniedException("Current user is not authorized");
-        }
-        return loggedInUser.getId();
+        return require(decideAdminOrInstructor(principal), "accessAdminOrInstructor()");
     }
 
     /**
@@ -226,18 +328,7 @@ public class UserValidator extends BaseValidator {
      */
     public Long accessAdmin(final Principal principal) throws ResourceNotFoundException,
             AccessDeniedException {
-        empty(principal);
-        final User loggedInUser = userService.findByUsername(principal.getName());
-        final Role role = loggedInUser.getRole();
-        if (role != Role.ADMIN) {
-            log.warn(
-                    String.format(
-                            "%s throwing AccessDeniedException because role is [%s]",
-                            "accessAdmin()",
-                            role));
-            throw new AccessDeniedException("Current user is not authorized");
-        }
-        return loggedInUser.getId();
+        return require(decideAdmin(principal), "accessAdmin()");
     }
 
     /**
@@ -249,18 +340,7 @@ public class UserValidator extends BaseValidator {
      *                               user info
      */
     public Long accessAnyAuthenticated(final Principal principal) throws AccessDeniedException {
-        empty(principal);
-        final User loggedInUser = userService.findByUsername(principal.getName());
-        final Role role = loggedInUser.getRole();
-        if (role != Role.ADMIN && role != Role.INSTRUCTOR && role != Role.STUDENT) {
-            log.warn(
-                    String.format(
-                            "%s throwing AccessDeniedException because role is [%s]",
-                            "accessAnyAuthenticated()",
-                            role));
-            throw new AccessDeniedException("Current user is not authorized");
-        }
-        return loggedInUser.getId();
+        return require(decideAnyAuthenticated(principal), "accessAnyAuthenticated()");
     }
 
     /**
@@ -274,21 +354,8 @@ public class UserValidator extends BaseValidator {
      */
     public Long accessAdminInstructorOrSpecificUser(final Long userId, final Principal principal)
             throws AccessDeniedException {
-        empty(principal);
-        final User loggedInUser = userService.findByUsername(principal.getName());
-        final Role role = loggedInUser.getRole();
-        if (role != Role.ADMIN && role != Role.INSTRUCTOR && userId.longValue() != loggedInUser.getId().longValue()) {
-            log.warn(
-                    String.format(
-                            "%s throwing AccessDeniedException because role is [%s] and userId "
-                                    + "is [%s] and loggedInUser ID is [%s]",
-                            "accessAdminInstructorOrSpecificUser()",
-                            role,
-                            userId,
-                            loggedInUser.getId()));
-            throw new AccessDeniedException("Current user is not authorized");
-        }
-        return loggedInUser.getId();
+        return require(decideAdminInstructorOrSpecificUser(userId, principal),
+                "accessAdminInstructorOrSpecificUser()");
     }
 
     /**
@@ -298,14 +365,7 @@ public class UserValidator extends BaseValidator {
      * @return admin user?
      */
     public boolean isAdmin(final Principal principal) {
-        boolean admin = false;
-        try {
-            accessAdmin(principal);
-            admin = true;
-        } catch (AccessDeniedException | ResourceNotFoundException e) {
-            admin = false;
-        }
-        return admin;
+        return decideAdmin(principal).isAllowed();
     }
 
     /**
@@ -316,17 +376,7 @@ public class UserValidator extends BaseValidator {
      * @return authenticated user?
      */
     public boolean isAuthenticatedUser(final Long userId, final Principal principal) {
-        boolean authenticatedUser = false;
-        try {
-            empty(principal);
-            final User loggedInUser = userService.findByUsername(principal.getName());
-            if (userId == loggedInUser.getId()) {
-                authenticatedUser = true;
-            }
-        } catch (AccessDeniedException ee) {
-            authenticatedUser = false;
-        }
-        return authenticatedUser;
+        return decideSpecificUser(userId, principal).isAllowed();
     }
 
     /**
@@ -336,30 +386,71 @@ public class UserValidator extends BaseValidator {
      * @return admin or instructor user
      */
     public boolean isAdminOrInstructor(final Principal principal) {
-        boolean adminOrInstructor = false;
+        return decideAdminOrInstructor(principal).isAllowed();
+    }
+
+    /**
+     * Gets the logged in user.
+     *
+     * @param principal Principal
+     * @return UserView, or null when there is no principal or it does not match a user
+     */
+    private UserView loggedInUser(final Principal principal) {
         if (principal == null) {
-            return adminOrInstructor;
-        }
-        try {
-            accessAdminOrInstructor(principal);
-            adminOrInstructor = true;
-        } catch (AccessDeniedException ade) {
-            adminOrInstructor = false;
+            return null;
         }
-        return adminOrInstructor;
+        return userService.findByUsername(principal.getName());
     }
 
     /**
-     * Ensures principal is not null.
+     * Denies access for a missing principal or unknown user.
      *
      * @param principal Principal
-     * @throws AccessDeniedException when principal is null
+     * @return AccessDecision
      */
-    private static void empty(final Principal principal) throws AccessDeniedException {
+    private static AccessDecision unknown(final Principal principal) {
         if (principal == null) {
-            log.warn(
-                    String.format("%s throwing AccessDeniedException because principal is %s", "empty()", principal));
-            throw new AccessDeniedException("No authorization provided");
+            return AccessDecision.deny(AccessDecision.Reason.NO_PRINCIPAL, null);
+        }
+        return AccessDecision.deny(AccessDecision.Reason.UNKNOWN_USER, null);
+    }
+
+    /**
+     * Logs an access denial at warn, at most once per DENIAL_LOG_INTERVAL_NANOS, so that a client hammering a
+     * protected endpoint cannot flood the log. The number of denials suppressed in between is included.
+     *
+     * @param operation name of the check
+     * @param decision  AccessDecision
+     */
+    private static void logDenial(final String operation, final AccessDecision decision) {
+        final long now = System.nanoTime();
+        final long next = NEXT_DENIAL_LOG.get();
+        if (now - next < 0 || !NEXT_DENIAL_LOG.compareAndSet(next, now + DENIAL_LOG_INTERVAL_NANOS)) {
+            SUPPRESSED_DENIALS.incrementAndGet();
+            return;
+        }
+        log.warn(String.format("%s denied access: %s (%s similar denials not logged)",
+                operation,
+                decision,
+                SUPPRESSED_DENIALS.getAndSet(0)));
+    }
+
+    /**
+     * Returns the logged in user's ID when access is allowed, otherwise throws a stackless AccessDeniedException.
+     *
+     * @param decision  AccessDecision
+     * @param operation name of the check, for logging
+     * @return Logged in user's ID
+     * @throws AccessDeniedException when access is denied
+     */
+    private static Long require(final AccessDecision decision, final String operation) throws AccessDeniedException {
+        if (decision.isAllowed()) {
+            return decision.getUserId();
+        }
+        logDenial(operation, decision);
+        if (decision.getReason() == AccessDecision.Reason.NO_PRINCIPAL) {
+            throw new StacklessAccessDeniedException("No authorization provided");
         }
+        throw new StacklessAccessDeniedException("Current user is not authorized");
     }
 }
@@ -0,0 +1,301 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.warmup;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.starfireaviation.common.model.Role;
+import com.starfireaviation.common.model.User;
+import com.starfireaviation.users.model.UserEntity;
+import com.starfireaviation.users.model.UserRepository;
+import com.starfireaviation.users.model.UserView;
+import com.starfireaviation.users.persistence.JdbcWarmer;
+import com.starfireaviation.users.service.UserService;
+import com.starfireaviation.users.service.UserStatistics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Runs the main request paths against synthetic data before the instance accepts traffic, so that the first real
+ * requests are not served by cold (interpreted) code, unprimed caches and unopened connections. Application runners
+ * complete before Spring Boot reports the readiness state ACCEPTING_TRAFFIC, so the readiness probe keeps failing
+ * until warm-up is done.
+ *
+ * Writes are made in transactions which are always rolled back, so nothing is committed and no change notifications
+ * are sent. They go through the repository rather than UserService.store(): store() appends outbox rows, whose
+ * IDENTITY values are used up even when rolled back, and the resulting gaps would hold up the change feed relay.
+ * Warm-up stops early once its time budget is spent, and never fails startup.
+ */
+@Slf4j
+public class WarmupRunner implements ApplicationRunner, Ordered {
+
+    /**
+     * Timeout for each loopback HTTP request.
+     */
+    private static final Duration LOOPBACK_TIMEOUT = Duration.ofSeconds(2);
+
+    /**
+     * Synthetic password.
+     */
+    private static final String PASSWORD = "Warm-up-Passw0rd!";
+
+    /**
+     * Iterations which hash the password. Each BCrypt hash runs thousands of rounds, so its code is compiled within a
+     * few hashes; hashing on every iteration would only spend the time budget.
+     */
+    private static final int PASSWORD_HASH_ITERATIONS = 3;
+
+    /**
+     * UserService.
+     */
+    private final UserService userService;
+
+    /**
+     * UserRepository.
+     */
+    private final UserRepository userRepository;
+
+    /**
+     * UserStatistics.
+     */
+    private final UserStatistics userStatistics;
+
+    /**
+     * TransactionTemplate.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * BCryptPasswordEncoder.
+     */
+    private final BCryptPasswordEncoder passwordEncoder;
+
+    /**
+     * ObjectMapper.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Port of the embedded web server, or 0 to skip the loopback requests.
+     */
+    private final IntSupplier port;
+
+    /**
+     * MeterRegistry.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Number of iterations.
+     */
+    private final int iterations;
+
+    /**
+     * Time budget (ms).
+     */
+    private final long maxMillis;
+
+    /**
+     * WarmupRunner.
+     *
+     * @param uService           UserService
+     * @param uRepository        UserRepository
+     * @param statistics         UserStatistics
+     * @param transactionManager PlatformTransactionManager
+     * @param encoder            BCryptPasswordEncoder
+     * @param mapper             ObjectMapper
+     * @param serverPort         supplies the embedded web server port, or 0 when there is none
+     * @param registry           MeterRegistry
+     * @param count              number of iterations
+     * @param budgetMillis       time budget (ms)
+     */
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    public WarmupRunner(final UserService uService,
+                        final UserRepository uRepository,
+                        final UserStatistics statistics,
+                        final PlatformTransactionManager transactionManager,
+                        final BCryptPasswordEncoder encoder,
+                        final ObjectMapper mapper,
+                        final IntSupplier serverPort,
+                        final MeterRegistry registry,
+                        final int count,
+                        final long budgetMillis) {
+        userService = uService;
+        userRepository = uRepository;
+        userStatistics = statistics;
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        passwordEncoder = encoder;
+        objectMapper = mapper;
+        port = serverPort;
+        meterRegistry = registry;
+        iterations = count;
+        maxMillis = budgetMillis;
+    }
+
+    /**
+     * Runs after JDBC connections have been warmed.
+     *
+     * @return order
+     */
+    @Override
+    public int getOrder() {
+        return JdbcWarmer.ORDER + 1;
+    }
+
+    /**
+     * {@inheritDoc} Required implementation.
+     */
+    @Override
+    public void run(final ApplicationArguments args) {
+        warm();
+    }
+
+    /**
+     * Runs the warm-up iterations.
+     *
+     * @return number of iterations completed
+     */
+    public int warm() {
+        final long start = System.nanoTime();
+        final long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        final HttpClient client = HttpClient.newBuilder().connectTimeout(LOOPBACK_TIMEOUT).build();
+        final ObjectReader userReader = objectMapper
+                .readerFor(User.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        int completed = 0;
+        String encoded = null;
+        try {
+            while (completed < iterations && System.nanoTime() < deadline) {
+                if (completed < PASSWORD_HASH_ITERATIONS) {
+                    encoded = passwordEncoder.encode(PASSWORD);
+                    passwordEncoder.matches(PASSWORD, encoded);
+                }
+                iteration(client, userReader, encoded);
+                completed++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            log.warn(String.format("Warm-up stopped after %s iterations: %s", completed, e.getMessage()));
+        }
+        final long elapsed = System.nanoTime() - start;
+        Timer
+                .builder("users.warmup")
+                .description("Time spent warming up before accepting traffic")
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        log.info(String.format("Warm-up completed %s of %s iterations in %s ms",
+                completed, iterations, TimeUnit.NANOSECONDS.toMillis(elapsed)));
+        return completed;
+    }
+
+    /**
+     * One pass over the main paths.
+     *
+     * @param client     HttpClient for loopback requests
+     * @param userReader reads User request bodies
+     * @param encoded    encoded password
+     * @throws IOException          when JSON processing or a loopback request fails
+     * @throws InterruptedException when interrupted
+     */
+    private void iteration(final HttpClient client, final ObjectReader userReader, final String encoded)
+            throws IOException, InterruptedException {
+        final String username = "warmup-" + UUID.randomUUID();
+        final UserView view = transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            return storeAndRead(username, encoded);
+        });
+        final String json = objectMapper.writeValueAsString(view);
+        userReader.readValue(json);
+        objectMapper.writeValueAsString(userService.search(username, 0, 1));
+        objectMapper.writeValueAsString(userStatistics.getStats());
+        userService.isUsernameAvailable(username);
+        loopback(client, "/health");
+        loopback(client, "/api/users/username/" + username + "/available");
+    }
+
+    /**
+     * Creates, updates and reads back a synthetic user, without recording outbox changes. Must run in a transaction
+     * which is rolled back.
+     *
+     * @param username synthetic username
+     * @param encoded  encoded password
+     * @return UserView
+     */
+    private UserView storeAndRead(final String username, final String encoded) {
+        final long id = -ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+        final UserEntity user = new UserEntity();
+        user.setId(id);
+        user.setUsername(username);
+        user.setPassword(encoded);
+        user.setEmail(username + "@example.invalid");
+        user.setRole(Role.STUDENT);
+        userRepository.save(user);
+        try {
+            final UserEntity update = userService.getForUpdate(id);
+            update.setFirstName("Warm");
+            update.setLastName("Up");
+            update.setPassword(encoded);
+            userRepository.save(update);
+            userRepository.existsByUsername(username);
+            userService.findByEmail(user.getEmail());
+            return userService.findByUsername(username);
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Sends a GET request through the embedded web server, exercising the servlet, filter and message conversion
+     * paths. The response status is not checked.
+     *
+     * @param client HttpClient
+     * @param path   request path
+     * @throws IOException          when the request fails
+     * @throws InterruptedException when interrupted
+     */
+    private void loopback(final HttpClient client, final String path) throws IOException, InterruptedException {
+        final int serverPort = port.getAsInt();
+        if (serverPort <= 0) {
+            return;
+        }
+        client.send(
+                HttpRequest
+                        .newBuilder(URI.create("http://localhost:" + serverPort + path))
+                        .timeout(LOOPBACK_TIMEOUT)
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+    }
+}
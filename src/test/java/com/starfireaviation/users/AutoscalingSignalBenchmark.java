@@ -0,0 +1,146 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Compares the autoscaling signals under increasing load against a running instance: process CPU, which the HPA used
+ * to scale on, and requests in flight, bulkhead queue depth and p95 latency, which it can now scale on. Past the
+ * saturation point, throughput stops rising while in flight, queued and p95 keep climbing; CPU flattens (or, with
+ * BCrypt bursts, jumps around) and no longer says how far over capacity the instance is.
+ *
+ * Not part of the regular build. Start an instance, then run e.g.:
+ *
+ * ./mvnw test -Dtest=AutoscalingSignalBenchmark -Dbenchmark.autoscaling.url=http://localhost:8080
+ * -Dbenchmark.autoscaling.path=/api/users/1 -Dbenchmark.autoscaling.authorization="Bearer ..."
+ */
+@EnabledIfSystemProperty(named = "benchmark.autoscaling.url", matches = ".+")
+class AutoscalingSignalBenchmark {
+
+    private static final int[] CONCURRENCY = {1, 2, 4, 8, 16, 32, 64, 128};
+
+    private static final long STEP_SECONDS = 20;
+
+    private static final long SAMPLE_MILLIS = 500;
+
+    private static final double P95 = 0.95;
+
+    private final HttpClient client = HttpClient
+            .newBuilder()
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    private final String baseUrl = System.getProperty("benchmark.autoscaling.url");
+
+    @Test
+    void signalsTrackSaturation() throws Exception {
+        final HttpRequest request = request(
+                baseUrl + System.getProperty("benchmark.autoscaling.path", "/api/users/username/benchmark/available"),
+                System.getProperty("benchmark.autoscaling.authorization", ""));
+        System.out.printf("%11s %10s %8s %8s %10s %8s%n", "concurrency", "req/s", "p95 ms", "cpu %", "in flight",
+                "queued");
+        for (final int concurrency : CONCURRENCY) {
+            step(request, concurrency);
+        }
+    }
+
+    private void step(final HttpRequest request, final int concurrency) throws Exception {
+        final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final ExecutorService load = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            load.execute(() -> {
+                while (running.get()) {
+                    final long start = System.nanoTime();
+                    try {
+                        client.send(request, HttpResponse.BodyHandlers.discarding());
+                        latencies.add(System.nanoTime() - start);
+                    } catch (Exception e) {
+                        // Counted as missing throughput
+                    }
+                }
+            });
+        }
+        double cpu = 0;
+        double inFlight = 0;
+        double queued = 0;
+        int samples = 0;
+        final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(STEP_SECONDS);
+        while (System.nanoTime() < end) {
+            Thread.sleep(SAMPLE_MILLIS);
+            final String scrape = scrape();
+            cpu += sum(scrape, "process_cpu_usage");
+            inFlight += sum(scrape, "users_concurrency_in_flight");
+            queued += sum(scrape, "executor_queued_tasks{name=\"bulkhead.");
+            samples++;
+        }
+        running.set(false);
+        load.shutdown();
+        load.awaitTermination(STEP_SECONDS, TimeUnit.SECONDS);
+        final List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        long p95 = 0;
+        if (!sorted.isEmpty()) {
+            p95 = sorted.get((int) (sorted.size() * P95));
+        }
+        System.out.printf("%11d %10.1f %8d %8.1f %10.1f %8.1f%n",
+                concurrency,
+                (double) sorted.size() / STEP_SECONDS,
+                TimeUnit.NANOSECONDS.toMillis(p95),
+                100 * cpu / samples,
+                inFlight / samples,
+                queued / samples);
+    }
+
+    private String scrape() throws Exception {
+        return client
+                .send(request(baseUrl + "/actuator/prometheus", ""), HttpResponse.BodyHandlers.ofString())
+                .body();
+    }
+
+    private static double sum(final String scrape, final String prefix) {
+        double total = 0;
+        for (final String line : scrape.split("\n")) {
+            if (line.startsWith(prefix)) {
+                total += Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+            }
+        }
+        return total;
+    }
+
+    private static HttpRequest request(final String url, final String authorization) {
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30));
+        if (!authorization.isEmpty()) {
+            builder.header("Authorization", authorization);
+        }
+        return builder.build();
+    }
+}
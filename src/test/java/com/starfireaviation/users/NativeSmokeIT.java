@@ -0,0 +1,87 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users;
+
+import io.cucumber.junit.Cucumber;
+import io.cucumber.junit.CucumberOptions;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the users.feature scenarios against the native executable. Run by the failsafe plugin in the native Maven
+ * profile, which passes the executable's path as native.binary. The executable is started with the h2 profile on the
+ * port the steps expect, and stopped when the scenarios finish.
+ */
+@RunWith(Cucumber.class)
+@CucumberOptions(features = "classpath:users.feature", glue = "com.starfireaviation.users", plugin = "pretty")
+public class NativeSmokeIT {
+
+    private static final long STARTUP_TIMEOUT_SECONDS = 30;
+
+    private static final long POLL_MILLIS = 20;
+
+    private static Process process;
+
+    @BeforeClass
+    public static void startNativeExecutable() throws Exception {
+        final File binary = new File(System.getProperty("native.binary", "target/users"));
+        if (!binary.canExecute()) {
+            throw new IllegalStateException("Native executable not found: " + binary);
+        }
+        final long launched = System.nanoTime();
+        process = new ProcessBuilder(binary.getAbsolutePath(), "--spring.profiles.active=h2", "--server.port=8080")
+                .inheritIO()
+                .start();
+        final long deadline = launched + TimeUnit.SECONDS.toNanos(STARTUP_TIMEOUT_SECONDS);
+        while (!healthy()) {
+            if (!process.isAlive() || System.nanoTime() > deadline) {
+                throw new IllegalStateException("Native executable did not become healthy");
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+        System.out.printf("Native executable healthy after %d ms%n",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launched));
+    }
+
+    @AfterClass
+    public static void stopNativeExecutable() throws InterruptedException {
+        if (process != null) {
+            process.destroy();
+            process.waitFor(STARTUP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private static boolean healthy() {
+        try {
+            final HttpURLConnection connection = (HttpURLConnection) new URL(UsersSteps.URL + "/health")
+                    .openConnection();
+            try {
+                return connection.getResponseCode() == HttpURLConnection.HTTP_OK;
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long a new instance takes to become useful: time to the first successful /health and time to the
+ * first successful GET /api/users/{id}, measured from process launch. Compare an image built with and without the
+ * cds profile (see Dockerfile).
+ *
+ * Not part of the regular build. Run with a command which starts the service in the foreground, e.g.:
+ *
+ * ./mvnw test -Dtest=StartupTimeBenchmark -Dbenchmark.startup.command="docker run --rm -p 8080:8080 --env-file
+ * users.env starfireaviationllc/users:cds" -Dbenchmark.startup.authorization="Bearer ..."
+ * -Dbenchmark.startup.userId=1
+ */
+@EnabledIfSystemProperty(named = "benchmark.startup.command", matches = ".+")
+class StartupTimeBenchmark {
+
+    private static final long TIMEOUT_SECONDS = 300;
+
+    private static final long POLL_MILLIS = 50;
+
+    private final HttpClient client = HttpClient
+            .newBuilder()
+            .connectTimeout(Duration.ofMillis(500))
+            .build();
+
+    @Test
+    void timeToFirstSuccessfulRequests() throws Exception {
+        final String baseUrl = System.getProperty("benchmark.startup.url", "http://localhost:8080");
+        final String userId = System.getProperty("benchmark.startup.userId", "1");
+        final String authorization = System.getProperty("benchmark.startup.authorization", "");
+        final long launched = System.nanoTime();
+        final Process process = new ProcessBuilder("sh", "-c", System.getProperty("benchmark.startup.command"))
+                .inheritIO()
+                .start();
+        try {
+            final long health = awaitSuccess(request(baseUrl + "/health", ""), launched);
+            final long firstGet = awaitSuccess(request(baseUrl + "/api/users/" + userId, authorization), launched);
+            System.out.printf("time to first successful /health:              %6d ms%n", health);
+            System.out.printf("time to first successful GET /api/users/{id}: %6d ms%n", firstGet);
+        } finally {
+            process.destroy();
+            process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private static HttpRequest request(final String url, final String authorization) {
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(5));
+        if (!authorization.isEmpty()) {
+            builder.header("Authorization", authorization);
+        }
+        return builder.build();
+    }
+
+    private long awaitSuccess(final HttpRequest request, final long launched) throws InterruptedException {
+        final long deadline = launched + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (System.nanoTime() < deadline) {
+            try {
+                final HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) {
+                    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launched);
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+        throw new AssertionError("No successful response from " + request.uri() + " within " + TIMEOUT_SECONDS + "s");
+    }
+}
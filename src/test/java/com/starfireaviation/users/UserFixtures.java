@@ -0,0 +1,62 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users;
+
+import com.starfireaviation.common.model.Role;
+import com.starfireaviation.users.model.UserEntity;
+import com.starfireaviation.users.model.UserOutboxRepository;
+import com.starfireaviation.users.model.UserRepository;
+import com.starfireaviation.users.service.UserService;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+// Users and a UserService for repository-backed tests
+public final class UserFixtures {
+
+    public static final String PASSWORD = "secret";
+
+    private UserFixtures() {
+    }
+
+    // A student with the columns every user needs; callers set whatever else their test is about
+    public static UserEntity user(final long id, final String username) {
+        final UserEntity user = new UserEntity();
+        user.setId(id);
+        user.setUsername(username);
+        user.setPassword(PASSWORD);
+        user.setRole(Role.STUDENT);
+        return user;
+    }
+
+    public static UserEntity persist(final TestEntityManager testEntityManager, final UserEntity user) {
+        return testEntityManager.persistAndFlush(user);
+    }
+
+    public static UserEntity persist(final TestEntityManager testEntityManager, final long id, final String username) {
+        return persist(testEntityManager, user(id, username));
+    }
+
+    // A UserService writing to the outbox, without the collaborators which only the full context provides
+    public static UserService userService(final UserRepository userRepository,
+                                          final UserOutboxRepository userOutboxRepository,
+                                          final PasswordEncoder passwordEncoder) {
+        final UserService userService = new UserService(userRepository, null);
+        ReflectionTestUtils.setField(userService, "userOutboxRepository", userOutboxRepository);
+        ReflectionTestUtils.setField(userService, "passwordEncoder", passwordEncoder);
+        return userService;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.bulkhead;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BulkheadTests {
+
+    private final Bulkhead bulkhead = new Bulkhead(EndpointClass.BULK, props(1, 1), runnable -> runnable);
+
+    @AfterEach
+    void shutdown() {
+        bulkhead.shutdown();
+    }
+
+    @Test
+    void requestsBeyondThreadsAndQueueAreRejected() throws Exception {
+        final WebAsyncTask<String> first = bulkhead.submit(() -> "first");
+        bulkhead.submit(() -> "second");
+        assertThrows(BulkheadFullException.class, () -> bulkhead.submit(() -> "third"));
+        assertEquals(1.0, bulkhead.getSaturation());
+
+        assertEquals("first", first.getCallable().call());
+        assertEquals(0.5, bulkhead.getSaturation());
+        bulkhead.submit(() -> "third");
+    }
+
+    private static BulkheadProperties props(final int threads, final int queueCapacity) {
+        final BulkheadProperties props = new BulkheadProperties();
+        props.setThreads(threads);
+        props.setQueueCapacity(queueCapacity);
+        return props;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.client;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PwnedPasswordsClientTests {
+
+    private static final String HASH = "5BAA61E4C9B93F3F0682250B6CF8331B7EE68FD8";
+
+    private static final String BODY = "003D68EB55068C33ACE09247EE4C639306B:3\r\n"
+            + "1E4C9B93F3F0682250B6CF8331B7EE68FD8:3861493\r\n";
+
+    private static final int READ_TIMEOUT_MS = 200;
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private volatile int status = 200;
+
+    private volatile long delayMs;
+
+    private HttpServer server;
+
+    private PwnedPasswordsClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/range", exchange -> {
+            hits.incrementAndGet();
+            try {
+                if (delayMs > 0) {
+                    release.await(delayMs, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            final byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        final SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(READ_TIMEOUT_MS);
+        requestFactory.setReadTimeout(READ_TIMEOUT_MS);
+        client = new PwnedPasswordsClient(
+                new RestTemplate(requestFactory),
+                "http://127.0.0.1:" + server.getAddress().getPort(),
+                1,
+                new CircuitBreaker(2, TimeUnit.MINUTES.toNanos(1)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    void countsMatchingSuffix() {
+        assertEquals(3861493, client.count(HASH));
+        assertEquals(0, client.count("5BAA600000000000000000000000000000000000"));
+    }
+
+    @Test
+    void serverErrorsOpenTheCircuit() {
+        status = 500;
+        assertEquals(PwnedPasswordsClient.UNKNOWN, client.count(HASH));
+        assertEquals(PwnedPasswordsClient.UNKNOWN, client.count(HASH));
+        assertEquals(2, hits.get());
+
+        status = 200;
+        assertEquals(PwnedPasswordsClient.UNKNOWN, client.count(HASH));
+        assertEquals(2, hits.get());
+    }
+
+    @Test
+    void slowResponsesTimeOut() {
+        delayMs = READ_TIMEOUT_MS * 10;
+        final long started = System.nanoTime();
+        assertEquals(PwnedPasswordsClient.UNKNOWN, client.count(HASH));
+        assertEquals(true, System.nanoTime() - started < TimeUnit.MILLISECONDS.toNanos(delayMs));
+    }
+
+    @Test
+    void fullBulkheadRejectsImmediately() throws Exception {
+        delayMs = READ_TIMEOUT_MS / 2;
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Integer> first = executor.submit(() -> client.count(HASH));
+            while (hits.get() == 0) {
+                Thread.sleep(1);
+            }
+            assertEquals(PwnedPasswordsClient.UNKNOWN, client.count(HASH));
+            assertEquals(3861493, first.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTests {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    void bulkRequestsAreShedBeforeCriticalRequests() {
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 10, 1.5, 0.2, 1_000L, 1,
+                0.8, 0.5);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(RequestPriority.BULK));
+        }
+        assertFalse(limiter.tryAcquire(RequestPriority.BULK));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire(RequestPriority.NORMAL));
+        }
+        assertFalse(limiter.tryAcquire(RequestPriority.NORMAL));
+        assertTrue(limiter.tryAcquire(RequestPriority.CRITICAL));
+        assertTrue(limiter.tryAcquire(RequestPriority.CRITICAL));
+        assertFalse(limiter.tryAcquire(RequestPriority.CRITICAL));
+        assertEquals(10, limiter.getInFlight());
+        assertEquals(3, limiter.getRejected());
+    }
+
+    @Test
+    void limitShrinksWhenLatencyRises() {
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100, 1, 200, 1.5, 1.0, 0L, 1,
+                1.0, 1.0);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire(RequestPriority.NORMAL));
+            limiter.release(FAST);
+        }
+        assertEquals(100, limiter.getLimit());
+        assertTrue(limiter.tryAcquire(RequestPriority.NORMAL));
+        limiter.release(SLOW);
+        assertTrue(limiter.getLimit() < 100);
+        assertEquals(0, limiter.getInFlight());
+    }
+}
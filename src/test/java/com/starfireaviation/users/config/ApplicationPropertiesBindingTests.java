@@ -0,0 +1,46 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ApplicationPropertiesBindingTests {
+
+    @Test
+    void sqlStatementBudgetsAreBoundByEndpoint() throws IOException {
+        final MutablePropertySources sources = new MutablePropertySources();
+        sources.addFirst(new ResourcePropertySource("classpath:application.properties"));
+        final Map<String, Integer> budgets = new Binder(ConfigurationPropertySources.from(sources))
+                .bind("groundschool.sql-statement-budgets", Bindable.mapOf(String.class, Integer.class))
+                .get();
+
+        assertEquals(3, budgets.size());
+        assertEquals(3, budgets.get("GET /api/users/{userId}"));
+        assertEquals(1, budgets.get("GET /api/users/username/{username}/available"));
+        assertEquals(2, budgets.get("GET /api/users/addresses/{type}"));
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.config;
+
+import com.starfireaviation.users.session.NoSessionIdResolver;
+import com.starfireaviation.users.session.TransientSessionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.context.properties.source.InvalidConfigurationPropertyValueException;
+import org.springframework.boot.test.context.runner.WebApplicationContextRunner;
+import org.springframework.session.SessionRepository;
+import org.springframework.session.web.http.HttpSessionIdResolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionStoreConfigTests {
+
+    private final WebApplicationContextRunner runner = new WebApplicationContextRunner()
+            .withUserConfiguration(HazelcastSessionConfig.class, StatelessSessionConfig.class)
+            .withBean(ServerProperties.class);
+
+    @Test
+    void localStoreDefinesNoSessionRepository() {
+        runner.withPropertyValues("groundschool.session-store=local")
+                .run(context -> assertThat(context).hasNotFailed().doesNotHaveBean(SessionRepository.class));
+    }
+
+    @Test
+    void statelessStoreKeepsNothingAndIssuesNoCookie() {
+        runner.withPropertyValues("groundschool.session-store=stateless")
+                .run(context -> {
+                    assertThat(context).hasSingleBean(TransientSessionRepository.class);
+                    assertThat(context.getBean(HttpSessionIdResolver.class)).isInstanceOf(NoSessionIdResolver.class);
+                });
+    }
+
+    @Test
+    void hazelcastStoreWithoutHazelcastFailsWithAClearMessage() {
+        runner.withPropertyValues("groundschool.session-store=hazelcast", "groundschool.hazelcast-enabled=false")
+                .run(context -> assertThat(context).getFailure()
+                        .getRootCause()
+                        .isInstanceOf(InvalidConfigurationPropertyValueException.class)
+                        .hasMessageContaining("groundschool.session-store")
+                        .hasMessageContaining("groundschool.hazelcast-enabled=true"));
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.exception;
+
+import com.starfireaviation.common.exception.AccessDeniedException;
+import com.starfireaviation.common.exception.ConflictException;
+import com.starfireaviation.common.exception.InvalidPayloadException;
+import com.starfireaviation.common.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+class StacklessExceptionTests {
+
+    @Test
+    void accessDeniedHasNoStackTrace() {
+        assertStackless(new StacklessAccessDeniedException("denied"), AccessDeniedException.class);
+    }
+
+    @Test
+    void conflictHasNoStackTrace() {
+        assertStackless(new StacklessConflictException("taken"), ConflictException.class);
+    }
+
+    @Test
+    void invalidPayloadHasNoStackTrace() {
+        assertStackless(new StacklessInvalidPayloadException("invalid"), InvalidPayloadException.class);
+    }
+
+    @Test
+    void resourceNotFoundHasNoStackTrace() {
+        assertStackless(new StacklessResourceNotFoundException("missing"), ResourceNotFoundException.class);
+    }
+
+    private static void assertStackless(final Exception exception, final Class<? extends Exception> common) {
+        assertInstanceOf(common, exception);
+        assertEquals(0, exception.getStackTrace().length);
+        assertEquals(0, exception.getSuppressed().length);
+    }
+}
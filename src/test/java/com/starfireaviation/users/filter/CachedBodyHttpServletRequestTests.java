@@ -0,0 +1,119 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CachedBodyHttpServletRequestTests {
+
+    @Test
+    void replaysTheBodyToEachReader() throws IOException {
+        final CachedBodyHttpServletRequest cached = new CachedBodyHttpServletRequest(request("hello"), 5);
+        assertEquals("hello", cached.getBodyAsString());
+        assertEquals("hello", new String(cached.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+        assertEquals("hello", cached.getReader().readLine());
+    }
+
+    @Test
+    void rejectsADeclaredLengthOverTheLimit() {
+        assertThrows(PayloadTooLargeException.class, () -> new CachedBodyHttpServletRequest(request("hello!"), 5));
+    }
+
+    @Test
+    void rejectsAnUndeclaredBodyOverTheLimit() {
+        // Chunked requests have no Content-Length, so the limit is also enforced while reading
+        final MockHttpServletRequest request = new MockHttpServletRequest() {
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+
+            @Override
+            public ServletInputStream getInputStream() {
+                final ByteArrayInputStream input = new ByteArrayInputStream(new byte[10_000]);
+                return new ServletInputStream() {
+                    @Override
+                    public boolean isFinished() {
+                        return input.available() == 0;
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return true;
+                    }
+
+                    @Override
+                    public void setReadListener(final ReadListener readListener) {
+                    }
+
+                    @Override
+                    public int read() {
+                        return input.read();
+                    }
+
+                    @Override
+                    public int read(final byte[] b, final int off, final int len) {
+                        return input.read(b, off, len);
+                    }
+                };
+            }
+        };
+        assertThrows(PayloadTooLargeException.class, () -> new CachedBodyHttpServletRequest(request, 5_000));
+    }
+
+    @Test
+    void notifiesReadListeners() throws IOException {
+        final CachedBodyHttpServletRequest cached = new CachedBodyHttpServletRequest(request("hello"), 5);
+        final ServletInputStream input = cached.getInputStream();
+        final List<String> events = new ArrayList<>();
+        input.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                events.add(new String(input.readAllBytes(), StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public void onAllDataRead() {
+                events.add("done");
+            }
+
+            @Override
+            public void onError(final Throwable t) {
+                events.add("error");
+            }
+        });
+        assertEquals(List.of("hello", "done"), events);
+    }
+
+    private static MockHttpServletRequest request(final String body) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/users");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
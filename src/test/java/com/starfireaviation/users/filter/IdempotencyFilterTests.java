@@ -0,0 +1,141 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.filter;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.starfireaviation.users.config.ApplicationProperties;
+import com.starfireaviation.users.config.WebConfig;
+import com.starfireaviation.users.idempotency.LocalIdempotencyStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.source.InvalidConfigurationPropertyValueException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyFilterTests {
+
+    private static final Duration TTL = Duration.ofMinutes(1);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final IdempotencyFilter filter =
+            new IdempotencyFilter(new LocalIdempotencyStore(TTL, TTL, 100), Duration.ZERO, 1_024, registry);
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    private final FilterChain chain = (request, response) -> {
+        executions.incrementAndGet();
+        ((HttpServletResponse) response).setStatus(201);
+        response.getOutputStream().write("{}".getBytes(StandardCharsets.UTF_8));
+    };
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void runsAfterSpringSecurity() {
+        final int order = new WebConfig()
+                .idempotencyFilter(new ApplicationProperties(),
+                        new StaticListableBeanFactory().getBeanProvider(HazelcastInstance.class), registry)
+                .getOrder();
+        assertTrue(order > SecurityProperties.DEFAULT_FILTER_ORDER, "order " + order);
+    }
+
+    @Test
+    void distributedWithoutHazelcastFailsWithAClearMessage() {
+        final ApplicationProperties props = new ApplicationProperties();
+        props.setIdempotencyDistributed(true);
+        final InvalidConfigurationPropertyValueException e = assertThrows(
+                InvalidConfigurationPropertyValueException.class,
+                () -> new WebConfig().idempotencyFilter(props,
+                        new StaticListableBeanFactory().getBeanProvider(HazelcastInstance.class), registry));
+        assertEquals("groundschool.idempotency-distributed", e.getName());
+        assertTrue(e.getMessage().contains("groundschool.hazelcast-enabled=true"), e.getMessage());
+    }
+
+    @Test
+    void replaysToTheSamePrincipal() throws Exception {
+        authenticate("pilot");
+        assertEquals(201, post("k").getStatus());
+        final MockHttpServletResponse repeat = post("k");
+        assertEquals(201, repeat.getStatus());
+        assertEquals("true", repeat.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void doesNotReplayToAnotherPrincipal() throws Exception {
+        authenticate("pilot");
+        assertEquals(201, post("k").getStatus());
+        authenticate("intruder");
+        assertEquals(422, post("k").getStatus());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void doesNotReplayAnAuthenticatedResponseToAnAnonymousCaller() throws Exception {
+        authenticate("pilot");
+        assertEquals(201, post("k").getStatus());
+        SecurityContextHolder.clearContext();
+        assertEquals(422, post("k").getStatus());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void rejectsOversizedBodies() throws Exception {
+        final MockHttpServletRequest request = request("k");
+        request.setContent(new byte[2_048]);
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        assertEquals(413, response.getStatus());
+        assertEquals(0, executions.get());
+    }
+
+    private static void authenticate(final String name) {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(name, null, "ROLE_USER"));
+    }
+
+    private MockHttpServletResponse post(final String key) throws Exception {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(key), response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(final String key) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("POST", IdempotencyFilter.USERS_PATH);
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key);
+        request.setContent("{\"username\":\"pilot\"}".getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
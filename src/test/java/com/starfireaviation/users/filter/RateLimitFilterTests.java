@@ -0,0 +1,126 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.filter;
+
+import com.starfireaviation.users.ratelimit.LocalRateLimiter;
+import com.starfireaviation.users.ratelimit.RateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitFilterTests {
+
+    private static final int MAX_BODY_BYTES = 64;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void rejectsWithRetryAfterOnceTheBurstIsSpent() throws Exception {
+        final RateLimitFilter filter = filter(new LocalRateLimiter(2, 1, 100), new LocalRateLimiter(10, 10, 100));
+        assertEquals(200, compromised(filter).getStatus());
+        assertEquals(200, compromised(filter).getStatus());
+
+        final MockHttpServletResponse rejected = compromised(filter);
+        assertEquals(429, rejected.getStatus());
+        final long retryAfter = Long.parseLong(rejected.getHeader(HttpHeaders.RETRY_AFTER));
+        assertTrue(retryAfter >= 1 && retryAfter <= 60, "Retry-After " + retryAfter);
+        assertEquals(1.0, registry.counter("users.ratelimit.rejected").count());
+    }
+
+    @Test
+    void roundsRetryAfterUpToWholeSeconds() throws Exception {
+        final RateLimiter limiter = key -> TimeUnit.MILLISECONDS.toNanos(1_500);
+        final MockHttpServletResponse response = compromised(filter(limiter, key -> 0));
+        assertEquals(429, response.getStatus());
+        assertEquals("2", response.getHeader(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    void retryAfterIsAtLeastOneSecond() throws Exception {
+        final MockHttpServletResponse response = compromised(filter(key -> 1, key -> 0));
+        assertEquals("1", response.getHeader(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    void limitsPasswordResetsPerNormalizedEmail() throws Exception {
+        final RateLimitFilter filter = filter(new LocalRateLimiter(10, 10, 100), new LocalRateLimiter(1, 1, 100));
+        assertEquals(200, reset(filter, "\"Pilot@Example.com\"").getStatus());
+        assertEquals(429, reset(filter, " pilot@example.com ").getStatus());
+        assertEquals(200, reset(filter, "other@example.com").getStatus());
+    }
+
+    @Test
+    void replaysTheResetBodyToTheHandler() throws Exception {
+        final RateLimitFilter filter = filter(key -> 0, key -> 0);
+        final MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(resetRequest("pilot@example.com"), new MockHttpServletResponse(), chain);
+        assertEquals("pilot@example.com",
+                new String(chain.getRequest().getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void rejectsOversizedResetBodies() throws Exception {
+        final RateLimitFilter filter = filter(key -> 0, key -> 0);
+        final MockFilterChain chain = new MockFilterChain();
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(resetRequest("x".repeat(MAX_BODY_BYTES + 1)), response, chain);
+        assertEquals(413, response.getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void ignoresOtherPaths() throws Exception {
+        final RateLimitFilter filter = filter(key -> 1, key -> 1);
+        final MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/users"), new MockHttpServletResponse(), chain);
+        assertNotNull(chain.getRequest());
+    }
+
+    private RateLimitFilter filter(final RateLimiter client, final RateLimiter email) {
+        return new RateLimitFilter(client, email, MAX_BODY_BYTES, registry);
+    }
+
+    private static MockHttpServletResponse compromised(final RateLimitFilter filter) throws Exception {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", RateLimitFilter.PASSWORD_COMPROMISED_PATH), response,
+                new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletResponse reset(final RateLimitFilter filter, final String body) throws Exception {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(resetRequest(body), response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest resetRequest(final String body) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("POST", RateLimitFilter.PASSWORD_RESET_PATH);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.health;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CachedHealthIndicatorTests {
+
+    private final AtomicInteger checks = new AtomicInteger();
+
+    private volatile boolean healthy = true;
+
+    private final CachedHealthIndicator indicator = new CachedHealthIndicator(() -> {
+        checks.incrementAndGet();
+        if (!healthy) {
+            throw new IllegalStateException("pool exhausted");
+        }
+        return Health.up().withDetail("active", 1).build();
+    });
+
+    @Test
+    void probesAreServedFromTheLastRefresh() {
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Status.UP, indicator.health().getStatus());
+        }
+        assertEquals(1, checks.get());
+        assertEquals(1, indicator.health().getDetails().get("active"));
+    }
+
+    @Test
+    void refreshPicksUpFailures() {
+        indicator.health();
+        healthy = false;
+        assertEquals(Status.UP, indicator.health().getStatus());
+
+        indicator.refresh();
+        assertEquals(Status.DOWN, indicator.health().getStatus());
+        assertEquals(2, checks.get());
+    }
+}
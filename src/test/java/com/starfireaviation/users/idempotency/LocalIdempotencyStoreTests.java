@@ -0,0 +1,106 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalIdempotencyStoreTests {
+
+    private static final Duration TTL = Duration.ofMinutes(1);
+
+    private final LocalIdempotencyStore store = new LocalIdempotencyStore(TTL, TTL, 100);
+
+    @Test
+    void repeatsReplayTheRecordedResponse() throws InterruptedException {
+        final IdempotencyClaim claim = store.claim("k", "f", Duration.ZERO);
+        assertTrue(claim.isAcquired());
+        store.complete("k", claim.getOwner(), response());
+
+        final IdempotencyClaim repeat = store.claim("k", "f", Duration.ZERO);
+        assertEquals(201, repeat.getResponse().getStatus());
+        assertArrayEquals("{}".getBytes(StandardCharsets.UTF_8), repeat.getResponse().getBody());
+    }
+
+    @Test
+    void concurrentRepeatsWaitForTheFirstRequest() throws Exception {
+        final IdempotencyClaim claim = store.claim("k", "f", Duration.ZERO);
+        assertTrue(claim.isAcquired());
+        final CompletableFuture<IdempotencyClaim> repeat = CompletableFuture.supplyAsync(() -> {
+            try {
+                return store.claim("k", "f", Duration.ofSeconds(5));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        store.complete("k", claim.getOwner(), response());
+        assertEquals(201, repeat.get(5, TimeUnit.SECONDS).getResponse().getStatus());
+    }
+
+    @Test
+    void repeatsGiveUpWhileTheFirstRequestIsStillRunning() throws InterruptedException {
+        assertTrue(store.claim("k", "f", Duration.ZERO).isAcquired());
+        assertTrue(store.claim("k", "f", Duration.ofMillis(10)).isInProgress());
+    }
+
+    @Test
+    void releasedKeysMayBeClaimedAgain() throws InterruptedException {
+        final IdempotencyClaim claim = store.claim("k", "f", Duration.ZERO);
+        assertTrue(claim.isAcquired());
+        store.release("k", claim.getOwner());
+        assertTrue(store.claim("k", "f", Duration.ZERO).isAcquired());
+    }
+
+    @Test
+    void abandonedClaimsCannotCompleteOrReleaseTheirSuccessor() throws InterruptedException {
+        final LocalIdempotencyStore expiring = new LocalIdempotencyStore(TTL, Duration.ZERO, 100);
+        final IdempotencyClaim abandoned = expiring.claim("k", "f", Duration.ZERO);
+        Thread.sleep(1);
+        final IdempotencyClaim successor = expiring.claim("k", "f", Duration.ZERO);
+        assertTrue(successor.isAcquired());
+        assertNotEquals(abandoned.getOwner(), successor.getOwner());
+
+        expiring.release("k", abandoned.getOwner());
+        expiring.complete("k", abandoned.getOwner(),
+                new IdempotentResponse("f", 500, "application/json", new byte[0]));
+        assertEquals(1, expiring.size());
+
+        expiring.complete("k", successor.getOwner(), response());
+        assertEquals(201, expiring.claim("k", "f", Duration.ZERO).getResponse().getStatus());
+    }
+
+    @Test
+    void completedKeysAreEvictedBeyondTheBound() throws InterruptedException {
+        for (int i = 0; i < 150; i++) {
+            store.complete("k" + i, store.claim("k" + i, "f", Duration.ZERO).getOwner(), response());
+        }
+        assertTrue(store.size() <= 100);
+    }
+
+    private static IdempotentResponse response() {
+        return new IdempotentResponse("f", 201, "application/json", "{}".getBytes(StandardCharsets.UTF_8));
+    }
+}
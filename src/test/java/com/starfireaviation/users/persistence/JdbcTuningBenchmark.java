@@ -0,0 +1,187 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.persistence;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares store() and findBy* latency between the default Connector/J settings and the tuned settings in
+ * application-mysql.properties, issuing the same statements Hibernate issues for UserEntity.
+ *
+ * Not part of the regular build. Run against a scratch MySQL schema with:
+ *
+ * ./mvnw test -Dtest=JdbcTuningBenchmark -Dbenchmark.mysql.url=jdbc:mysql://localhost:3306/bench
+ * -Dbenchmark.mysql.username=... -Dbenchmark.mysql.password=...
+ */
+@EnabledIfSystemProperty(named = "benchmark.mysql.url", matches = ".+")
+class JdbcTuningBenchmark {
+
+    private static final int USERS = 2_000;
+
+    private static final int BATCH_SIZE = 50;
+
+    private static final int LOOKUPS = 20_000;
+
+    private static final String INSERT = "insert into GS_USER_BENCH (username, password, email, role, "
+            + "notification_preference, enabled, id) values (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE = "update GS_USER_BENCH set email=?, password=?, role=?, "
+            + "notification_preference=?, enabled=? where id=?";
+
+    private static final String FIND_BY_ID = "select id, username, password, email, role, notification_preference, "
+            + "enabled from GS_USER_BENCH where id=?";
+
+    private static final String FIND_BY_USERNAME = "select id, username, password, email, role, "
+            + "notification_preference, enabled from GS_USER_BENCH where username=?";
+
+    @Test
+    void compareDefaultAndTunedSettings() throws SQLException {
+        run("default", new Properties());
+        final Properties tuned = new Properties();
+        tuned.setProperty("useServerPrepStmts", "true");
+        tuned.setProperty("cachePrepStmts", "true");
+        tuned.setProperty("prepStmtCacheSize", "250");
+        tuned.setProperty("prepStmtCacheSqlLimit", "2048");
+        tuned.setProperty("rewriteBatchedStatements", "true");
+        tuned.setProperty("useLocalSessionState", "true");
+        tuned.setProperty("useLocalTransactionState", "true");
+        tuned.setProperty("cacheResultSetMetadata", "true");
+        tuned.setProperty("cacheServerConfiguration", "true");
+        tuned.setProperty("elideSetAutoCommits", "true");
+        tuned.setProperty("maintainTimeStats", "false");
+        run("tuned", tuned);
+    }
+
+    private void run(final String name, final Properties driverProperties) throws SQLException {
+        try (HikariDataSource dataSource = new HikariDataSource()) {
+            dataSource.setJdbcUrl(System.getProperty("benchmark.mysql.url"));
+            dataSource.setUsername(System.getProperty("benchmark.mysql.username"));
+            dataSource.setPassword(System.getProperty("benchmark.mysql.password"));
+            dataSource.setMaximumPoolSize(1);
+            dataSource.setAutoCommit(false);
+            dataSource.setDataSourceProperties(driverProperties);
+            try (Connection connection = dataSource.getConnection()) {
+                reset(connection);
+                final long insert = batchInsert(connection);
+                final long[] updates = updates(connection);
+                final long[] byId = lookups(connection, FIND_BY_ID, false);
+                final long[] byUsername = lookups(connection, FIND_BY_USERNAME, true);
+                System.out.printf("%-8s batch insert of %s users: %s ms%n", name, USERS,
+                        TimeUnit.NANOSECONDS.toMillis(insert));
+                report(name, "store (update)", updates);
+                report(name, "findById", byId);
+                report(name, "findByUsername", byUsername);
+            }
+        }
+    }
+
+    private static void reset(final Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists GS_USER_BENCH");
+            statement.execute("create table GS_USER_BENCH (id bigint primary key, username varchar(255) not null "
+                    + "unique, password varchar(255) not null, email varchar(255), role integer not null, "
+                    + "notification_preference integer not null, enabled bit not null)");
+        }
+        connection.commit();
+    }
+
+    private static long batchInsert(final Connection connection) throws SQLException {
+        final long start = System.nanoTime();
+        try (PreparedStatement statement = connection.prepareStatement(INSERT)) {
+            for (int i = 0; i < USERS; i++) {
+                statement.setString(1, "user" + i);
+                statement.setString(2, "secret");
+                statement.setString(3, "user" + i + "@example.com");
+                statement.setInt(4, 0);
+                statement.setInt(5, 0);
+                statement.setBoolean(6, true);
+                statement.setLong(7, i);
+                statement.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+        connection.commit();
+        return System.nanoTime() - start;
+    }
+
+    private static long[] updates(final Connection connection) throws SQLException {
+        final long[] samples = new long[USERS];
+        for (int i = 0; i < USERS; i++) {
+            final long start = System.nanoTime();
+            try (PreparedStatement select = connection.prepareStatement(FIND_BY_ID)) {
+                select.setLong(1, i);
+                try (ResultSet rs = select.executeQuery()) {
+                    rs.next();
+                }
+            }
+            try (PreparedStatement update = connection.prepareStatement(UPDATE)) {
+                update.setString(1, "updated" + i + "@example.com");
+                update.setString(2, "secret");
+                update.setInt(3, 0);
+                update.setInt(4, 0);
+                update.setBoolean(5, true);
+                update.setLong(6, i);
+                update.executeUpdate();
+            }
+            connection.commit();
+            samples[i] = System.nanoTime() - start;
+        }
+        return samples;
+    }
+
+    private static long[] lookups(final Connection connection, final String sql, final boolean byUsername)
+            throws SQLException {
+        final long[] samples = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            final long start = System.nanoTime();
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                if (byUsername) {
+                    statement.setString(1, "user" + (i % USERS));
+                } else {
+                    statement.setLong(1, i % USERS);
+                }
+                try (ResultSet rs = statement.executeQuery()) {
+                    rs.next();
+                }
+            }
+            connection.commit();
+            samples[i] = System.nanoTime() - start;
+        }
+        return samples;
+    }
+
+    private static void report(final String name, final String operation, final long[] samples) {
+        Arrays.sort(samples);
+        System.out.printf("%-8s %-16s p50 %6d us  p99 %6d us%n", name, operation,
+                TimeUnit.NANOSECONDS.toMicros(samples[samples.length / 2]),
+                TimeUnit.NANOSECONDS.toMicros(samples[samples.length * 99 / 100]));
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.persistence;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReplicationRoutingDataSourceTests {
+
+    private DataSource primary;
+
+    private DataSource replica;
+
+    private ReadYourWritesTracker tracker;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate readWrite;
+
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+        tracker = new ReadYourWritesTracker(new LocalReadYourWritesStore(TimeUnit.SECONDS.toNanos(5), 100));
+        final ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica, "", "", 0);
+        final DataSource routing = new LazyConnectionDataSourceProxy(
+                new ReplicationRoutingDataSource(primary, replica, tracker, monitor));
+        jdbcTemplate = new JdbcTemplate(routing);
+        readWrite = new TransactionTemplate(new DataSourceTransactionManager(routing));
+        readOnly = new TransactionTemplate(new DataSourceTransactionManager(routing));
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void readOnlyTransactionsUseTheReplica() {
+        assertEquals("replica", readOnly.execute(status -> server()));
+    }
+
+    @Test
+    void readWriteTransactionsUseThePrimary() {
+        assertEquals("primary", readWrite.execute(status -> server()));
+    }
+
+    @Test
+    void readsFollowingAPrincipalsWriteUseThePrimary() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("jdoe", null));
+        readWrite.execute(status -> server());
+        assertEquals("primary", readOnly.execute(status -> server()));
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("other", null));
+        assertEquals("replica", readOnly.execute(status -> server()));
+    }
+
+    @Test
+    void readsFollowingAnUnauthenticatedClientsWriteUseThePrimary() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request("10.0.0.1")));
+        readWrite.execute(status -> server());
+        assertEquals("primary", readOnly.execute(status -> server()));
+
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request("10.0.0.2")));
+        assertEquals("replica", readOnly.execute(status -> server()));
+    }
+
+    @Test
+    void readsFollowingAnAnonymousClientsWriteUseThePrimary() {
+        SecurityContextHolder.getContext().setAuthentication(anonymous("10.0.0.1"));
+        readWrite.execute(status -> server());
+        assertEquals("primary", readOnly.execute(status -> server()));
+
+        SecurityContextHolder.getContext().setAuthentication(anonymous("10.0.0.2"));
+        assertEquals("replica", readOnly.execute(status -> server()));
+    }
+
+    @Test
+    void readsOutsideOfARequestUseTheReplica() {
+        readWrite.execute(status -> server());
+        assertEquals("replica", readOnly.execute(status -> server()));
+    }
+
+    @Test
+    void readsReturnToTheReplicaOnceTheWindowHasPassed() {
+        final ReadYourWritesTracker expired = new ReadYourWritesTracker(new LocalReadYourWritesStore(0, 100));
+        final DataSource routing = new LazyConnectionDataSourceProxy(new ReplicationRoutingDataSource(primary, replica,
+                expired, new ReplicaLagMonitor(replica, "", "", 0)));
+        final TransactionTemplate template = new TransactionTemplate(new DataSourceTransactionManager(routing));
+        final JdbcTemplate expiring = new JdbcTemplate(routing);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("jdoe", null));
+        template.execute(status -> expiring.queryForObject("SELECT NAME FROM SERVER", String.class));
+        template.setReadOnly(true);
+        assertEquals("replica", template.execute(status -> expiring.queryForObject("SELECT NAME FROM SERVER",
+                String.class)));
+    }
+
+    @Test
+    void readsUseThePrimaryWhileTheReplicaLags() {
+        final ReplicaLagMonitor lagging = new ReplicaLagMonitor(replica,
+                "SELECT 30 AS Seconds_Behind_Source", "SECONDS_BEHIND_SOURCE", 5);
+        lagging.check();
+        final DataSource routing = new LazyConnectionDataSourceProxy(
+                new ReplicationRoutingDataSource(primary, replica, tracker, lagging));
+        final TransactionTemplate template = new TransactionTemplate(new DataSourceTransactionManager(routing));
+        template.setReadOnly(true);
+        final JdbcTemplate lagAware = new JdbcTemplate(routing);
+        assertEquals("primary", template.execute(status -> lagAware.queryForObject("SELECT NAME FROM SERVER",
+                String.class)));
+    }
+
+    private String server() {
+        return jdbcTemplate.queryForObject("SELECT NAME FROM SERVER", String.class);
+    }
+
+    private static MockHttpServletRequest request(final String remoteAddress) {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddress);
+        return request;
+    }
+
+    private static AnonymousAuthenticationToken anonymous(final String remoteAddress) {
+        final AnonymousAuthenticationToken token = new AnonymousAuthenticationToken("key", "anonymousUser",
+                AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+        token.setDetails(new WebAuthenticationDetails(request(remoteAddress)));
+        return token;
+    }
+
+    private static DataSource database(final String name) {
+        final DriverManagerDataSource dataSource =
+                new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        final JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("CREATE TABLE IF NOT EXISTS SERVER (NAME VARCHAR(16))");
+        template.execute("DELETE FROM SERVER");
+        template.update("INSERT INTO SERVER (NAME) VALUES (?)", name);
+        return dataSource;
+    }
+}
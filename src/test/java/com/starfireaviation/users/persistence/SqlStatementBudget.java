@@ -0,0 +1,51 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.persistence;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test assertions for SQL statement budgets.
+ */
+public final class SqlStatementBudget {
+
+    private SqlStatementBudget() {
+    }
+
+    /**
+     * Runs the provided work and fails when it issues more SQL statements than the budget allows.
+     *
+     * @param budget maximum number of statements
+     * @param work   work to run
+     * @param <T>    result type
+     * @return result of the work
+     */
+    public static <T> T assertAtMost(final int budget, final Supplier<T> work) {
+        final QueryCounter counter = QueryCounter.start();
+        try {
+            final T result = work.get();
+            assertTrue(counter.getStatements() <= budget,
+                    String.format("Expected at most %s SQL statements but %s were issued",
+                            budget, counter.getStatements()));
+            return result;
+        } finally {
+            QueryCounter.clear();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.persistence;
+
+import com.starfireaviation.common.model.Role;
+import com.starfireaviation.users.UserFixtures;
+import com.starfireaviation.users.config.PersistenceConfig;
+import com.starfireaviation.users.model.NotificationAddress;
+import com.starfireaviation.users.model.UserEntity;
+import com.starfireaviation.users.model.UserRepository;
+import com.starfireaviation.users.model.UserView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@DataJpaTest
+@Import(PersistenceConfig.class)
+class UserRepositoryStatementBudgetTests {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @BeforeEach
+    void setUp() {
+        UserFixtures.persist(testEntityManager, deliverable(1L, "jdoe"));
+        testEntityManager.clear();
+    }
+
+    @Test
+    void findByUsernameIssuesASingleStatement() {
+        final UserEntity user = SqlStatementBudget.assertAtMost(1, () -> userRepository.findByUsername("jdoe"));
+        assertNotNull(user);
+    }
+
+    @Test
+    void findByIdIssuesASingleStatement() {
+        final UserEntity user = SqlStatementBudget.assertAtMost(1, () -> userRepository.findById(1L));
+        assertNotNull(user);
+    }
+
+    @Test
+    void findAllViewsIssuesASingleStatement() {
+        final List<UserView> users = SqlStatementBudget.assertAtMost(1, () -> userRepository.findAllViews());
+        assertEquals(1, users.size());
+        assertEquals("jdoe", users.get(0).getUsername());
+    }
+
+    @Test
+    void findByEmailIssuesASingleStatement() {
+        final UserEntity user = SqlStatementBudget.assertAtMost(1, () -> userRepository.findByEmail("jdoe@example.com"));
+        assertNotNull(user);
+    }
+
+    @Test
+    void findEmailAddressesIssuesASingleStatementPerPage() {
+        final List<NotificationAddress> all = SqlStatementBudget.assertAtMost(1,
+                () -> userRepository.findEmailAddresses(null, Long.MIN_VALUE, PageRequest.of(0, 10)));
+        assertEquals(1, all.size());
+        assertEquals("jdoe@example.com", all.get(0).getAddress());
+        assertEquals(1, userRepository.findEmailAddresses(Role.STUDENT, Long.MIN_VALUE, PageRequest.of(0, 10)).size());
+        assertEquals(0, userRepository.findEmailAddresses(Role.ADMIN, Long.MIN_VALUE, PageRequest.of(0, 10)).size());
+    }
+
+    @Test
+    void findEmailAddressesPagesByIdAfterTheLastAddress() {
+        UserFixtures.persist(testEntityManager, deliverable(2L, "asmith"));
+
+        final List<NotificationAddress> first = userRepository.findEmailAddresses(null, Long.MIN_VALUE,
+                PageRequest.of(0, 1));
+        assertEquals(List.of(1L), first.stream().map(NotificationAddress::getId).collect(Collectors.toList()));
+        final List<NotificationAddress> second = userRepository.findEmailAddresses(null, first.get(0).getId(),
+                PageRequest.of(0, 1));
+        assertEquals(List.of(2L), second.stream().map(NotificationAddress::getId).collect(Collectors.toList()));
+        assertEquals(0, userRepository.findEmailAddresses(null, 2L, PageRequest.of(0, 1)).size());
+    }
+
+    @Test
+    void countsStatementsAgainstTheCurrentCounter() {
+        final QueryCounter counter = QueryCounter.start();
+        try {
+            userRepository.findByUsername("jdoe");
+            userRepository.findBySms("5555555555");
+            assertEquals(2, counter.getStatements());
+        } finally {
+            QueryCounter.clear();
+        }
+    }
+
+    private static UserEntity deliverable(final long id, final String username) {
+        final UserEntity user = UserFixtures.user(id, username);
+        user.setEmail(username + "@example.com");
+        user.setEmailEnabled(true);
+        user.setEmailVerified(true);
+        return user;
+    }
+}
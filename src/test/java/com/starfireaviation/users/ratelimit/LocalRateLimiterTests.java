@@ -0,0 +1,56 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalRateLimiterTests {
+
+    @Test
+    void rejectsOnceTheBurstIsSpent() {
+        final LocalRateLimiter limiter = new LocalRateLimiter(2, 1, 100);
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertEquals(0, limiter.tryAcquire("a"));
+        final long wait = limiter.tryAcquire("a");
+        assertTrue(wait > 0 && wait <= TimeUnit.MINUTES.toNanos(1), "wait " + wait);
+    }
+
+    @Test
+    void limitsEachKeySeparately() {
+        final LocalRateLimiter limiter = new LocalRateLimiter(1, 1, 100);
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a") > 0);
+        assertEquals(0, limiter.tryAcquire("b"));
+    }
+
+    @Test
+    void evictedKeysStartWithAFullBucket() {
+        // One key per stripe: filling a stripe with other keys evicts "a"
+        final LocalRateLimiter limiter = new LocalRateLimiter(1, 1, 1);
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a") > 0);
+        for (int i = 0; i < 1_000; i++) {
+            limiter.tryAcquire("key-" + i);
+        }
+        assertEquals(0, limiter.tryAcquire("a"));
+    }
+}
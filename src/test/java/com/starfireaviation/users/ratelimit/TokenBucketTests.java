@@ -0,0 +1,72 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTests {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    @Test
+    void allowsABurstUpToCapacity() {
+        final TokenBucket bucket = new TokenBucket(3, 1, MINUTE, 0);
+        assertEquals(0, bucket.tryConsume(0));
+        assertEquals(0, bucket.tryConsume(0));
+        assertEquals(0, bucket.tryConsume(0));
+        assertEquals(MINUTE, bucket.tryConsume(0));
+    }
+
+    @Test
+    void reportsTheTimeUntilTheNextToken() {
+        final TokenBucket bucket = new TokenBucket(1, 1, MINUTE, 0);
+        assertEquals(0, bucket.tryConsume(0));
+        final long wait = bucket.tryConsume(MINUTE / 4);
+        assertTrue(Math.abs(wait - MINUTE * 3 / 4) <= 1, "wait " + wait);
+    }
+
+    @Test
+    void refillsOverTime() {
+        final TokenBucket bucket = new TokenBucket(2, 1, MINUTE, 0);
+        assertEquals(0, bucket.tryConsume(0));
+        assertEquals(0, bucket.tryConsume(0));
+        assertTrue(bucket.tryConsume(MINUTE - 1) > 0);
+        assertEquals(0, bucket.tryConsume(MINUTE));
+        assertTrue(bucket.tryConsume(MINUTE) > 0);
+    }
+
+    @Test
+    void neverRefillsBeyondCapacity() {
+        final TokenBucket bucket = new TokenBucket(2, 1, MINUTE, 0);
+        final long later = MINUTE * 10;
+        assertEquals(0, bucket.tryConsume(later));
+        assertEquals(0, bucket.tryConsume(later));
+        assertTrue(bucket.tryConsume(later) > 0);
+    }
+
+    @Test
+    void ignoresClockGoingBackwards() {
+        final TokenBucket bucket = new TokenBucket(1, 1, MINUTE, MINUTE);
+        assertEquals(0, bucket.tryConsume(MINUTE));
+        assertEquals(MINUTE, bucket.tryConsume(0));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTests {
+
+    private static final int CALLERS = 8;
+
+    private final SingleFlight<Long, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    void concurrentLoadsOfTheSameKeyShareOneCall() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            final List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> singleFlight.load(1L, () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "jdoe";
+            })));
+            started.await(5, TimeUnit.SECONDS);
+            for (int i = 1; i < CALLERS; i++) {
+                results.add(executor.submit(() -> singleFlight.load(1L, () -> {
+                    calls.incrementAndGet();
+                    return "other";
+                })));
+            }
+            while (singleFlight.getCollapsed() < CALLERS - 1) {
+                Thread.yield();
+            }
+            release.countDown();
+            for (final Future<String> result : results) {
+                assertEquals("jdoe", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, singleFlight.getExecuted());
+        assertEquals(CALLERS - 1, singleFlight.getCollapsed());
+    }
+
+    @Test
+    void completedLoadsAreNotCached() {
+        assertEquals("a", singleFlight.load(1L, () -> "a"));
+        assertEquals("b", singleFlight.load(1L, () -> "b"));
+        assertEquals(2, singleFlight.getExecuted());
+    }
+
+    @Test
+    void failuresArePropagatedAndNotRemembered() {
+        assertThrows(IllegalStateException.class, () -> singleFlight.load(1L, () -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals("a", singleFlight.load(1L, () -> "a"));
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.service;
+
+import com.starfireaviation.users.config.PersistenceConfig;
+import com.starfireaviation.users.model.UserChange;
+import com.starfireaviation.users.model.UserChangeType;
+import com.starfireaviation.users.model.UserChanges;
+import com.starfireaviation.users.model.UserOutboxRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import(PersistenceConfig.class)
+class UserChangeFeedTests {
+
+    private static final int LIMIT = 10;
+
+    private static final Duration LONG = Duration.ofHours(1);
+
+    @Autowired
+    private UserOutboxRepository userOutboxRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Test
+    void rowsAreRelayedInIdOrderOnceMissingIdsCommit() {
+        final UserChangeFeed feed = feed(LIMIT, LONG);
+        insert(1L, Instant.now());
+        insert(3L, Instant.now());
+        feed.relay();
+        assertEquals(List.of(1L), ids(feed.changes(0, LIMIT)));
+
+        insert(2L, Instant.now());
+        feed.relay();
+        final UserChanges changes = feed.changes(0, LIMIT);
+        assertEquals(List.of(1L, 2L, 3L), ids(changes));
+        assertEquals(3L, changes.getCursor());
+    }
+
+    @Test
+    void missingIdsOlderThanTheGapTimeoutAreSkipped() {
+        final UserChangeFeed feed = feed(LIMIT, Duration.ZERO);
+        insert(1L, Instant.now());
+        insert(3L, Instant.now());
+        feed.relay();
+        assertEquals(List.of(1L, 3L), ids(feed.changes(0, LIMIT)));
+    }
+
+    @Test
+    void relayStartsBeforeRowsWhichMayStillBeCommitting() {
+        insert(1L, Instant.now().minus(Duration.ofHours(2)));
+        insert(2L, Instant.now());
+        final UserChangeFeed feed = feed(LIMIT, LONG);
+        assertEquals(1L, feed.start());
+        feed.relay();
+        assertEquals(List.of(2L), ids(feed.changes(1, LIMIT)));
+    }
+
+    @Test
+    void cursorsOlderThanTheBufferAreServedFromTheOutbox() {
+        final UserChangeFeed feed = feed(2, LONG);
+        for (long id = 1; id <= 4; id++) {
+            insert(id, Instant.now());
+        }
+        feed.relay();
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids(feed.changes(0, LIMIT)));
+        assertEquals(List.of(3L, 4L), ids(feed.changes(2, LIMIT)));
+        final UserChanges page = feed.changes(0, 2);
+        assertEquals(List.of(1L, 2L), ids(page));
+        assertEquals(2L, page.getCursor());
+        assertEquals(4L, feed.changes(4, LIMIT).getCursor());
+    }
+
+    @Test
+    void longPollCompletesWhenChangesAreRelayed() {
+        final UserChangeFeed feed = feed(LIMIT, LONG);
+        final DeferredResult<UserChanges> result = feed.poll(0, LIMIT, Duration.ofSeconds(30));
+        assertFalse(result.hasResult());
+
+        insert(1L, Instant.now());
+        feed.relay();
+        assertTrue(result.hasResult());
+        assertEquals(List.of(1L), ids((UserChanges) result.getResult()));
+    }
+
+    @Test
+    void pollWithoutTimeoutReturnsImmediately() {
+        final UserChangeFeed feed = feed(LIMIT, LONG);
+        final DeferredResult<UserChanges> result = feed.poll(0, LIMIT, Duration.ZERO);
+        assertTrue(result.hasResult());
+        assertTrue(((UserChanges) result.getResult()).getChanges().isEmpty());
+    }
+
+    private UserChangeFeed feed(final int bufferSize, final Duration gapTimeout) {
+        final UserChangeFeed feed = new UserChangeFeed(userOutboxRepository, LIMIT, bufferSize, gapTimeout,
+                Duration.ofDays(1));
+        feed.start();
+        return feed;
+    }
+
+    private void insert(final long id, final Instant createdAt) {
+        testEntityManager.getEntityManager()
+                .createNativeQuery("insert into GS_USER_OUTBOX (id, user_id, change_type, created_at) "
+                        + "values (?1, ?2, ?3, ?4)")
+                .setParameter(1, id)
+                .setParameter(2, id)
+                .setParameter(3, UserChangeType.UPDATED.name())
+                .setParameter(4, Timestamp.from(createdAt))
+                .executeUpdate();
+    }
+
+    private static List<Long> ids(final UserChanges changes) {
+        return changes.getChanges().stream().map(UserChange::getId).collect(Collectors.toList());
+    }
+}
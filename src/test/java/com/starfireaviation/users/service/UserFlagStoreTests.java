@@ -0,0 +1,113 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.service;
+
+import com.starfireaviation.users.UserFixtures;
+import com.starfireaviation.users.config.PersistenceConfig;
+import com.starfireaviation.users.model.UserEntity;
+import com.starfireaviation.users.model.UserFlagUpdate;
+import com.starfireaviation.users.model.UserOutboxRepository;
+import com.starfireaviation.users.model.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import(PersistenceConfig.class)
+class UserFlagStoreTests {
+
+    private static final String EMAIL = "jdoe@example.com";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserOutboxRepository userOutboxRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        final UserEntity user = UserFixtures.user(1L, "jdoe");
+        user.setEmail(EMAIL);
+        user.setSlack("jdoe");
+        UserFixtures.persist(testEntityManager, user);
+        testEntityManager.clear();
+
+        userService = UserFixtures.userService(userRepository, userOutboxRepository, null);
+    }
+
+    @Test
+    void verifiedFlagIsSetWhileTheAddressIsUnchanged() {
+        assertEquals(1, storeFlags(UserFlagUpdate.emailVerified(EMAIL).merge(UserFlagUpdate.slackVerified("jdoe"))));
+
+        final UserEntity stored = userRepository.findById(1L);
+        assertTrue(stored.isEmailVerified());
+        assertTrue(stored.isSlackVerified());
+    }
+
+    @Test
+    void emailChangedBeforeTheFlushIsNotMarkedVerified() {
+        final UserFlagUpdate verified = UserFlagUpdate.emailVerified(EMAIL);
+        final UserEntity update = userService.getForUpdate(1L);
+        update.setEmail("someone.else@example.com");
+        userService.store(update);
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        assertEquals(0, storeFlags(verified));
+
+        final UserEntity stored = userRepository.findById(1L);
+        assertEquals("someone.else@example.com", stored.getEmail());
+        assertFalse(stored.isEmailVerified());
+    }
+
+    @Test
+    void flushKeepsFieldsItDoesNotChange() {
+        final UserEntity update = userService.getForUpdate(1L);
+        update.setFirstName("Jane");
+        userService.store(update);
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        assertEquals(1, storeFlags(UserFlagUpdate.code("1234")));
+
+        final UserEntity stored = userRepository.findById(1L);
+        assertEquals("Jane", stored.getFirstName());
+        assertEquals("secret", stored.getPassword());
+        assertEquals("1234", stored.getCode());
+    }
+
+    private int storeFlags(final UserFlagUpdate update) {
+        final int updated = userService.storeFlags(Map.of(1L, update));
+        testEntityManager.flush();
+        testEntityManager.clear();
+        return updated;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.service;
+
+import com.starfireaviation.users.model.UserFlagUpdate;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserFlagWriteBehindTests {
+
+    private static final String EMAIL = "jdoe@example.com";
+
+    private static final String SLACK = "jdoe";
+
+    private final RecordingUserService userService = new RecordingUserService();
+
+    @Test
+    void repeatedUpdatesOfAUserAreCoalescedIntoOneWrite() {
+        final UserFlagWriteBehind writeBehind = new UserFlagWriteBehind(userService, 10, 10);
+        writeBehind.update(1L, UserFlagUpdate.code("1111"));
+        writeBehind.update(1L, UserFlagUpdate.emailVerified(EMAIL));
+        writeBehind.update(1L, UserFlagUpdate.code("2222"));
+        writeBehind.update(2L, UserFlagUpdate.slackVerified(SLACK));
+        assertTrue(userService.writes.isEmpty());
+
+        writeBehind.flush();
+
+        assertEquals(1, userService.writes.size());
+        final Map<Long, UserFlagUpdate> batch = userService.writes.get(0);
+        assertEquals(new UserFlagUpdate(true, EMAIL, null, null, "2222"), batch.get(1L));
+        assertEquals(UserFlagUpdate.slackVerified(SLACK), batch.get(2L));
+        assertEquals(0, writeBehind.getPending());
+    }
+
+    @Test
+    void updatesBeyondTheQueueLimitAreWrittenSynchronously() {
+        final UserFlagWriteBehind writeBehind = new UserFlagWriteBehind(userService, 10, 1);
+        writeBehind.update(1L, UserFlagUpdate.emailVerified(EMAIL));
+        writeBehind.update(1L, UserFlagUpdate.slackVerified(SLACK));
+        writeBehind.update(2L, UserFlagUpdate.emailVerified(EMAIL));
+
+        assertEquals(1, userService.writes.size());
+        assertEquals(Map.of(2L, UserFlagUpdate.emailVerified(EMAIL)), userService.writes.get(0));
+        assertEquals(1, writeBehind.getPending());
+    }
+
+    @Test
+    void failedFlushesAreRequeuedBeneathLaterUpdates() {
+        final UserFlagWriteBehind writeBehind = new UserFlagWriteBehind(userService, 10, 10);
+        writeBehind.update(1L, UserFlagUpdate.code("1111"));
+        userService.fail = true;
+        writeBehind.flush();
+        userService.fail = false;
+        writeBehind.update(1L, UserFlagUpdate.code("2222"));
+
+        writeBehind.flush();
+
+        assertEquals(1, userService.writes.size());
+        assertEquals("2222", userService.writes.get(0).get(1L).getCode());
+    }
+
+    @Test
+    void queuedUpdatesAreFlushedOnShutdown() throws Exception {
+        final UserFlagWriteBehind writeBehind = new UserFlagWriteBehind(userService, 1, 10);
+        for (long id = 1; id <= 3; id++) {
+            writeBehind.update(id, UserFlagUpdate.emailVerified(EMAIL));
+        }
+
+        writeBehind.destroy();
+
+        assertEquals(0, writeBehind.getPending());
+        final Map<Long, UserFlagUpdate> written = new HashMap<>();
+        userService.writes.forEach(written::putAll);
+        assertEquals(3, written.size());
+
+        writeBehind.update(4L, UserFlagUpdate.emailVerified(EMAIL));
+        assertEquals(0, writeBehind.getPending());
+        assertTrue(userService.writes.get(userService.writes.size() - 1).containsKey(4L));
+    }
+
+    private static final class RecordingUserService extends UserService {
+
+        private final List<Map<Long, UserFlagUpdate>> writes = new ArrayList<>();
+
+        private volatile boolean fail;
+
+        private RecordingUserService() {
+            super(null, null);
+        }
+
+        @Override
+        public synchronized int storeFlags(final Map<Long, UserFlagUpdate> updates) {
+            if (fail) {
+                throw new IllegalStateException("database unavailable");
+            }
+            writes.add(new HashMap<>(updates));
+            return updates.size();
+        }
+    }
+}
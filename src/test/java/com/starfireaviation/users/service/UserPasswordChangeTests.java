@@ -0,0 +1,90 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.service;
+
+import com.starfireaviation.users.UserFixtures;
+import com.starfireaviation.users.config.PersistenceConfig;
+import com.starfireaviation.users.model.UserEntity;
+import com.starfireaviation.users.model.UserOutboxRepository;
+import com.starfireaviation.users.model.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import(PersistenceConfig.class)
+class UserPasswordChangeTests {
+
+    private static final int BCRYPT_STRENGTH = 4;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserOutboxRepository userOutboxRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private final BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(BCRYPT_STRENGTH);
+
+    private UserService userService;
+
+    private DaoAuthenticationProvider login;
+
+    @BeforeEach
+    void setUp() {
+        final UserEntity user = UserFixtures.user(1L, "jdoe");
+        user.setPassword(encoder.encode("old-secret"));
+        user.setCode("1234");
+        user.setEnabled(true);
+        UserFixtures.persist(testEntityManager, user);
+        testEntityManager.clear();
+
+        userService = UserFixtures.userService(userRepository, userOutboxRepository, encoder);
+
+        login = new DaoAuthenticationProvider();
+        login.setUserDetailsService(new SecurityUserDetailsService(userRepository));
+        login.setPasswordEncoder(encoder);
+    }
+
+    @Test
+    void changedPasswordIsUsedToLogIn() {
+        final UserEntity user = userService.getForUpdate(1L);
+        user.setCode(null);
+        userService.changePassword(user, "new-secret");
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        assertTrue(login.authenticate(new UsernamePasswordAuthenticationToken("jdoe", "new-secret")).isAuthenticated());
+        assertThrows(BadCredentialsException.class,
+                () -> login.authenticate(new UsernamePasswordAuthenticationToken("jdoe", "old-secret")));
+        assertNull(userRepository.findById(1L).getCode());
+        assertTrue(userOutboxRepository.findMaxId() > 0);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.service;
+
+import com.starfireaviation.users.model.UserEntity;
+import com.starfireaviation.users.model.UserView;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures search latency percentiles over a synthetic user population, against the target of a p99 of a few
+ * milliseconds at 1M users. Queries mix prefixes of every field, full names and misspelled names.
+ *
+ * Not part of the regular build. Run with (the index needs a heap of a few GB at 1M users):
+ *
+ * ./mvnw test -Dtest=UserSearchIndexBenchmark -Dbenchmark.search=true [-Dbenchmark.search.users=1000000]
+ * [-Dbenchmark.search.p99-ms=5]
+ */
+@EnabledIfSystemProperty(named = "benchmark.search", matches = "true")
+class UserSearchIndexBenchmark {
+
+    private static final int DEFAULT_USERS = 1_000_000;
+
+    private static final int DEFAULT_P99_MS = 5;
+
+    private static final int MAX_CANDIDATES = 10_000;
+
+    private static final int WARMUP = 20_000;
+
+    private static final int QUERIES = 100_000;
+
+    private static final int PAGE_SIZE = 20;
+
+    private static final int USERNAME_PREFIX = 6;
+
+    private static final String[] FIRST_NAMES = {
+        "james", "mary", "robert", "patricia", "john", "jennifer", "michael", "linda", "david", "elizabeth",
+        "william", "barbara", "richard", "susan", "joseph", "jessica", "thomas", "sarah", "charles", "karen",
+    };
+
+    private static final String[] LAST_NAMES = {
+        "smith", "johnson", "williams", "brown", "jones", "garcia", "miller", "davis", "rodriguez", "martinez",
+        "hernandez", "lopez", "gonzalez", "wilson", "anderson", "thomas", "taylor", "moore", "jackson", "martin",
+    };
+
+    private final Random random = new Random(42);
+
+    @Test
+    void searchLatencyPercentiles() {
+        final int users = Integer.getInteger("benchmark.search.users", DEFAULT_USERS);
+        final UserSearchIndex index = new UserSearchIndex(null, null, MAX_CANDIDATES, 1);
+        long start = System.nanoTime();
+        for (long id = 1; id <= users; id++) {
+            index.index(user(id));
+        }
+        System.out.printf("Indexed %d users in %d ms%n", users,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        for (int i = 0; i < WARMUP; i++) {
+            index.search(query(users), 0, PAGE_SIZE);
+        }
+        final long[] latencies = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            final String query = query(users);
+            start = System.nanoTime();
+            index.search(query, 0, PAGE_SIZE);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        final double p50 = millis(latencies[QUERIES / 2]);
+        final double p99 = millis(latencies[QUERIES - QUERIES / 100]);
+        final double max = millis(latencies[QUERIES - 1]);
+        System.out.printf("p50 %.3f ms, p99 %.3f ms, max %.3f ms%n", p50, p99, max);
+        assertTrue(p99 <= Integer.getInteger("benchmark.search.p99-ms", DEFAULT_P99_MS));
+    }
+
+    private String query(final int users) {
+        final String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        final String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        switch (random.nextInt(4)) {
+            case 0:
+                final String username = "user" + (1 + random.nextInt(users));
+                return username.substring(0, Math.min(username.length(), USERNAME_PREFIX));
+            case 1:
+                return first.substring(0, 2 + random.nextInt(first.length() - 1));
+            case 2:
+                return first + " " + last.substring(0, 3);
+            default:
+                // One substitution in a name
+                final char[] misspelled = last.toCharArray();
+                misspelled[1 + random.nextInt(misspelled.length - 1)] = 'x';
+                return new String(misspelled);
+        }
+    }
+
+    private UserView user(final long id) {
+        final UserEntity user = new UserEntity();
+        user.setId(id);
+        user.setUsername("user" + id);
+        user.setFirstName(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]);
+        user.setLastName(LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+        user.setEmail("user" + id + "@example.com");
+        return UserView.from(user);
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.service;
+
+import com.starfireaviation.users.UserFixtures;
+import com.starfireaviation.users.config.PersistenceConfig;
+import com.starfireaviation.users.model.UserChangeEventEntity;
+import com.starfireaviation.users.model.UserChangeType;
+import com.starfireaviation.users.model.UserEntity;
+import com.starfireaviation.users.model.UserOutboxRepository;
+import com.starfireaviation.users.model.UserRepository;
+import com.starfireaviation.users.model.UserSearchResult;
+import com.starfireaviation.users.model.UserView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import(PersistenceConfig.class)
+class UserSearchIndexSyncTests {
+
+    private static final int BATCH = 100;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserOutboxRepository userOutboxRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private UserChangeFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        UserFixtures.persist(testEntityManager, named(1L, "jdoe", "Old"));
+        feed = new UserChangeFeed(userOutboxRepository, BATCH, BATCH, Duration.ofHours(1), Duration.ofDays(1));
+    }
+
+    @Test
+    void usersStoredOnAnotherReplicaAreIndexedFromTheChangeFeed() {
+        final UserSearchIndex index = new UserSearchIndex(userRepository, feed, BATCH, BATCH);
+        index.build();
+        assertTrue(ids(index, "remote").isEmpty());
+
+        // Another replica creates a user, then renames another one
+        UserFixtures.persist(testEntityManager, named(2L, "remote", "Remote"));
+        outbox(2L, UserChangeType.CREATED);
+        final UserEntity renamed = testEntityManager.find(UserEntity.class, 1L);
+        renamed.setFirstName("Zelda");
+        testEntityManager.persistAndFlush(renamed);
+        outbox(1L, UserChangeType.UPDATED);
+
+        feed.relay();
+        index.sync();
+
+        assertEquals(List.of(2L), ids(index, "remote"));
+        assertEquals(List.of(1L), ids(index, "zelda"));
+        assertTrue(ids(index, "old").isEmpty());
+    }
+
+    @Test
+    void buildDoesNotOverwriteUsersIndexedWhileItRuns() {
+        final UserSearchIndex[] holder = new UserSearchIndex[1];
+        // The user is stored (and indexed) after the build has read its rows
+        final UserRepository racing = (UserRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {UserRepository.class}, (proxy, method, args) -> {
+                    try {
+                        final Object result = method.invoke(userRepository, args);
+                        if ("findAllViews".equals(method.getName())) {
+                            final UserEntity newer = testEntityManager.find(UserEntity.class, 1L);
+                            newer.setFirstName("New");
+                            holder[0].index(UserView.from(newer));
+                        }
+                        return result;
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        holder[0] = new UserSearchIndex(racing, feed, BATCH, BATCH);
+
+        holder[0].build();
+
+        assertEquals(List.of(1L), ids(holder[0], "new"));
+        assertTrue(ids(holder[0], "old").isEmpty());
+    }
+
+    private static List<Long> ids(final UserSearchIndex index, final String query) {
+        return index.search(query, 0, BATCH).getResults().stream()
+                .map(UserSearchResult::getId)
+                .collect(Collectors.toList());
+    }
+
+    private void outbox(final long userId, final UserChangeType type) {
+        final UserChangeEventEntity event = new UserChangeEventEntity();
+        event.setUserId(userId);
+        event.setChangeType(type);
+        event.setCreatedAt(Instant.now());
+        userOutboxRepository.save(event);
+        testEntityManager.flush();
+    }
+
+    private static UserEntity named(final long id, final String username, final String firstName) {
+        final UserEntity user = UserFixtures.user(id, username);
+        user.setFirstName(firstName);
+        return user;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.service;
+
+import com.starfireaviation.users.model.UserEntity;
+import com.starfireaviation.users.model.UserSearchResult;
+import com.starfireaviation.users.model.UserSearchResults;
+import com.starfireaviation.users.model.UserView;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserSearchIndexTests {
+
+    private static final int USERS = 2_000;
+
+    private static final int TOGGLES = 20_000;
+
+    private final UserSearchIndex index = new UserSearchIndex(null, null, UserSearchIndex.MAX_PAGE_SIZE * USERS, 1);
+
+    @Test
+    void prefixMatchesAreRankedByField() {
+        index.index(user(1L, "janedoe", "Mary", "Doe", null));
+        index.index(user(2L, "asmith", "Jane", "Smith", "asmith@example.com"));
+        index.index(user(3L, "bjones", "Bob", "Jones", "janitor@example.com"));
+
+        final List<Long> ids = ids(index.search("jan", 0, 10));
+        assertEquals(List.of(1L, 2L, 3L), ids);
+        assertEquals(List.of(1L), ids(index.search("jane doe", 0, 10)));
+    }
+
+    @Test
+    void misspelledQueriesMatchApproximately() {
+        index.index(user(1L, "jdoe", "Jonathan", "Doe", null));
+
+        assertEquals(List.of(1L), ids(index.search("jonathon", 0, 10)));
+        assertTrue(index.search("xyzzy", 0, 10).getResults().isEmpty());
+    }
+
+    @Test
+    void resultsArePaginated() {
+        for (long id = 1; id <= 5; id++) {
+            index.index(user(id, "pilot" + id, null, null, null));
+        }
+
+        final UserSearchResults second = index.search("pilot", 1, 2);
+        assertEquals(5, second.getTotal());
+        assertEquals(List.of(3L, 4L), ids(second));
+    }
+
+    @Test
+    void reindexingAUserReplacesItsTerms() {
+        index.index(user(1L, "jdoe", "Jane", "Doe", null));
+        index.index(user(1L, "jdoe", "Jane", "Roe", null));
+
+        assertTrue(index.search("doe jane", 0, 10).getResults().isEmpty());
+        assertEquals(List.of(1L), ids(index.search("roe", 0, 10)));
+    }
+
+    @Test
+    void concurrentUpdatesSharingATermKeepEveryPosting() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // User 0 keeps adding and removing the last posting of "shared" while other users are added to it
+            final Future<?> toggler = executor.submit(() -> {
+                for (int i = 0; i < TOGGLES; i++) {
+                    index.index(user(0L, "toggle", null, lastName(i), null));
+                }
+            });
+            final Future<?> adder = executor.submit(() -> {
+                for (long id = 1; id <= USERS; id++) {
+                    index.index(user(id, "user" + id, null, "Shared", null));
+                }
+            });
+            toggler.get();
+            adder.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // The last toggle moved user 0 to "Other"
+        assertEquals(USERS, index.search("shared", 0, 1).getTotal());
+    }
+
+    private static String lastName(final int i) {
+        if (i % 2 == 0) {
+            return "Shared";
+        }
+        return "Other";
+    }
+
+    private static List<Long> ids(final UserSearchResults results) {
+        return results.getResults().stream().map(UserSearchResult::getId).collect(Collectors.toList());
+    }
+
+    private static UserView user(final long id, final String username, final String firstName, final String lastName,
+                                 final String email) {
+        final UserEntity user = new UserEntity();
+        user.setId(id);
+        user.setUsername(username);
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        user.setEmail(email);
+        return UserView.from(user);
+    }
+}
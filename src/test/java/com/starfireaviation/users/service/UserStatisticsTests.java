@@ -0,0 +1,102 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.starfireaviation.users.service;
+
+import com.starfireaviation.common.model.Role;
+import com.starfireaviation.users.UserFixtures;
+import com.starfireaviation.users.config.PersistenceConfig;
+import com.starfireaviation.users.model.UserEntity;
+import com.starfireaviation.users.model.UserRepository;
+import com.starfireaviation.users.model.UserStats;
+import com.starfireaviation.users.persistence.SqlStatementBudget;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import(PersistenceConfig.class)
+class UserStatisticsTests {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private UserStatistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        UserFixtures.persist(testEntityManager, user(1L, "jdoe", Role.STUDENT, true));
+        UserFixtures.persist(testEntityManager, user(2L, "asmith", Role.INSTRUCTOR, false));
+        statistics = new UserStatistics(userRepository);
+        assertTrue(statistics.reconcile());
+    }
+
+    @Test
+    void countsAreBuiltFromTheDatabase() {
+        final UserStats stats = statistics.getStats();
+        assertEquals(2, stats.getTotal());
+        assertEquals(1, stats.getEmailVerified());
+        assertEquals(1, stats.getByRole().get(Role.STUDENT));
+        assertEquals(1, stats.getByRole().get(Role.INSTRUCTOR));
+        assertEquals(0, stats.getByRole().get(Role.ADMIN));
+    }
+
+    @Test
+    void readingCountsIssuesNoStatements() {
+        SqlStatementBudget.assertAtMost(0, () -> statistics.getStats());
+    }
+
+    @Test
+    void storedUsersUpdateCountsIncrementally() {
+        final UserEntity before = userRepository.findById(2L);
+        final UserEntity after = new UserEntity(before);
+        after.setId(2L);
+        after.setRole(Role.ADMIN);
+        after.setEmailVerified(true);
+        statistics.userStored(new UserEntity(before), after);
+
+        final UserStats stats = statistics.getStats();
+        assertEquals(2, stats.getTotal());
+        assertEquals(2, stats.getEmailVerified());
+        assertEquals(0, stats.getByRole().get(Role.INSTRUCTOR));
+        assertEquals(1, stats.getByRole().get(Role.ADMIN));
+    }
+
+    @Test
+    void reconcileCorrectsDrift() {
+        statistics.userStored(null, userRepository.findById(1L));
+        assertEquals(3, statistics.getStats().getTotal());
+
+        assertTrue(statistics.reconcile());
+        assertEquals(2, statistics.getStats().getTotal());
+        assertEquals(1, statistics.getStats().getByRole().get(Role.STUDENT));
+    }
+
+    private static UserEntity user(final long id, final String username, final Role role, final boolean emailVerified) {
+        final UserEntity user = UserFixtures.user(id, username);
+        user.setRole(role);
+        user.setEmailVerified(emailVerified);
+        return user;
+    }
+}
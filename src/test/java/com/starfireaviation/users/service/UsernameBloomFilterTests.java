@@ -0,0 +1,107 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.service;
+
+import com.starfireaviation.users.UserFixtures;
+import com.starfireaviation.users.config.PersistenceConfig;
+import com.starfireaviation.users.model.UserChangeEventEntity;
+import com.starfireaviation.users.model.UserChangeType;
+import com.starfireaviation.users.model.UserOutboxRepository;
+import com.starfireaviation.users.model.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import(PersistenceConfig.class)
+class UsernameBloomFilterTests {
+
+    private static final long EXPECTED_INSERTIONS = 100_000;
+
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+
+    private static final int BATCH = 100;
+
+    private static final int ADDED = 50_000;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserOutboxRepository userOutboxRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private UserChangeFeed feed;
+
+    private UsernameBloomFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        UserFixtures.persist(testEntityManager, 1L, "jdoe");
+        UserFixtures.persist(testEntityManager, 2L, "ASmith");
+        feed = new UserChangeFeed(userOutboxRepository, BATCH, BATCH, Duration.ofHours(1), Duration.ofDays(1));
+        filter = new UsernameBloomFilter(userRepository, feed, EXPECTED_INSERTIONS, FALSE_POSITIVE_RATE, BATCH);
+    }
+
+    @Test
+    void everyUsernameIsAPossibleHitUntilBuilt() {
+        assertTrue(filter.mightContain("anyone"));
+    }
+
+    @Test
+    void storedAndAddedUsernamesAreNeverReportedAbsent() {
+        filter.rebuild();
+        assertTrue(filter.mightContain("jdoe"));
+        assertTrue(filter.mightContain(" asmith "));
+        for (int i = 0; i < ADDED; i++) {
+            filter.add("pilot" + i);
+        }
+        for (int i = 0; i < ADDED; i++) {
+            assertTrue(filter.mightContain("PILOT" + i));
+        }
+    }
+
+    @Test
+    void usernamesRegisteredOnAnotherReplicaAreAddedFromTheChangeFeed() {
+        filter.rebuild();
+        assertFalse(filter.mightContain("remote"));
+
+        // Another replica stores a user and its outbox row
+        UserFixtures.persist(testEntityManager, 3L, "remote");
+        final UserChangeEventEntity event = new UserChangeEventEntity();
+        event.setUserId(3L);
+        event.setChangeType(UserChangeType.CREATED);
+        event.setCreatedAt(Instant.now());
+        userOutboxRepository.save(event);
+        testEntityManager.flush();
+
+        feed.relay();
+        filter.sync();
+        assertTrue(filter.mightContain("remote"));
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.session;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.Cookie;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NoSessionIdResolverTests {
+
+    private final NoSessionIdResolver resolver = new NoSessionIdResolver();
+
+    @Test
+    void ignoresSessionCookiesAndHeaders() {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie("SESSION", "abc"), new Cookie("JSESSIONID", "def"));
+        request.addHeader("X-Auth-Token", "ghi");
+        assertTrue(resolver.resolveSessionIds(request).isEmpty());
+    }
+
+    @Test
+    void neverIssuesACookie() {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        resolver.setSessionId(new MockHttpServletRequest(), response, "abc");
+        resolver.expireSession(new MockHttpServletRequest(), response);
+        assertEquals(0, response.getCookies().length);
+        assertNull(response.getHeader("Set-Cookie"));
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.session;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.session.MapSession;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TransientSessionRepositoryTests {
+
+    private final TransientSessionRepository repository = new TransientSessionRepository();
+
+    @Test
+    void savedSessionsAreNeverFound() {
+        final MapSession session = repository.createSession();
+        session.setAttribute("user", "jdoe");
+        repository.save(session);
+        assertNull(repository.findById(session.getId()));
+    }
+}
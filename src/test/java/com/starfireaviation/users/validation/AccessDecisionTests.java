@@ -0,0 +1,61 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.validation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessDecisionTests {
+
+    @Test
+    void allowCarriesTheUserId() {
+        final AccessDecision decision = AccessDecision.allow(7L);
+        assertTrue(decision.isAllowed());
+        assertEquals(AccessDecision.Reason.GRANTED, decision.getReason());
+        assertEquals(7L, decision.getUserId());
+    }
+
+    @Test
+    void denyCarriesTheReasonAndUserId() {
+        final AccessDecision decision = AccessDecision.deny(AccessDecision.Reason.NOT_SPECIFIC_USER, 7L);
+        assertFalse(decision.isAllowed());
+        assertEquals(AccessDecision.Reason.NOT_SPECIFIC_USER, decision.getReason());
+        assertEquals(7L, decision.getUserId());
+        assertEquals("AccessDecision[NOT_SPECIFIC_USER, userId=7]", decision.toString());
+    }
+
+    @Test
+    void denialsWithoutAUserAreShared() {
+        final AccessDecision noPrincipal = AccessDecision.deny(AccessDecision.Reason.NO_PRINCIPAL, 7L);
+        assertSame(noPrincipal, AccessDecision.deny(AccessDecision.Reason.NO_PRINCIPAL, null));
+        assertNull(noPrincipal.getUserId());
+        final AccessDecision unknownUser = AccessDecision.deny(AccessDecision.Reason.UNKNOWN_USER, null);
+        assertSame(unknownUser, AccessDecision.deny(AccessDecision.Reason.UNKNOWN_USER, null));
+        assertFalse(unknownUser.isAllowed());
+    }
+
+    @Test
+    void denialRequiresAReason() {
+        assertThrows(IllegalArgumentException.class, () -> AccessDecision.deny(AccessDecision.Reason.GRANTED, 7L));
+    }
+}
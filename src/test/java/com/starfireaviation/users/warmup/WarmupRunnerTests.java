@@ -0,0 +1,128 @@
+/*
+ *  Copyright (C) 2022 Starfire Aviation, LLC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.starfireaviation.users.warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.starfireaviation.users.UserFixtures;
+import com.starfireaviation.users.config.PersistenceConfig;
+import com.starfireaviation.users.model.UserChangeEventEntity;
+import com.starfireaviation.users.model.UserChangeType;
+import com.starfireaviation.users.model.UserOutboxRepository;
+import com.starfireaviation.users.model.UserRepository;
+import com.starfireaviation.users.persistence.LocalReadYourWritesStore;
+import com.starfireaviation.users.persistence.ReadYourWritesTracker;
+import com.starfireaviation.users.service.UserChangeFeed;
+import com.starfireaviation.users.service.UserChangeListener;
+import com.starfireaviation.users.service.UserReadCoalescer;
+import com.starfireaviation.users.service.UserSearchIndex;
+import com.starfireaviation.users.service.UserService;
+import com.starfireaviation.users.service.UserStatistics;
+import com.starfireaviation.users.service.UsernameBloomFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Warm-up manages (and rolls back) its own transactions, so the test must not wrap it in one
+@DataJpaTest
+@Import(PersistenceConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WarmupRunnerTests {
+
+    private static final int ITERATIONS = 5;
+
+    private static final int BCRYPT_STRENGTH = 4;
+
+    private static final int BATCH = 100;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserOutboxRepository userOutboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Long> notified = new ArrayList<>();
+
+    private WarmupRunner runner;
+
+    @BeforeEach
+    void setUp() {
+        final BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(BCRYPT_STRENGTH);
+        final UserChangeFeed feed =
+                new UserChangeFeed(userOutboxRepository, BATCH, BATCH, Duration.ofHours(1), Duration.ofDays(1));
+        final UserService userService = UserFixtures.userService(userRepository, userOutboxRepository, encoder);
+        ReflectionTestUtils.setField(userService, "usernameBloomFilter",
+                new UsernameBloomFilter(userRepository, feed, BATCH, 0.01, BATCH));
+        ReflectionTestUtils.setField(userService, "userSearchIndex",
+                new UserSearchIndex(userRepository, feed, BATCH, BATCH));
+        ReflectionTestUtils.setField(userService, "userReadCoalescer", new UserReadCoalescer(userRepository,
+                transactionManager, new ReadYourWritesTracker(
+                        new LocalReadYourWritesStore(TimeUnit.SECONDS.toNanos(1), BATCH))));
+        final UserChangeListener listener = (previous, stored) -> notified.add(stored.getId());
+        ReflectionTestUtils.setField(userService, "userChangeListeners", List.of(listener));
+        runner = new WarmupRunner(userService, userRepository, new UserStatistics(userRepository),
+                transactionManager, encoder, new ObjectMapper(), () -> 0, new SimpleMeterRegistry(),
+                ITERATIONS, TimeUnit.MINUTES.toMillis(1));
+    }
+
+    @Test
+    void leavesNoUsersOutboxRowsOrOutboxGapsBehind() {
+        final List<String> usernames = userRepository.findAllUsernames();
+        final long maxOutboxId = userOutboxRepository.findMaxId();
+        final long before = nextOutboxId();
+
+        assertEquals(ITERATIONS, runner.warm());
+
+        assertEquals(usernames, userRepository.findAllUsernames());
+        assertEquals(maxOutboxId, userOutboxRepository.findMaxId());
+        assertEquals(before + 1, nextOutboxId());
+        assertTrue(notified.isEmpty(), "notified " + notified);
+    }
+
+    // Inserts an outbox row in a transaction which is rolled back, and returns the ID it was given
+    private long nextOutboxId() {
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        return transaction.execute(status -> {
+            status.setRollbackOnly();
+            final UserChangeEventEntity event = new UserChangeEventEntity();
+            event.setUserId(0L);
+            event.setChangeType(UserChangeType.UPDATED);
+            event.setCreatedAt(Instant.now());
+            return userOutboxRepository.save(event).getId();
+        });
+    }
+}